@@ -22,6 +22,21 @@ class GattRegistryGeneratorGradle {
             overwrite
         )
 
+        generateBundle(
+            project,
+            basedir.resolve(Path.of("src", "main", "resources")),
+            builddir.resolve(Path.of("generated-sources", "groovy", "gatt", "gatt_spec_bundle.bin"))
+        )
+
+    }
+
+    // precompiled binary bundle of all specifications, it is written by the library itself (main classes must be compiled)
+    static generateBundle(final Project project, final Path resourcesFolder, final Path bundleFile) {
+        project.javaexec {
+            classpath = project.sourceSets.main.output.classesDirs + project.configurations.runtimeClasspath
+            main = 'org.sputnikdev.bluetooth.gattparser.spec.SpecificationBundle'
+            args = [resourcesFolder.toString(), bundleFile.toString()]
+        }
     }
 
     static generate(final Path inputFolder, final Path registryFile, boolean overwrite) {
@@ -0,0 +1,96 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing many buffered values of a characteristic one by one (and flattening the results into arrays)
+ * with parsing them at once into columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchParseBenchmark {
+
+    private static final String HEART_RATE = "2A37";
+    private static final String VALUE = "Heart Rate Measurement Value (uint8)";
+
+    @Param({"1000"})
+    private int size;
+
+    private BluetoothGattParser parser;
+    private byte[][] values;
+    private byte[] data;
+    private int[] offsets;
+
+    @Setup
+    public void setUp() {
+        parser = BluetoothGattParserFactory.getDefault();
+        Random random = new Random(42);
+        values = new byte[size][];
+        offsets = new int[size + 1];
+        data = new byte[size * 4];
+        for (int i = 0; i < size; i++) {
+            // heart rate as uint8, sometimes with an RR-interval
+            values[i] = random.nextBoolean() ? new byte[] {0x00, (byte) (60 + random.nextInt(60))}
+                    : new byte[] {0x10, (byte) (60 + random.nextInt(60)), (byte) random.nextInt(), 0x03};
+            offsets[i + 1] = offsets[i] + values[i].length;
+            System.arraycopy(values[i], 0, data, offsets[i], values[i].length);
+        }
+    }
+
+    @Benchmark
+    public long[] parseOneByOne() {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = parser.parse(HEART_RATE, values[i]).get(VALUE).getLong();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long[] parseBatch() {
+        return parser.parseBatch(HEART_RATE, values).getLongs(VALUE);
+    }
+
+    @Benchmark
+    public long[] parseConcatenatedBatch() {
+        return parser.parseBatch(HEART_RATE, data, offsets).getLongs(VALUE);
+    }
+
+}
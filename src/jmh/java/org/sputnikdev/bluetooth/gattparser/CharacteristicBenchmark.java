@@ -0,0 +1,142 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing and serialization of a representative set of bundled characteristics in a single thread,
+ * see {@link CharacteristicMultiThreadedBenchmark} for the same benchmarks run by many threads sharing a parser.
+ * Both throughput and average time are reported, allocation rate is reported with the GC profiler:
+ * <pre>
+ * gradlew jmh -PjmhArgs="CharacteristicBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class CharacteristicBenchmark {
+
+    private static final String BATTERY_LEVEL = "2A19";
+    private static final String HEART_RATE = "2A37";
+    private static final String HEART_RATE_CONTROL_POINT = "2A39";
+    private static final String TEMPERATURE = "2A1C";
+    private static final String MI_TEMP_AND_HUMIDITY = "226CAA55";
+    private static final String MIFLORA = "1A01";
+
+    /**
+     * Heart Rate Measurement values of different flags, i.e. with different sets of fields.
+     */
+    @State(Scope.Benchmark)
+    public static class HeartRate {
+
+        /**
+         * Flags: 0 - uint8 value, 1 - uint16 value, 6 - sensor contact detected, 8 - energy expended present,
+         * 16 - RR-intervals present, 25 - uint16 value, energy expended and RR-intervals.
+         */
+        @Param({"0", "1", "6", "8", "16", "25"})
+        private int flags;
+
+        private byte[] value;
+
+        @Setup
+        public void setUp() {
+            switch (flags) {
+                case 0: value = new byte[] {0x00, 74}; break;
+                case 1: value = new byte[] {0x01, 74, 0x01}; break;
+                case 6: value = new byte[] {0x06, 74}; break;
+                case 8: value = new byte[] {0x08, 74, 0x10, 0x00}; break;
+                case 16: value = new byte[] {0x10, 74, 0x10, 0x20}; break;
+                case 25: value = new byte[] {0x19, 74, 0x01, 0x10, 0x00, 0x10, 0x20, 0x30, 0x40}; break;
+                default: throw new IllegalArgumentException("Unsupported flags: " + flags);
+            }
+        }
+    }
+
+    private BluetoothGattParser parser;
+    private byte[] batteryLevel;
+    private byte[] temperature;
+    private byte[] miTempAndHumidity;
+    private byte[] miflora;
+
+    @Setup
+    public void setUp() {
+        parser = BluetoothGattParserFactory.getDefault();
+        batteryLevel = new byte[] {51};
+        temperature = new byte[] {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C,
+            0x1E, 0x00, 0x03};
+        miTempAndHumidity = new byte[] {0x54, 0x3d, 0x32, 0x37, 0x2e, 0x36, 0x20, 0x48, 0x3d, 0x39, 0x32, 0x2e, 0x36,
+            0x00};
+        miflora = new byte[] {0x1f, 0x01, 0x00, (byte) 0xe7, 0x26, 0x00, 0x00, 0x35, 0x74, 0x00, 0x02, 0x3c, 0x00,
+            (byte) 0xfb, 0x34, (byte) 0x9b};
+    }
+
+    @Benchmark
+    public GattResponse batteryLevel() {
+        return parser.parse(BATTERY_LEVEL, batteryLevel);
+    }
+
+    @Benchmark
+    public GattResponse heartRate(HeartRate heartRate) {
+        return parser.parse(HEART_RATE, heartRate.value);
+    }
+
+    @Benchmark
+    public GattResponse temperature() {
+        return parser.parse(TEMPERATURE, temperature);
+    }
+
+    @Benchmark
+    public GattResponse miTempAndHumidity() {
+        return parser.parse(MI_TEMP_AND_HUMIDITY, miTempAndHumidity);
+    }
+
+    @Benchmark
+    public GattResponse miflora() {
+        return parser.parse(MIFLORA, miflora);
+    }
+
+    @Benchmark
+    public byte[] serializeControlPoint() {
+        GattRequest request = parser.prepare(HEART_RATE_CONTROL_POINT);
+        request.setField("Heart Rate Control Point", 1);
+        return parser.serialize(request);
+    }
+
+}
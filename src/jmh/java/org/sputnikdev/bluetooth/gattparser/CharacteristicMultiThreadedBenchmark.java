@@ -0,0 +1,33 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The same benchmarks as {@link CharacteristicBenchmark}, run by as many threads as there are available cores
+ * sharing a single parser. Throughput per thread is expected to stay close to the single threaded one.
+ */
+@Threads(Threads.MAX)
+public class CharacteristicMultiThreadedBenchmark extends CharacteristicBenchmark {
+
+}
@@ -0,0 +1,122 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cold start: creating a default parser and the first parse of a characteristic. Every benchmark is run
+ * once per fork, i.e. in a fresh JVM, so that the results include class loading, reading and validating
+ * GATT specifications, and compiling parse plans by a JVM which has not run any code of the parser yet.
+ * The first parse of a characteristic is measured both with and without loading its specification,
+ * see {@link org.sputnikdev.bluetooth.gattparser.spec.SpecificationLoadingPhasesBenchmark} for a breakdown
+ * of loading specifications. Other characteristics can be measured with the "uuid" parameter, values of
+ * unknown length are parsed as zeros:
+ * <pre>
+ * gradlew jmh -PjmhArgs="ColdStartBenchmark -p uuid=2A19,2A5B"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ColdStartBenchmark {
+
+    /**
+     * A parser which has not parsed any characteristics yet.
+     */
+    @State(Scope.Benchmark)
+    public static class FirstParse {
+
+        @Param({"2A19", "2A37", "2A1C", "226CAA55", "1A01"})
+        String uuid;
+
+        BluetoothGattParser parser;
+        byte[] value;
+
+        @Setup
+        public void setUp() {
+            parser = BluetoothGattParserFactory.getDefault();
+            switch (uuid) {
+                case "2A19": value = new byte[] {51}; break;
+                case "2A37": value = new byte[] {0x19, 74, 0x01, 0x10, 0x00, 0x10, 0x20, 0x30, 0x40}; break;
+                case "2A1C": value = new byte[] {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07,
+                    0x0A, 0x18, 0x0C, 0x1E, 0x00, 0x03}; break;
+                case "226CAA55": value = new byte[] {0x54, 0x3d, 0x32, 0x37, 0x2e, 0x36, 0x20, 0x48, 0x3d, 0x39,
+                    0x32, 0x2e, 0x36, 0x00}; break;
+                case "1A01": value = new byte[] {0x1f, 0x01, 0x00, (byte) 0xe7, 0x26, 0x00, 0x00, 0x35, 0x74, 0x00,
+                    0x02, 0x3c, 0x00, (byte) 0xfb, 0x34, (byte) 0x9b}; break;
+                default: value = new byte[16];
+            }
+        }
+    }
+
+    /**
+     * A parser which has loaded the specification of a characteristic, but has not parsed it yet.
+     */
+    @State(Scope.Benchmark)
+    public static class LoadedSpecification extends FirstParse {
+
+        @Setup
+        public void loadSpecification() {
+            parser.getCharacteristic(uuid);
+        }
+    }
+
+    @Benchmark
+    public BluetoothGattParser createParser() {
+        return BluetoothGattParserFactory.getDefault();
+    }
+
+    @Benchmark
+    public Object firstParse(FirstParse state) {
+        return parse(state);
+    }
+
+    @Benchmark
+    public Object firstParseOfLoadedSpecification(LoadedSpecification state) {
+        return parse(state);
+    }
+
+    private static Object parse(FirstParse state) {
+        try {
+            return state.parser.parse(state.uuid, state.value);
+        } catch (CharacteristicFormatException e) {
+            // zeros may not be a valid value of a characteristic, but the specification has been loaded anyway
+            return e;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of a single parser instance shared by many threads.
+ * Throughput of the "parse" benchmarks is expected to grow linearly with the number of threads
+ * (up to the number of available cores), the "locked" benchmarks emulate a parser which serializes
+ * all parse operations behind a global lock and are given as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentParseBenchmark {
+
+    private static final String HEART_RATE = "2A37";
+    private static final String TEMPERATURE = "2A1C";
+
+    private final Object lock = new Object();
+
+    private BluetoothGattParser parser;
+    private byte[] heartRate;
+    private byte[] temperature;
+
+    @Setup
+    public void setUp() {
+        parser = BluetoothGattParserFactory.getDefault();
+        heartRate = new byte[] {0x10, 74, 0x10, 0x20};
+        temperature = new byte[] {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C,
+            0x1E, 0x00, 0x03};
+    }
+
+    @Benchmark
+    @Threads(1)
+    public GattResponse parse1Thread() {
+        return parse();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public GattResponse parse4Threads() {
+        return parse();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public GattResponse parseMaxThreads() {
+        return parse();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public GattResponse locked1Thread() {
+        synchronized (lock) {
+            return parse();
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public GattResponse lockedMaxThreads() {
+        synchronized (lock) {
+            return parse();
+        }
+    }
+
+    private GattResponse parse() {
+        parser.parse(HEART_RATE, heartRate);
+        return parser.parse(TEMPERATURE, temperature);
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+import org.sputnikdev.bluetooth.gattparser.spec.Field;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows the cost of resolving field formats. Run it with the GC profiler to see allocations per operation
+ * ("gc.alloc.rate.norm"): gradlew jmh -PjmhArgs="FieldFormatBenchmark -prof gc".
+ * <ul>
+ * <li>"valueOf" parses formats of all fields of a characteristic as it used to be done on each
+ * {@link Field#getFormat()} call</li>
+ * <li>"getFormat" reads formats memoized by fields</li>
+ * <li>"interpreterParse" parses a value with {@link GenericCharacteristicParser} which reads field formats
+ * several times per field</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldFormatBenchmark {
+
+    private GenericCharacteristicParser interpreter;
+    private Characteristic characteristic;
+    private List<Field> fields;
+    private String[] formats;
+    private byte[] raw;
+
+    @Setup
+    public void setUp() {
+        GattParserConfiguration config = GattParserConfigurationBuilder.builder().setDefaults().toConfiguration();
+        interpreter = new GenericCharacteristicParser(config);
+        // Temperature Measurement: flags, two sfloat/float values, a referenced date time and a uint8
+        characteristic = config.getGattSpecificationReader().getCharacteristicByUUID("2A1C");
+        fields = config.getGattSpecificationReader().getFields(characteristic);
+        formats = fields.stream().map(field -> field.getFormat().getName()).toArray(String[]::new);
+        raw = new byte[] {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00,
+            0x03};
+    }
+
+    @Benchmark
+    public void valueOf(Blackhole blackhole) {
+        for (String format : formats) {
+            blackhole.consume(FieldFormat.valueOf(format));
+        }
+    }
+
+    @Benchmark
+    public void getFormat(Blackhole blackhole) {
+        for (int i = 0; i < fields.size(); i++) {
+            blackhole.consume(fields.get(i).getFormat());
+        }
+    }
+
+    @Benchmark
+    public Object interpreterParse() {
+        return interpreter.parse(characteristic, raw);
+    }
+
+}
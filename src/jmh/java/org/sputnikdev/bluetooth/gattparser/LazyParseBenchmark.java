@@ -0,0 +1,93 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a characteristic value and reading a single field of it with eager and lazy parsing
+ * (see {@link GattParserConfigurationBuilder#withLazyParsing(boolean)}). The "all" benchmarks read all fields
+ * and show the overhead of lazy parsing when every field is accessed anyway.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyParseBenchmark {
+
+    private static final String TEMPERATURE = "2A1C";
+    private static final String TEMPERATURE_VALUE = "Temperature Measurement Value (Celsius)";
+
+    private BluetoothGattParser eager;
+    private BluetoothGattParser lazy;
+    private byte[] temperature;
+
+    @Setup
+    public void setUp() {
+        eager = GattParserConfigurationBuilder.builder().toConfiguration().getGattParser();
+        lazy = GattParserConfigurationBuilder.builder().withLazyParsing(true).toConfiguration().getGattParser();
+        temperature = new byte[] {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C,
+            0x1E, 0x00, 0x03};
+    }
+
+    @Benchmark
+    public double eagerOneField() {
+        return eager.parse(TEMPERATURE, temperature).get(TEMPERATURE_VALUE).getAsDouble();
+    }
+
+    @Benchmark
+    public double lazyOneField() {
+        return lazy.parse(TEMPERATURE, temperature).get(TEMPERATURE_VALUE).getAsDouble();
+    }
+
+    @Benchmark
+    public long eagerAllFields() {
+        return readAll(eager.parse(TEMPERATURE, temperature));
+    }
+
+    @Benchmark
+    public long lazyAllFields() {
+        return readAll(lazy.parse(TEMPERATURE, temperature));
+    }
+
+    private static long readAll(GattResponse response) {
+        long checksum = 0;
+        for (FieldHolder holder : response.getFieldHolders()) {
+            checksum += holder.getRawValue().hashCode();
+        }
+        return checksum;
+    }
+
+}
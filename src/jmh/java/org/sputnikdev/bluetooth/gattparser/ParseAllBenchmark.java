@@ -0,0 +1,100 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of a batch of notifications of many devices by {@link BluetoothGattParser#parseAll}
+ * with pools of different sizes. Time per batch is expected to go down nearly linearly with the pool size
+ * (up to the number of available cores), the "sequential" benchmark parses the batch one by one
+ * in a single thread and is given as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseAllBenchmark {
+
+    private static final int DEVICES = 100;
+    private static final int NOTIFICATIONS = 10000;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private BluetoothGattParser parser;
+    private ForkJoinPool pool;
+    private List<Notification> notifications;
+
+    @Setup
+    public void setUp() {
+        parser = BluetoothGattParserFactory.getDefault();
+        pool = new ForkJoinPool(parallelism);
+        notifications = new ArrayList<>(NOTIFICATIONS);
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            String device = "device" + i % DEVICES;
+            if (i % 4 == 0) {
+                notifications.add(new Notification(device, "2A1C", new byte[] {0x06, (byte) 0xFE, 0x06, 0x00,
+                    (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00, 0x03}, i));
+            } else {
+                notifications.add(new Notification(device, "2A37", new byte[] {0x10, (byte) i, 0x10, 0x20}, i));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public List<ParsedNotification> parseAll() {
+        return parser.parseAll(notifications, pool);
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (Notification notification : notifications) {
+            blackhole.consume(parser.parse(notification.getCharacteristicUUID(), notification.getValue()));
+        }
+    }
+
+}
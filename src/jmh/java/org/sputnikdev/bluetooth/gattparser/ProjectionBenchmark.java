@@ -0,0 +1,73 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a single field of a characteristic value by parsing the value in full
+ * and by a {@link Projection} of the field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final String RUNNING_SPEED_AND_CADENCE = "2A53";
+    private static final String CADENCE = "Instantaneous Cadence";
+
+    private BluetoothGattParser parser;
+    private Projection projection;
+    private byte[] value;
+
+    @Setup
+    public void setUp() {
+        parser = BluetoothGattParserFactory.getDefault();
+        projection = parser.projection(RUNNING_SPEED_AND_CADENCE, CADENCE);
+        value = new byte[] {0x03, 0x00, 0x02, 90, 0x20, 0x00, 0x0A, 0x00, 0x00, 0x00};
+    }
+
+    @Benchmark
+    public int parse() {
+        return parser.parse(RUNNING_SPEED_AND_CADENCE, value).get(CADENCE).getAsInt();
+    }
+
+    @Benchmark
+    public int projection() {
+        return projection.parse(value).get(CADENCE).getAsInt();
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sputnikdev.bluetooth.gattparser.spec.BluetoothGattSpecificationReader;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+import org.sputnikdev.bluetooth.gattparser.spec.StaxSpecificationLoader;
+import org.sputnikdev.bluetooth.gattparser.spec.XStreamSpecificationLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading of bundled GATT specifications by a warmed up JVM: reading the specification registries
+ * (which happens when a parser is created), and loading specifications of the characteristics
+ * covered by {@link CharacteristicBenchmark} (which happens when they are parsed first time) with the default
+ * (the precompiled specification bundle), XStream and StAX specification loaders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecificationLoadingBenchmark {
+
+    private static final String[] CHARACTERISTICS = {"2A19", "2A37", "2A39", "2A1C", "226CAA55", "1A01"};
+
+    @Benchmark
+    public BluetoothGattSpecificationReader readRegistries() {
+        return new BluetoothGattSpecificationReader();
+    }
+
+    @Benchmark
+    public Characteristic loadCharacteristics() {
+        return loadCharacteristics(new BluetoothGattSpecificationReader());
+    }
+
+    @Benchmark
+    public Characteristic loadCharacteristicsWithXStream() {
+        return loadCharacteristics(new BluetoothGattSpecificationReader(new XStreamSpecificationLoader()));
+    }
+
+    @Benchmark
+    public Characteristic loadCharacteristicsWithStax() {
+        return loadCharacteristics(new BluetoothGattSpecificationReader(new StaxSpecificationLoader()));
+    }
+
+    private static Characteristic loadCharacteristics(BluetoothGattSpecificationReader reader) {
+        Characteristic characteristic = null;
+        for (String uuid : CHARACTERISTICS) {
+            characteristic = reader.getCharacteristicByUUID(uuid);
+        }
+        return characteristic;
+    }
+
+}
@@ -0,0 +1,279 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.thoughtworks.xstream.XStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures where the time goes when all bundled GATT specifications are loaded by a cold JVM. Every benchmark is
+ * run once per fork, i.e. in a fresh JVM, and the phases of loading are measured separately: reading the JSON
+ * specification registries (which happens when a parser is created), setting up XStream, parsing specification
+ * XML files and validating characteristic specifications (which happens when a characteristic is loaded).
+ * The time of loading all specifications by a {@link BluetoothGattSpecificationReader} is measured as well.
+ * XStream is set up once and shared by all readers, {@link #createXStreamPerFile} measures what it would cost
+ * to set up XStream for every specification file instead. Parsing and loading are also measured with
+ * {@link StaxSpecificationLoader}, which does not need any setup, and from the precompiled specification bundle
+ * ({@link SpecificationBundle}), which is read when the default reader is created and does not need any XML parsing.
+ * <pre>
+ * gradlew jmh -PjmhArgs="SpecificationLoadingPhasesBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class SpecificationLoadingPhasesBenchmark {
+
+    private static final String CHARACTERISTICS_FOLDER = "gatt/characteristic/";
+    private static final String SERVICES_FOLDER = "gatt/service/";
+    private static final String REGISTRY_FILE_NAME = "gatt_spec_registry.json";
+
+    /**
+     * UUIDs and files of all bundled specifications, read without loading any of them.
+     */
+    @State(Scope.Benchmark)
+    public static class Specifications {
+
+        private Map<String, String> characteristics;
+        private Map<String, String> services;
+        private List<URL> files;
+
+        @Setup
+        public void setUp() {
+            characteristics = readRegistry(CHARACTERISTICS_FOLDER);
+            services = readRegistry(SERVICES_FOLDER);
+            files = new ArrayList<>();
+            for (String type : characteristics.values()) {
+                files.add(getResource(CHARACTERISTICS_FOLDER + type + ".xml"));
+            }
+            for (String type : services.values()) {
+                files.add(getResource(SERVICES_FOLDER + type + ".xml"));
+            }
+        }
+    }
+
+    /**
+     * A reader which reads specification files with {@link XStreamSpecificationLoader}, it has read
+     * the specification registries, but has not loaded any specifications.
+     */
+    @State(Scope.Benchmark)
+    public static class Registries {
+
+        private BluetoothGattSpecificationReader reader;
+
+        @Setup
+        public void setUp() {
+            reader = new BluetoothGattSpecificationReader(new XStreamSpecificationLoader());
+        }
+    }
+
+    /**
+     * A default reader, which reads specifications from the precompiled bundle, it has read
+     * the specification registries and the bundle, but has not loaded any specifications.
+     */
+    @State(Scope.Benchmark)
+    public static class BundledRegistries {
+
+        private BluetoothGattSpecificationReader reader;
+
+        @Setup
+        public void setUp() {
+            reader = new BluetoothGattSpecificationReader(new BundledSpecificationLoader());
+        }
+    }
+
+    /**
+     * A reader which reads specification files with {@link StaxSpecificationLoader}, it has read
+     * the specification registries, but has not loaded any specifications.
+     */
+    @State(Scope.Benchmark)
+    public static class StaxRegistries {
+
+        private BluetoothGattSpecificationReader reader;
+
+        @Setup
+        public void setUp() {
+            reader = new BluetoothGattSpecificationReader(new StaxSpecificationLoader());
+        }
+    }
+
+    /**
+     * An XStream instance which has been set up, but has not parsed any specifications.
+     */
+    @State(Scope.Benchmark)
+    public static class Parser {
+
+        private XStream xstream;
+
+        @Setup
+        public void setUp() {
+            xstream = XStreamSpecificationLoader.createXStream();
+        }
+    }
+
+    /**
+     * Parsed, but not yet validated characteristic specifications.
+     */
+    @State(Scope.Benchmark)
+    public static class Parsed {
+
+        private List<Characteristic> characteristics;
+
+        @Setup
+        public void setUp(Specifications specifications, Parser parser) {
+            characteristics = new ArrayList<>();
+            for (String type : specifications.characteristics.values()) {
+                Characteristic characteristic = (Characteristic) parser.xstream.fromXML(
+                        getResource(CHARACTERISTICS_FOLDER + type + ".xml"));
+                // some bundled specifications (e.g. control points) do not define any value
+                if (characteristic.getValue() != null) {
+                    characteristics.add(characteristic);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public BluetoothGattSpecificationReader readRegistries() {
+        return new BluetoothGattSpecificationReader();
+    }
+
+    @Benchmark
+    public SpecificationBundle readBundle() {
+        return SpecificationBundle.loadBundled();
+    }
+
+    @Benchmark
+    public XStream createXStream() {
+        return XStreamSpecificationLoader.createXStream();
+    }
+
+    @Benchmark
+    public XStream createXStreamPerFile(Specifications specifications) {
+        XStream xstream = null;
+        for (int i = 0; i < specifications.files.size(); i++) {
+            xstream = XStreamSpecificationLoader.createXStream();
+        }
+        return xstream;
+    }
+
+    @Benchmark
+    public Object parseXml(Specifications specifications, Parser parser) {
+        Object spec = null;
+        for (URL file : specifications.files) {
+            spec = parser.xstream.fromXML(file);
+        }
+        return spec;
+    }
+
+    @Benchmark
+    public Object parseXmlWithStax(Specifications specifications) throws IOException {
+        StaxSpecificationLoader loader = new StaxSpecificationLoader();
+        Object spec = null;
+        for (String type : specifications.characteristics.values()) {
+            spec = loader.loadCharacteristic(getResource(CHARACTERISTICS_FOLDER + type + ".xml"));
+        }
+        for (String type : specifications.services.values()) {
+            spec = loader.loadService(getResource(SERVICES_FOLDER + type + ".xml"));
+        }
+        return spec;
+    }
+
+    @Benchmark
+    public Characteristic validate(Parsed parsed, Registries registries) {
+        for (Characteristic characteristic : parsed.characteristics) {
+            registries.reader.validate(characteristic);
+        }
+        return parsed.characteristics.get(0);
+    }
+
+    @Benchmark
+    public int loadAllSpecifications(Specifications specifications, Registries registries) {
+        return loadAll(specifications, registries.reader);
+    }
+
+    @Benchmark
+    public int loadAllSpecificationsWithStax(Specifications specifications, StaxRegistries registries) {
+        return loadAll(specifications, registries.reader);
+    }
+
+    @Benchmark
+    public int loadAllSpecificationsFromBundle(Specifications specifications, BundledRegistries registries) {
+        return loadAll(specifications, registries.reader);
+    }
+
+    private static int loadAll(Specifications specifications, BluetoothGattSpecificationReader reader) {
+        int loaded = 0;
+        for (String uuid : specifications.characteristics.keySet()) {
+            try {
+                if (reader.getCharacteristicByUUID(uuid) != null) {
+                    loaded++;
+                }
+            } catch (NullPointerException ex) {
+                // some bundled specifications (e.g. control points) do not define any value
+            }
+        }
+        for (String uuid : specifications.services.keySet()) {
+            if (reader.getService(uuid) != null) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private static Map<String, String> readRegistry(String folder) {
+        try (Reader registry = new InputStreamReader(getResource(folder + REGISTRY_FILE_NAME).openStream(),
+                StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(registry, new TypeToken<Map<String, String>>() { }.getType());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static URL getResource(String name) {
+        return SpecificationLoadingPhasesBenchmark.class.getClassLoader().getResource(name);
+    }
+
+}
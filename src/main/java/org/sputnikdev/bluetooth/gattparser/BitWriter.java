@@ -0,0 +1,160 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.BitSet;
+
+/**
+ * Writes characteristic fields bit by bit (little-endian, the same order as {@link BitSet#toByteArray()} produces)
+ * directly into a region of a preallocated byte array. Byte aligned fields are written byte by byte.
+ * The region is zeroed as the writer advances, so that it can be a part of a reused array or a byte buffer.
+ * Bits beyond the region are dropped, however they are still taken into account by {@link #getLength()},
+ * so that the caller can detect that the region is too small.
+ * Not threadsafe.
+ */
+final class BitWriter {
+
+    private final byte[] array;
+    private final int base;
+    private final int capacity;
+    private int offset;
+    private int length;
+    private int zeroed;
+
+    /**
+     * Creates a writer of a region of an array.
+     * @param array target array
+     * @param base index of the first byte of the region
+     * @param capacity size of the region in bytes
+     */
+    BitWriter(byte[] array, int base, int capacity) {
+        this.array = array;
+        this.base = base;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns number of written bits.
+     * @return number of written bits
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns number of written bytes up to the last non-zero one (trailing zero bytes are not counted),
+     * the same as length of an array produced by {@link BitSet#toByteArray()} of the written bits.
+     * @return number of written bytes excluding trailing zeros
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Completes writing: returns number of bytes to be sent, i.e. number of written bytes excluding trailing zeros,
+     * but at least one byte (a characteristic value must not be empty) and at most the given number of bytes.
+     * Bytes of the region which are to be sent but have not been written to are zeroed.
+     * @param maxLength maximum number of bytes to be sent
+     * @return number of bytes to be sent
+     */
+    int finish(int maxLength) {
+        int result = Math.max(1, Math.min(length, maxLength));
+        while (zeroed < Math.min(result, capacity)) {
+            array[base + zeroed++] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the lowest bits of a number.
+     * @param bits bits to write, bits above the given size are ignored
+     * @param size number of bits to write (up to 64)
+     */
+    void write(long bits, int size) {
+        if (size < Long.SIZE) {
+            bits &= (1L << size) - 1;
+        }
+        int index = offset >> 3;
+        int shift = offset & 7;
+        if (shift == 0 && (size & 7) == 0) {
+            // byte aligned
+            for (int i = 0; i < size >> 3; i++) {
+                put(index + i, (int) (bits >>> (i << 3)) & 0xFF);
+            }
+        } else {
+            int last = (offset + size - 1) >> 3;
+            put(index, (int) (bits << shift) & 0xFF);
+            for (int i = index + 1, bit = 8 - shift; i <= last; i++, bit += 8) {
+                put(i, (int) (bits >>> bit) & 0xFF);
+            }
+        }
+        offset += size;
+    }
+
+    /**
+     * Writes bits of a byte array.
+     * @param bytes bits to write, bits above the given size are ignored
+     * @param size number of bits to write, bits beyond the array are written as zeros
+     */
+    void write(byte[] bytes, int size) {
+        int i = 0;
+        for (; size - (i << 3) >= 8; i++) {
+            write(i < bytes.length ? bytes[i] : 0, 8);
+        }
+        int remaining = size - (i << 3);
+        if (remaining > 0) {
+            write(i < bytes.length ? bytes[i] : 0, remaining);
+        }
+    }
+
+    /**
+     * Writes bits of a bit set.
+     * @param bits bits to write, bits above the given size are ignored
+     * @param size number of bits to write
+     */
+    void write(BitSet bits, int size) {
+        if (size <= Long.SIZE) {
+            long[] words = bits.toLongArray();
+            write(words.length > 0 ? words[0] : 0, size);
+        } else {
+            write(bits.toByteArray(), size);
+        }
+    }
+
+    private void put(int index, int value) {
+        // the byte is always written to (even if it is zero) to clear the region
+        if (index < capacity) {
+            while (zeroed < index) {
+                array[base + zeroed++] = 0;
+            }
+            if (zeroed == index) {
+                array[base + index] = (byte) value;
+                zeroed++;
+            } else {
+                array[base + index] |= (byte) value;
+            }
+        }
+        if (value != 0 && index >= length) {
+            length = index + 1;
+        }
+    }
+
+}
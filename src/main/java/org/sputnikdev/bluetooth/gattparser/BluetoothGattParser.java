@@ -28,11 +28,19 @@ import org.sputnikdev.bluetooth.gattparser.spec.Field;
 import org.sputnikdev.bluetooth.gattparser.spec.Service;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class encapsulates functionality for reading and writing Bluetooth GATT characteristics
@@ -69,7 +77,8 @@ public class BluetoothGattParser {
     private final Logger logger = LoggerFactory.getLogger(GenericCharacteristicParser.class);
 
     private BluetoothGattSpecificationReader specificationReader;
-    private final Map<String, CharacteristicParser> customParsers = new HashMap<>();
+    // read on every parse and serialize, hence it must be safe to read without locking
+    private final Map<String, CharacteristicParser> customParsers = new ConcurrentHashMap<>();
     private CharacteristicParser defaultParser;
 
     BluetoothGattParser(BluetoothGattSpecificationReader specificationReader, CharacteristicParser defaultParser) {
@@ -86,6 +95,15 @@ public class BluetoothGattParser {
         return specificationReader.getCharacteristicByUUID(getShortUUID(characteristicUUID)) != null;
     }
 
+    /**
+     * Checks whether a provided characteristic UUID is known by the parser.
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @return true if the parser has loaded definitions for that characteristic, false otherwise
+     */
+    public boolean isKnownCharacteristic(GattUuid characteristicUUID) {
+        return specificationReader.getCharacteristicByUUID(characteristicUUID.getShortUUID()) != null;
+    }
+
     /**
      * Checks whether a provided service UUID is known by the parser.
      * @param serviceUUID UUID of a GATT service
@@ -105,7 +123,299 @@ public class BluetoothGattParser {
      * @throws CharacteristicFormatException if a characteristic cannot be parsed
      */
     public GattResponse parse(String characteristicUUID, byte[] raw) throws CharacteristicFormatException {
-        return new GattResponse(parseFields(characteristicUUID, raw));
+        return parse(characteristicUUID, getShortUUID(characteristicUUID), raw);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value (byte array) into a user-friendly format
+     * (a map of parsed characteristic fields represented by {@link GattResponse}).
+     * Unlike {@link #parse(String, byte[])}, no string conversions of the UUID are performed.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte array of data received from bluetooth device
+     * @return a map of parsed characteristic fields represented by {@link GattResponse}
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     */
+    public GattResponse parse(GattUuid characteristicUUID, byte[] raw) throws CharacteristicFormatException {
+        return parse(characteristicUUID.toString(), characteristicUUID.getShortUUID(), raw);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value which is a region of a byte array, e.g. a value
+     * received within a bigger packet. The region is read in place, it is not copied by the default parser.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte array containing data received from bluetooth device
+     * @param offset index of the first byte of the characteristic value
+     * @param length length of the characteristic value in bytes
+     * @return a map of parsed characteristic fields represented by {@link GattResponse}
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     * @throws IndexOutOfBoundsException if the region is out of bounds of the array
+     */
+    public GattResponse parse(String characteristicUUID, byte[] raw, int offset, int length)
+            throws CharacteristicFormatException {
+        return parse(characteristicUUID, getShortUUID(characteristicUUID), raw, offset, length);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value which is a region of a byte array,
+     * see {@link #parse(String, byte[], int, int)}.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte array containing data received from bluetooth device
+     * @param offset index of the first byte of the characteristic value
+     * @param length length of the characteristic value in bytes
+     * @return a map of parsed characteristic fields represented by {@link GattResponse}
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     * @throws IndexOutOfBoundsException if the region is out of bounds of the array
+     */
+    public GattResponse parse(GattUuid characteristicUUID, byte[] raw, int offset, int length)
+            throws CharacteristicFormatException {
+        return parse(characteristicUUID.toString(), characteristicUUID.getShortUUID(), raw, offset, length);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value which is the remaining content of a byte buffer
+     * (the bytes between its position and limit). Both heap and direct buffers are read in place, the value is not
+     * copied by the default parser unless it is parsed lazily or contains a nested characteristic.
+     * Neither position nor limit of the buffer is changed.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte buffer of data received from bluetooth device
+     * @return a map of parsed characteristic fields represented by {@link GattResponse}
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     */
+    public GattResponse parse(String characteristicUUID, ByteBuffer raw) throws CharacteristicFormatException {
+        return parse(characteristicUUID, getShortUUID(characteristicUUID), raw);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value which is the remaining content of a byte buffer,
+     * see {@link #parse(String, ByteBuffer)}.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte buffer of data received from bluetooth device
+     * @return a map of parsed characteristic fields represented by {@link GattResponse}
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     */
+    public GattResponse parse(GattUuid characteristicUUID, ByteBuffer raw) throws CharacteristicFormatException {
+        return parse(characteristicUUID.toString(), characteristicUUID.getShortUUID(), raw);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value (byte array) into a previously obtained response
+     * (see {@link #parse(String, byte[])}) overwriting its field values in place. This method is meant for consumers
+     * that process values of a characteristic one at a time, e.g. a thread per device, and want to avoid creating
+     * new objects for each value. Once the response is passed to this method it is owned by the caller:
+     * <ul>
+     * <li>field holders (and values obtained from {@link GattResponse#getHolders()}) of the response are updated
+     * by each call, they must be read or copied before the next call</li>
+     * <li>the response must not be used by other threads while it is being reused</li>
+     * <li>if the value cannot be parsed, the content of the response is undefined until it is successfully reused
+     * again</li>
+     * </ul>
+     * In the steady state, i.e. when the response is reused for the same characteristic UUID (the same string)
+     * and the same set of fields is present in the values, parsing of numeric fields does not allocate any memory.
+     * If the response was obtained for another characteristic, its content is simply replaced.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte array of data received from bluetooth device
+     * @param response a previously obtained response to be reused
+     * @return the provided response populated with parsed fields
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     */
+    public GattResponse parseInto(String characteristicUUID, byte[] raw, GattResponse response)
+            throws CharacteristicFormatException {
+        return parseInto(characteristicUUID, null, raw, response);
+    }
+
+    /**
+     * Performs parsing of a GATT characteristic value (byte array) into a previously obtained response,
+     * see {@link #parseInto(String, byte[], GattResponse)}.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param raw byte array of data received from bluetooth device
+     * @param response a previously obtained response to be reused
+     * @return the provided response populated with parsed fields
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     */
+    public GattResponse parseInto(GattUuid characteristicUUID, byte[] raw, GattResponse response)
+            throws CharacteristicFormatException {
+        return parseInto(characteristicUUID.toString(), characteristicUUID.getShortUUID(), raw, response);
+    }
+
+    /**
+     * Performs parsing of many values of the same GATT characteristic at once, e.g. buffered notifications
+     * of many sensors. Instead of a response per value, the result is a column per numeric field,
+     * see {@link ColumnarBatch}. Values are decoded straight into primitive columns without creating
+     * field holders for each value.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param values byte arrays of data received from bluetooth devices
+     * @return parsed values represented by {@link ColumnarBatch}
+     * @throws CharacteristicFormatException if a characteristic or any of the values cannot be parsed
+     */
+    public ColumnarBatch parseBatch(String characteristicUUID, byte[][] values) throws CharacteristicFormatException {
+        String shortUUID = getShortUUID(characteristicUUID);
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        CharacteristicParser parser = getParser(shortUUID);
+        if (parser instanceof CompiledCharacteristicParser) {
+            return ((CompiledCharacteristicParser) parser).parseBatch(characteristic, values);
+        }
+        ColumnarBatch.Builder builder = new ColumnarBatch.Builder(values.length);
+        for (int i = 0; i < values.length; i++) {
+            builder.add(i, parser.parse(characteristic, values[i]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Performs parsing of many values of the same GATT characteristic concatenated into a single array,
+     * see {@link #parseBatch(String, byte[][])}. Value i spans from {@code offsets[i]} (inclusive)
+     * to {@code offsets[i + 1]} (exclusive), hence there is one more offset than values.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param data concatenated byte arrays of data received from bluetooth devices
+     * @param offsets offsets of values in the array
+     * @return parsed values represented by {@link ColumnarBatch}
+     * @throws CharacteristicFormatException if a characteristic or any of the values cannot be parsed
+     * @throws IndexOutOfBoundsException if offsets are out of bounds of the array or not in ascending order
+     */
+    public ColumnarBatch parseBatch(String characteristicUUID, byte[] data, int[] offsets)
+            throws CharacteristicFormatException {
+        String shortUUID = getShortUUID(characteristicUUID);
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        CharacteristicParser parser = getParser(shortUUID);
+        if (parser instanceof CompiledCharacteristicParser) {
+            return ((CompiledCharacteristicParser) parser).parseBatch(characteristic, data, offsets);
+        }
+        int size = Math.max(offsets.length - 1, 0);
+        ColumnarBatch.Builder builder = new ColumnarBatch.Builder(size);
+        for (int i = 0; i < size; i++) {
+            Objects.checkFromToIndex(offsets[i], offsets[i + 1], data.length);
+            builder.add(i, parser.parse(characteristic, data, offsets[i], offsets[i + 1] - offsets[i]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Performs parsing of many notifications, possibly of different characteristics and devices, in parallel
+     * using the common {@link ForkJoinPool}, see {@link #parseAll(Collection, Executor)}.
+     *
+     * @param notifications notifications received from bluetooth devices
+     * @return parse results in the order of the given notifications
+     */
+    public List<ParsedNotification> parseAll(Collection<Notification> notifications) {
+        return parseAll(notifications, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Performs parsing of many notifications, possibly of different characteristics and devices, in parallel
+     * using a given executor. Each notification is parsed as by {@link #parse(String, byte[])}.
+     * Notifications of the same device are parsed in order by a single task, notifications of different devices
+     * are spread across the executor threads. Small batches are parsed in the calling thread.
+     * A notification which cannot be parsed does not fail the batch, its result holds the exception instead
+     * (see {@link ParsedNotification#getError()}).
+     *
+     * @param notifications notifications received from bluetooth devices
+     * @param executor executor to parse notifications with, e.g. a {@link ForkJoinPool}
+     * @return parse results in the order of the given notifications, hence in order for each device
+     */
+    public List<ParsedNotification> parseAll(Collection<Notification> notifications, Executor executor) {
+        return new NotificationParser(this).parseAll(notifications, executor);
+    }
+
+    /**
+     * Creates a reusable handle for parsing only the given fields of a GATT characteristic, see {@link Projection}.
+     * The handle is bound to the parser of the characteristic at the moment it is created.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param fieldNames names of the fields to be parsed
+     * @return projection of the characteristic
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     * @throws IllegalArgumentException if no fields are given or the characteristic does not have a given field
+     */
+    public Projection projection(String characteristicUUID, String... fieldNames)
+            throws CharacteristicFormatException {
+        return projection(characteristicUUID, getShortUUID(characteristicUUID), fieldNames);
+    }
+
+    /**
+     * Creates a reusable handle for parsing only the given fields of a GATT characteristic, see {@link Projection}.
+     * The handle is bound to the parser of the characteristic at the moment it is created.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param fieldNames names of the fields to be parsed
+     * @return projection of the characteristic
+     * @throws CharacteristicFormatException if a characteristic cannot be parsed
+     * @throws IllegalArgumentException if no fields are given or the characteristic does not have a given field
+     */
+    public Projection projection(GattUuid characteristicUUID, String... fieldNames)
+            throws CharacteristicFormatException {
+        return projection(characteristicUUID.toString(), characteristicUUID.getShortUUID(), fieldNames);
+    }
+
+    private Projection projection(String characteristicUUID, String shortUUID, String... fieldNames) {
+        if (fieldNames.length == 0) {
+            throw new IllegalArgumentException("At least one field must be given");
+        }
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        Set<String> names = new HashSet<>();
+        for (Field field : specificationReader.getFields(characteristic)) {
+            names.add(field.getName());
+        }
+        for (String fieldName : fieldNames) {
+            if (!names.contains(fieldName)) {
+                throw new IllegalArgumentException("Characteristic \"" + characteristic.getName()
+                        + "\" does not have field: " + fieldName);
+            }
+        }
+        CharacteristicParser parser = getParser(shortUUID);
+        ParsePlan plan = parser instanceof CompiledCharacteristicParser
+                ? ((CompiledCharacteristicParser) parser).getPlan(characteristic) : null;
+        return new Projection(characteristicUUID, shortUUID, characteristic,
+                new LinkedHashSet<>(Arrays.asList(fieldNames)), plan, parser);
+    }
+
+    private GattResponse parse(String characteristicUUID, String shortUUID, byte[] raw) {
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        return new GattResponse(parseFields(shortUUID, characteristic, raw), characteristicUUID, shortUUID,
+                characteristic);
+    }
+
+    private GattResponse parse(String characteristicUUID, String shortUUID, byte[] raw, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, raw.length);
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        return new GattResponse(getParser(shortUUID).parse(characteristic, raw, offset, length), characteristicUUID,
+                shortUUID, characteristic);
+    }
+
+    private GattResponse parse(String characteristicUUID, String shortUUID, ByteBuffer raw) {
+        Characteristic characteristic = getCharacteristicForRead(shortUUID);
+        return new GattResponse(getParser(shortUUID).parse(characteristic, raw), characteristicUUID, shortUUID,
+                characteristic);
+    }
+
+    private GattResponse parseInto(String characteristicUUID, String shortUUID, byte[] raw, GattResponse response) {
+        LinkedHashMap<String, FieldHolder> holders = response.getModifiableHolders();
+        Characteristic characteristic = response.getCharacteristic(characteristicUUID);
+        if (characteristic != null) {
+            shortUUID = response.getShortUUID();
+        } else {
+            shortUUID = shortUUID != null ? shortUUID : getShortUUID(characteristicUUID);
+            characteristic = getCharacteristicForRead(shortUUID);
+            holders.clear();
+            response.bind(characteristicUUID, shortUUID, characteristic);
+        }
+        CharacteristicParser parser = getParser(shortUUID);
+        if (parser instanceof CompiledCharacteristicParser) {
+            ((CompiledCharacteristicParser) parser).parseInto(characteristic, raw, holders);
+        } else {
+            LinkedHashMap<String, FieldHolder> result = parser.parse(characteristic, raw);
+            holders.clear();
+            holders.putAll(result);
+        }
+        return response;
     }
 
     /**
@@ -166,20 +476,120 @@ public class BluetoothGattParser {
      * @throws IllegalArgumentException if provided GATT request is not valid and strict parameter is set to true
      */
     public byte[] serialize(GattRequest gattRequest, boolean strict) {
-        if (strict && !validate(gattRequest)) {
-            throw new IllegalArgumentException("GATT request is not valid");
-        }
-        synchronized (customParsers) {
-            String characteristicUUID = getShortUUID(gattRequest.getCharacteristicUUID());
-            if (strict && !isValidForWrite(characteristicUUID)) {
-                throw new CharacteristicFormatException(
-                        "Characteristic is not valid for write: " + characteristicUUID);
-            }
-            if (customParsers.containsKey(characteristicUUID)) {
-                return customParsers.get(characteristicUUID).serialize(gattRequest.getAllFieldHolders());
-            }
-            return defaultParser.serialize(gattRequest.getAllFieldHolders());
-        }
+        return getParserForWrite(gattRequest, strict).serialize(gattRequest.getAllFieldHolders());
+    }
+
+    /**
+     * Performs serialization of a GATT request into a byte buffer, see {@link #serialize(GattRequest)}.
+     * Serialized bytes are written at the current position of the buffer, the position is advanced
+     * by the number of written bytes. The buffer is not changed if the value does not fit into it or cannot be
+     * serialized.
+     *
+     * @param gattRequest a GATT request object
+     * @param out a byte buffer to write serialized fields into
+     * @return number of written bytes
+     * @throws IllegalArgumentException if provided GATT request is not valid
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    public int serialize(GattRequest gattRequest, ByteBuffer out) {
+        return serialize(gattRequest, out, true);
+    }
+
+    /**
+     * Performs serialization of a GATT request into a byte buffer, see {@link #serialize(GattRequest, boolean)}
+     * and {@link #serialize(GattRequest, ByteBuffer)}.
+     *
+     * @param gattRequest a GATT request object
+     * @param out a byte buffer to write serialized fields into
+     * @param strict dictates whether validation has to be performed before serialization
+     *               (see {@link BluetoothGattParser#validate(GattRequest)})
+     * @return number of written bytes
+     * @throws IllegalArgumentException if provided GATT request is not valid and strict parameter is set to true
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    public int serialize(GattRequest gattRequest, ByteBuffer out, boolean strict) {
+        return getParserForWrite(gattRequest, strict).serialize(gattRequest.getAllFieldHolders(), out);
+    }
+
+    /**
+     * Performs serialization of a GATT request, see {@link #serialize(GattRequest)}, truncating the result
+     * to a given maximum payload size instead of the configured one
+     * (see {@link GattParserConfigurationBuilder#withMaxPayloadSize(int)}), e.g. to ATT_MTU - 3 bytes
+     * of an MTU negotiated with a particular device.
+     *
+     * @param gattRequest a GATT request object
+     * @param maxPayloadSize maximum number of bytes to be sent (from 1 to 512)
+     * @return serialized fields as an array of bytes ready to send to a bluetooth device
+     * @throws IllegalArgumentException if provided GATT request is not valid
+     */
+    public byte[] serialize(GattRequest gattRequest, int maxPayloadSize) {
+        return serialize(gattRequest, true, maxPayloadSize);
+    }
+
+    /**
+     * Performs serialization of a GATT request, see {@link #serialize(GattRequest, boolean)}, truncating the result
+     * to a given maximum payload size instead of the configured one.
+     *
+     * @param gattRequest a GATT request object
+     * @param strict dictates whether validation has to be performed before serialization
+     *               (see {@link BluetoothGattParser#validate(GattRequest)})
+     * @param maxPayloadSize maximum number of bytes to be sent (from 1 to 512)
+     * @return serialized fields as an array of bytes ready to send to a bluetooth device
+     * @throws IllegalArgumentException if provided GATT request is not valid and strict parameter is set to true
+     */
+    public byte[] serialize(GattRequest gattRequest, boolean strict, int maxPayloadSize) {
+        return getParserForWrite(gattRequest, strict).serialize(gattRequest.getAllFieldHolders(), maxPayloadSize);
+    }
+
+    /**
+     * Performs serialization of a GATT request into a byte buffer, see {@link #serialize(GattRequest, ByteBuffer)},
+     * truncating the result to a given maximum payload size instead of the configured one.
+     *
+     * @param gattRequest a GATT request object
+     * @param out a byte buffer to write serialized fields into
+     * @param strict dictates whether validation has to be performed before serialization
+     *               (see {@link BluetoothGattParser#validate(GattRequest)})
+     * @param maxPayloadSize maximum number of bytes to be sent (from 1 to 512)
+     * @return number of written bytes
+     * @throws IllegalArgumentException if provided GATT request is not valid and strict parameter is set to true
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    public int serialize(GattRequest gattRequest, ByteBuffer out, boolean strict, int maxPayloadSize) {
+        return getParserForWrite(gattRequest, strict).serialize(gattRequest.getAllFieldHolders(), out,
+                maxPayloadSize);
+    }
+
+    /**
+     * Performs serialization of a GATT request which can be longer than a single write request allows
+     * (up to 512 bytes) and splits the result into segments for a given ATT_MTU (see {@link WriteSegment}).
+     * If the value fits into a single Write Request, then a single segment is returned, otherwise
+     * the value is to be sent as a Long Write, i.e. Prepare Write Requests followed by an Execute Write Request.
+     *
+     * @param gattRequest a GATT request object
+     * @param mtu ATT_MTU negotiated with the device
+     * @return segments to be sent in the given order
+     * @throws IllegalArgumentException if provided GATT request is not valid or ATT_MTU is less than 23
+     */
+    public List<WriteSegment> serializeSegments(GattRequest gattRequest, int mtu) {
+        return serializeSegments(gattRequest, true, mtu);
+    }
+
+    /**
+     * Performs serialization of a GATT request and splits the result into segments for a given ATT_MTU,
+     * see {@link #serializeSegments(GattRequest, int)}.
+     *
+     * @param gattRequest a GATT request object
+     * @param strict dictates whether validation has to be performed before serialization
+     *               (see {@link BluetoothGattParser#validate(GattRequest)})
+     * @param mtu ATT_MTU negotiated with the device
+     * @return segments to be sent in the given order
+     * @throws IllegalArgumentException if provided GATT request is not valid and strict parameter is set to true,
+     * or ATT_MTU is less than 23
+     */
+    public List<WriteSegment> serializeSegments(GattRequest gattRequest, boolean strict, int mtu) {
+        GattParserConfigurationBuilder.checkMtu(mtu);
+        return WriteSegment.split(serialize(gattRequest, strict,
+                GattParserConfigurationBuilder.MAX_ATTRIBUTE_VALUE_SIZE), mtu);
     }
 
     /**
@@ -214,13 +624,23 @@ public class BluetoothGattParser {
 
     /**
      * Registers a new characteristic parser (see {@link CharacteristicParser}) for a given characteristic.
+     * Parsers can be registered at any time, concurrently with parsing. Parse and serialize operations do not
+     * block each other, hence custom parsers must be threadsafe.
      * @param characteristicUUID UUID of a GATT characteristic
      * @param parser a new instance of a characteristic parser
      */
     public void registerParser(String characteristicUUID, CharacteristicParser parser) {
-        synchronized (customParsers) {
-            customParsers.put(getShortUUID(characteristicUUID), parser);
-        }
+        customParsers.put(getShortUUID(characteristicUUID), parser);
+    }
+
+    /**
+     * Registers a new characteristic parser (see {@link CharacteristicParser}) for a given characteristic,
+     * see {@link #registerParser(String, CharacteristicParser)}.
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param parser a new instance of a characteristic parser
+     */
+    public void registerParser(GattUuid characteristicUUID, CharacteristicParser parser) {
+        customParsers.put(characteristicUUID.getShortUUID(), parser);
     }
 
     /**
@@ -237,6 +657,35 @@ public class BluetoothGattParser {
         return characteristic != null && characteristic.isValidForRead();
     }
 
+    /**
+     * Checks whether a given characteristic is valid for read operation
+     * (see {@link BluetoothGattParser#parse(GattUuid, byte[])}).
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @return true if a given characteristic is valid for read operation
+     */
+    public boolean isValidForRead(GattUuid characteristicUUID) {
+        Characteristic characteristic = specificationReader.getCharacteristicByUUID(characteristicUUID.getShortUUID());
+        return characteristic != null && characteristic.isValidForRead();
+    }
+
+    /**
+     * Returns statistics of the layout cache of a given characteristic, see {@link LayoutCacheStatistics}.
+     * Statistics are empty if the characteristic is parsed by a custom parser or its layouts are not cached.
+     *
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @return layout cache statistics
+     */
+    public LayoutCacheStatistics getLayoutCacheStatistics(String characteristicUUID) {
+        String shortUUID = getShortUUID(characteristicUUID);
+        Characteristic characteristic = specificationReader.getCharacteristicByUUID(shortUUID);
+        CharacteristicParser parser = getParser(shortUUID);
+        if (characteristic == null || !(parser instanceof CompiledCharacteristicParser)) {
+            return LayoutCacheStatistics.EMPTY;
+        }
+        return ((CompiledCharacteristicParser) parser).getLayoutCacheStatistics(characteristic);
+    }
+
     /**
      * Checks whether a given characteristic is valid for write operation
      * (see {@link BluetoothGattParser#serialize(GattRequest)}).
@@ -347,24 +796,42 @@ public class BluetoothGattParser {
     }
 
     private String getShortUUID(String uuid) {
-        if (uuid.length() < 8) {
-            return uuid.toUpperCase();
-        }
-        return Long.toHexString(Long.valueOf(uuid.substring(0, 8), 16)).toUpperCase();
+        return GattUuid.toShortUUID(uuid);
     }
 
     private LinkedHashMap<String, FieldHolder> parseFields(String characteristicUUID, byte[] raw) {
-        characteristicUUID = getShortUUID(characteristicUUID);
-        synchronized (customParsers) {
-            if (!isValidForRead(characteristicUUID)) {
-                throw new CharacteristicFormatException("Characteristic is not valid for read: " + characteristicUUID);
-            }
-            Characteristic characteristic = specificationReader.getCharacteristicByUUID(characteristicUUID);
-            if (customParsers.containsKey(characteristicUUID)) {
-                return customParsers.get(characteristicUUID).parse(characteristic, raw);
-            }
-            return defaultParser.parse(characteristic, raw);
+        String shortUUID = getShortUUID(characteristicUUID);
+        return parseFields(shortUUID, getCharacteristicForRead(shortUUID), raw);
+    }
+
+    private LinkedHashMap<String, FieldHolder> parseFields(String shortUUID, Characteristic characteristic,
+                                                           byte[] raw) {
+        return getParser(shortUUID).parse(characteristic, raw);
+    }
+
+    private CharacteristicParser getParser(String shortUUID) {
+        CharacteristicParser parser = customParsers.get(shortUUID);
+        return parser != null ? parser : defaultParser;
+    }
+
+    private CharacteristicParser getParserForWrite(GattRequest gattRequest, boolean strict) {
+        if (strict && !validate(gattRequest)) {
+            throw new IllegalArgumentException("GATT request is not valid");
+        }
+        String characteristicUUID = getShortUUID(gattRequest.getCharacteristicUUID());
+        if (strict && !isValidForWrite(characteristicUUID)) {
+            throw new CharacteristicFormatException(
+                    "Characteristic is not valid for write: " + characteristicUUID);
+        }
+        return getParser(characteristicUUID);
+    }
+
+    private Characteristic getCharacteristicForRead(String shortUUID) {
+        Characteristic characteristic = specificationReader.getCharacteristicByUUID(shortUUID);
+        if (characteristic == null || !characteristic.isValidForRead()) {
+            throw new CharacteristicFormatException("Characteristic is not valid for read: " + shortUUID);
         }
+        return characteristic;
     }
 
 }
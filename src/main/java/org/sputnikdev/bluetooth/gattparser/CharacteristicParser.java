@@ -20,6 +20,8 @@ package org.sputnikdev.bluetooth.gattparser;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 
@@ -45,6 +47,42 @@ public interface CharacteristicParser {
     LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, byte[] raw)
             throws CharacteristicFormatException;
 
+    /**
+     * Read operation. Same as {@link #parse(Characteristic, byte[])}, but the characteristic value is a region
+     * of a bigger array. The default implementation copies the region, implementations may read it in place.
+     *
+     * @param characteristic an instance of characteristic specification object
+     * @param raw byte array containing data received from bluetooth device
+     * @param offset index of the first byte of the characteristic value
+     * @param length length of the characteristic value in bytes
+     * @return a map of parsed characteristic fields
+     * @throws CharacteristicFormatException if provided data cannot be parsed,
+     * see {@link BluetoothGattParser#isValidForRead(String)}
+     */
+    default LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, byte[] raw, int offset,
+                                                     int length) throws CharacteristicFormatException {
+        return parse(characteristic, Arrays.copyOfRange(raw, offset, offset + length));
+    }
+
+    /**
+     * Read operation. Same as {@link #parse(Characteristic, byte[])}, but the characteristic value is
+     * the remaining content of a (heap or direct) byte buffer, i.e. the bytes between its position and limit.
+     * Neither position nor limit of the buffer is changed. The default implementation copies the content,
+     * implementations may read it in place.
+     *
+     * @param characteristic an instance of characteristic specification object
+     * @param raw byte buffer of data received from bluetooth device
+     * @return a map of parsed characteristic fields
+     * @throws CharacteristicFormatException if provided data cannot be parsed,
+     * see {@link BluetoothGattParser#isValidForRead(String)}
+     */
+    default LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, ByteBuffer raw)
+            throws CharacteristicFormatException {
+        byte[] data = new byte[raw.remaining()];
+        raw.duplicate().get(data);
+        return parse(characteristic, data);
+    }
+
     /**
      * Write operation. This method serialises characteristic fields into a raw array of bytes ready to send
      * to a bluetooth device.
@@ -56,4 +94,58 @@ public interface CharacteristicParser {
      */
     byte[] serialize(Collection<FieldHolder> fieldHolders) throws CharacteristicFormatException;
 
+    /**
+     * Write operation. Same as {@link #serialize(Collection)}, but serialized fields are written into a byte buffer
+     * at its current position, the position is advanced by the number of written bytes. The default implementation
+     * copies the result of {@link #serialize(Collection)}, implementations may write into the buffer directly.
+     *
+     * @param fieldHolders a collection of field holders populated with user input
+     * @param out a byte buffer to write serialized fields into
+     * @return number of written bytes
+     * @throws CharacteristicFormatException if provided fields cannot be serialized,
+     * see {@link BluetoothGattParser#isValidForWrite(String)}
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    default int serialize(Collection<FieldHolder> fieldHolders, ByteBuffer out) throws CharacteristicFormatException {
+        byte[] data = serialize(fieldHolders);
+        out.put(data);
+        return data.length;
+    }
+
+    /**
+     * Write operation. Same as {@link #serialize(Collection)}, but the result is truncated to a given maximum
+     * payload size instead of the configured one (see {@link IGattParserConfiguration#getMaxPayloadSize()}).
+     * The default implementation truncates the result of {@link #serialize(Collection)}.
+     *
+     * @param fieldHolders a collection of field holders populated with user input
+     * @param maxPayloadSize maximum number of bytes to be sent, e.g. ATT_MTU - 3
+     * @return a raw array of bytes which is ready to be sent to a bluetooth device
+     * @throws CharacteristicFormatException if provided fields cannot be serialized,
+     * see {@link BluetoothGattParser#isValidForWrite(String)}
+     */
+    default byte[] serialize(Collection<FieldHolder> fieldHolders, int maxPayloadSize)
+            throws CharacteristicFormatException {
+        byte[] data = serialize(fieldHolders);
+        return data.length > maxPayloadSize ? Arrays.copyOf(data, maxPayloadSize) : data;
+    }
+
+    /**
+     * Write operation. Same as {@link #serialize(Collection, ByteBuffer)}, but the result is truncated
+     * to a given maximum payload size instead of the configured one.
+     *
+     * @param fieldHolders a collection of field holders populated with user input
+     * @param out a byte buffer to write serialized fields into
+     * @param maxPayloadSize maximum number of bytes to be sent, e.g. ATT_MTU - 3
+     * @return number of written bytes
+     * @throws CharacteristicFormatException if provided fields cannot be serialized,
+     * see {@link BluetoothGattParser#isValidForWrite(String)}
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    default int serialize(Collection<FieldHolder> fieldHolders, ByteBuffer out, int maxPayloadSize)
+            throws CharacteristicFormatException {
+        byte[] data = serialize(fieldHolders, maxPayloadSize);
+        out.put(data);
+        return data.length;
+    }
+
 }
@@ -0,0 +1,345 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.gattparser.spec.Field;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A result of parsing many values of the same characteristic at once
+ * (see {@link BluetoothGattParser#parseBatch(String, byte[][])}). Instead of a map of field holders per value,
+ * the result is a column per field: integral and boolean fields are stored as raw (unscaled) values
+ * in a {@code long[]} column, floating point fields are stored in a {@code double[]} column. Each column has
+ * a presence bitmap telling which values contain the field, e.g. optional fields which are present only
+ * if a corresponding flag is set. Fields of other types (strings, structures, integers wider than 64 bits)
+ * do not have columns.
+ * <pre>
+ * {@code
+ *
+ * ColumnarBatch batch = parser.parseBatch("2A1C", values);
+ * double[] temperatures = batch.getDoubles("Temperature Measurement Value (Celsius)");
+ * BitSet celsius = batch.getPresence("Temperature Measurement Value (Celsius)");
+ * }
+ * </pre>
+ * Column arrays are returned without copying, they must not be modified.
+ */
+public final class ColumnarBatch {
+
+    enum ColumnType {
+        INTEGRAL, FLOATING;
+
+        /**
+         * Returns the type of a column of a given field or null if the field cannot be stored in a column.
+         */
+        static ColumnType of(Field field) {
+            FieldFormat format = field.getFormat();
+            if (format == null || field.isFlagField()) {
+                return null;
+            }
+            int size = format.getSize();
+            switch (format.getType()) {
+                case BOOLEAN:
+                    return INTEGRAL;
+                case UINT:
+                    return size > 0 && size < 64 ? INTEGRAL : null;
+                case SINT:
+                    return size > 0 && size <= 64 ? INTEGRAL : null;
+                case FLOAT_IEE754:
+                case FLOAT_IEE11073:
+                    return size == 16 || size == 32 || size == 64 ? FLOATING : null;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    static final class Column {
+
+        private final Field field;
+        private final ColumnType type;
+        private final long[] longs;
+        private final double[] doubles;
+        private final long[] presence;
+        // a characteristic can have several fields with the same name (e.g. selected by different flags)
+        // and possibly different scales, other fields than the first one are tracked per value
+        private final List<Field> fields = new ArrayList<>(1);
+        private byte[] variants;
+
+        private Column(Field field, ColumnType type, int size) {
+            this.field = field;
+            this.type = type;
+            fields.add(field);
+            if (type == ColumnType.INTEGRAL) {
+                longs = new long[size];
+                doubles = null;
+            } else {
+                longs = null;
+                doubles = new double[size];
+                Arrays.fill(doubles, Double.NaN);
+            }
+            presence = new long[(size + 63) >>> 6];
+        }
+
+        ColumnType getType() {
+            return type;
+        }
+
+        void setLong(int index, long value, Field field) {
+            longs[index] = value;
+            presence[index >>> 6] |= 1L << index;
+            if (field != this.field || variants != null) {
+                setVariant(index, field);
+            }
+        }
+
+        void setDouble(int index, double value, Field field) {
+            doubles[index] = value;
+            presence[index >>> 6] |= 1L << index;
+            if (field != this.field || variants != null) {
+                setVariant(index, field);
+            }
+        }
+
+        void set(int index, FieldHolder holder) {
+            Object value = holder.getRawValue();
+            if (value instanceof Boolean) {
+                setLong(index, (Boolean) value ? 1 : 0, holder.getField());
+            } else if (value instanceof Number) {
+                if (type == ColumnType.INTEGRAL) {
+                    setLong(index, ((Number) value).longValue(), holder.getField());
+                } else {
+                    setDouble(index, ((Number) value).doubleValue(), holder.getField());
+                }
+            }
+        }
+
+        boolean isPresent(int index) {
+            return (presence[index >>> 6] & 1L << index) != 0;
+        }
+
+        private void setVariant(int index, Field field) {
+            int variant = 0;
+            while (variant < fields.size() && fields.get(variant) != field) {
+                variant++;
+            }
+            if (variant == fields.size()) {
+                fields.add(field);
+            }
+            if (variants == null) {
+                variants = new byte[type == ColumnType.INTEGRAL ? longs.length : doubles.length];
+            }
+            variants[index] = (byte) variant;
+        }
+
+        private Field getField(int index) {
+            return variants != null ? fields.get(variants[index]) : field;
+        }
+
+    }
+
+    /**
+     * Collects columns of a batch.
+     */
+    static final class Builder {
+
+        private final int size;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+
+        Builder(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Returns a column of a given field, the column is created if it does not exist yet.
+         * @param field field specification
+         * @return column or null if the field cannot be stored in a column
+         */
+        Column getColumn(Field field) {
+            Column column = columns.get(field.getName());
+            if (column == null) {
+                ColumnType type = ColumnType.of(field);
+                if (type == null) {
+                    return null;
+                }
+                column = new Column(field, type, size);
+                columns.put(field.getName(), column);
+            }
+            return column;
+        }
+
+        /**
+         * Adds parsed fields of a value.
+         * @param index index of the value in the batch
+         * @param holders parsed fields
+         */
+        void add(int index, Map<String, FieldHolder> holders) {
+            for (FieldHolder holder : holders.values()) {
+                Column column = getColumn(holder.getField());
+                if (column != null && column.type == ColumnType.of(holder.getField())) {
+                    column.set(index, holder);
+                }
+            }
+        }
+
+        ColumnarBatch build() {
+            return new ColumnarBatch(size, columns);
+        }
+
+    }
+
+    private final int size;
+    private final Map<String, Column> columns;
+    private final List<String> fieldNames;
+
+    private ColumnarBatch(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = columns;
+        this.fieldNames = Collections.unmodifiableList(new ArrayList<>(columns.keySet()));
+    }
+
+    /**
+     * Returns number of values in the batch.
+     * @return number of values
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns names of fields which have columns, in the order of the characteristic specification.
+     * @return field names
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Checks whether a field has a column in the batch.
+     * @param fieldName field name
+     * @return true if the field has a column
+     */
+    public boolean contains(String fieldName) {
+        return columns.containsKey(fieldName);
+    }
+
+    /**
+     * Returns field specification of a column. If there are several fields with the same name,
+     * the first one is returned.
+     * @param fieldName field name
+     * @return field specification or null if the field does not have a column
+     */
+    public Field getField(String fieldName) {
+        Column column = columns.get(fieldName);
+        return column != null ? column.field : null;
+    }
+
+    /**
+     * Checks whether a column stores integral values (integral and boolean fields), see {@link #getLongs(String)}.
+     * @param fieldName field name
+     * @return true if the field has a column of integral values
+     */
+    public boolean isIntegral(String fieldName) {
+        Column column = columns.get(fieldName);
+        return column != null && column.type == ColumnType.INTEGRAL;
+    }
+
+    /**
+     * Returns raw (unscaled) values of an integral or boolean field (1 for true, 0 for false).
+     * Values are 0 where the field is not present.
+     * @param fieldName field name
+     * @return column of values or null if the field does not have a column
+     * @throws IllegalArgumentException if the field is a floating point one
+     */
+    public long[] getLongs(String fieldName) {
+        Column column = columns.get(fieldName);
+        if (column == null) {
+            return null;
+        }
+        if (column.type != ColumnType.INTEGRAL) {
+            throw new IllegalArgumentException("Field is not an integral one: " + fieldName);
+        }
+        return column.longs;
+    }
+
+    /**
+     * Returns values of a field scaled by its multiplier, exponents and offset, i.e. the same values
+     * {@link FieldHolder#getDouble()} returns. Values are NaN where the field is not present.
+     * Values of floating point fields which are not scaled are stored in the batch, otherwise values
+     * are computed on each call.
+     * @param fieldName field name
+     * @return column of values or null if the field does not have a column
+     */
+    public double[] getDoubles(String fieldName) {
+        Column column = columns.get(fieldName);
+        if (column == null) {
+            return null;
+        }
+        if (column.type == ColumnType.FLOATING && column.fields.stream().noneMatch(Field::isScaled)) {
+            return column.doubles;
+        }
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (column.isPresent(i)) {
+                Field field = column.getField(i);
+                double value = column.longs != null ? column.longs[i] : column.doubles[i];
+                result[i] = value * field.getScaleFactor() + field.getScaleOffset();
+            } else {
+                result[i] = Double.NaN;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a value of the batch contains a field.
+     * @param fieldName field name
+     * @param index index of the value in the batch
+     * @return true if the field is present in the value
+     */
+    public boolean isPresent(String fieldName, int index) {
+        Column column = columns.get(fieldName);
+        return column != null && column.isPresent(index);
+    }
+
+    /**
+     * Returns presence bitmap of a field: bit i is set if the value i contains the field.
+     * @param fieldName field name
+     * @return a copy of the presence bitmap or null if the field does not have a column
+     */
+    public BitSet getPresence(String fieldName) {
+        Column column = columns.get(fieldName);
+        return column != null ? BitSet.valueOf(column.presence) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarBatch{size=" + size + ", fields=" + fieldNames + "}";
+    }
+
+}
@@ -0,0 +1,286 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.gattparser.num.FloatingPointNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.spec.Field;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decodes many values of a characteristic into columns of a {@link ColumnarBatch}. Steps of a flat
+ * {@link ParsePlan} (see {@link ParsePlan#isFlat()}) are compiled into a flat array of operations per layout,
+ * each operation reads a field straight into a primitive column, so that decoding a value does not create
+ * any objects. Values of plans which are not flat (e.g. with nested characteristics) are parsed by the plan
+ * into field holders which are then copied into columns.
+ * Threadsafe.
+ */
+final class ColumnarDecoder {
+
+    private static final int SKIP = 0;
+    private static final int INTEGRAL = 1;
+    private static final int BOOLEAN = 2;
+    private static final int FLOAT = 3;
+    // a field which is not stored in a column
+    private static final int IGNORE = 4;
+    // a full size field which is not stored in a column, it takes the rest of the value
+    private static final int END = 5;
+    // fails immediately
+    private static final int FAIL = 6;
+    // fails if there are enough bits to read the field (the field is of a format which cannot be decoded)
+    private static final int FAIL_DECODING = 7;
+
+    private static final class Op {
+        private final int kind;
+        private final int size;
+        private final boolean signed;
+        private final int column;
+        private final FloatingPointNumberFormatter formatter;
+        private final Field field;
+        private final String name;
+        private final String failure;
+
+        private Op(int kind, int size, boolean signed, int column, FloatingPointNumberFormatter formatter,
+                   Field field, String failure) {
+            this.kind = kind;
+            this.size = size;
+            this.signed = signed;
+            this.column = column;
+            this.formatter = formatter;
+            this.field = field;
+            this.name = field != null ? field.getName() : null;
+            this.failure = failure;
+        }
+
+        private Op(int kind, int size, Field field, String failure) {
+            this(kind, size, false, -1, null, field, failure);
+        }
+    }
+
+    private final ParsePlan plan;
+    private final IGattParserConfiguration config;
+    private final RealNumberFormatter realNumberFormatter;
+    // fields of columns known in advance, in the order of steps
+    private final List<Field> columnFields = new ArrayList<>();
+    private final Op[] ops;
+    private final AtomicReferenceArray<Op[]> layouts;
+
+    ColumnarDecoder(ParsePlan plan, IGattParserConfiguration config) {
+        this.plan = plan;
+        this.config = config;
+        this.realNumberFormatter = config.getTwosComplementNumberFormatter();
+        List<String> names = new ArrayList<>();
+        for (ParsePlan.Step step : plan.getSteps()) {
+            Field field = step.getField();
+            if (step.getKind() == ParsePlan.StepKind.VALUE && ColumnarBatch.ColumnType.of(field) != null
+                    && !names.contains(field.getName())) {
+                names.add(field.getName());
+                columnFields.add(field);
+            }
+        }
+        if (!plan.isFlat()) {
+            ops = null;
+            layouts = null;
+        } else if (plan.getFlagsSize() > 0) {
+            ops = null;
+            layouts = new AtomicReferenceArray<>(1 << plan.getFlagsSize());
+        } else {
+            ops = compile(plan.getSteps());
+            layouts = null;
+        }
+    }
+
+    /**
+     * Decodes values given as separate arrays.
+     * @param values characteristic values
+     * @return decoded columns
+     * @throws CharacteristicFormatException if a value cannot be parsed
+     */
+    ColumnarBatch decode(byte[][] values) throws CharacteristicFormatException {
+        ColumnarBatch.Builder builder = new ColumnarBatch.Builder(values.length);
+        ColumnarBatch.Column[] columns = getColumns(builder);
+        for (int i = 0; i < values.length; i++) {
+            decode(values[i], 0, values[i].length, i, columns, builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes values concatenated into a single array, value i spans from offsets[i] (inclusive)
+     * to offsets[i + 1] (exclusive).
+     * @param data concatenated characteristic values
+     * @param offsets offsets of values, one more than the number of values
+     * @return decoded columns
+     * @throws CharacteristicFormatException if a value cannot be parsed
+     * @throws IndexOutOfBoundsException if offsets are out of bounds of the array or not in ascending order
+     */
+    ColumnarBatch decode(byte[] data, int[] offsets) throws CharacteristicFormatException {
+        int size = Math.max(offsets.length - 1, 0);
+        ColumnarBatch.Builder builder = new ColumnarBatch.Builder(size);
+        ColumnarBatch.Column[] columns = getColumns(builder);
+        for (int i = 0; i < size; i++) {
+            int base = offsets[i];
+            int length = offsets[i + 1] - base;
+            Objects.checkFromIndexSize(base, length, data.length);
+            decode(data, base, length, i, columns, builder);
+        }
+        return builder.build();
+    }
+
+    private ColumnarBatch.Column[] getColumns(ColumnarBatch.Builder builder) {
+        ColumnarBatch.Column[] columns = new ColumnarBatch.Column[columnFields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = builder.getColumn(columnFields.get(i));
+        }
+        return columns;
+    }
+
+    private void decode(byte[] array, int base, int length, int index, ColumnarBatch.Column[] columns,
+                        ColumnarBatch.Builder builder) {
+        Op[] layout = ops;
+        if (layout == null) {
+            if (layouts == null) {
+                builder.add(index, plan.parse(Arrays.copyOfRange(array, base, base + length)));
+                return;
+            }
+            layout = getLayout(array, base, length);
+        }
+        int bits = length * 8;
+        int start = base * 8;
+        int offset = 0;
+        for (Op op : layout) {
+            if (op.kind == SKIP) {
+                offset += op.size;
+                continue;
+            } else if (op.kind == END) {
+                return;
+            } else if (op.kind == FAIL) {
+                throw new CharacteristicFormatException(op.failure);
+            } else if (offset + op.size > bits) {
+                throw new CharacteristicFormatException(
+                        "Not enough bits to parse field \"" + op.name + "\". "
+                                + "Data length: " + length + " bytes. "
+                                + "Looks like your device does not conform SIG specification.");
+            }
+            int bit = start + offset;
+            switch (op.kind) {
+                case INTEGRAL:
+                    columns[op.column].setLong(index, realNumberFormatter.readBits(array, bit, op.size, op.signed),
+                            op.field);
+                    break;
+                case BOOLEAN:
+                    columns[op.column].setLong(index, array[bit >> 3] >> (bit & 7) & 1, op.field);
+                    break;
+                case FLOAT:
+                    columns[op.column].setDouble(index,
+                            op.formatter.toDouble(realNumberFormatter.readBits(array, bit, op.size, false), op.size),
+                            op.field);
+                    break;
+                case FAIL_DECODING:
+                    throw new CharacteristicFormatException(op.failure);
+                default:
+                    break;
+            }
+            offset += op.size;
+        }
+    }
+
+    private Op[] getLayout(byte[] array, int base, int length) {
+        int flags = plan.readFlags(array, base, length);
+        Op[] layout = layouts.get(flags);
+        if (layout == null) {
+            layout = compile(plan.getLayout(array, base, length));
+            layouts.set(flags, layout);
+        }
+        return layout;
+    }
+
+    private Op[] compile(ParsePlan.Step[] steps) {
+        Op[] result = new Op[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            result[i] = compile(steps[i]);
+        }
+        return result;
+    }
+
+    private Op compile(ParsePlan.Step step) {
+        Field field = step.getField();
+        int size = step.getSize();
+        switch (step.getKind()) {
+            case SKIP:
+                return new Op(SKIP, size, field, null);
+            case FAIL:
+                return new Op(FAIL, size, field, step.getFailure());
+            case VALUE:
+                break;
+            default:
+                throw new IllegalStateException("Unsupported step: " + step.getKind());
+        }
+        String failure = ParsePlanCompiler.getDecodingFailure(field.getFormat());
+        int column = getColumnIndex(field);
+        if (size == FieldFormat.FULL_SIZE) {
+            // the plan does not check bits of full size fields
+            return new Op(failure != null ? FAIL : END, size, field, failure);
+        }
+        if (failure != null) {
+            return new Op(FAIL_DECODING, size, field, failure);
+        }
+        if (column < 0) {
+            return new Op(IGNORE, size, field, null);
+        }
+        FieldType type = field.getFormat().getType();
+        switch (type) {
+            case BOOLEAN:
+                return new Op(BOOLEAN, size, false, column, null, field, null);
+            case FLOAT_IEE754:
+                return new Op(FLOAT, size, false, column, config.getIEEE754FloatingPointNumberFormatter(),
+                        field, null);
+            case FLOAT_IEE11073:
+                return new Op(FLOAT, size, false, column, config.getIEEE11073FloatingPointNumberFormatter(),
+                        field, null);
+            default:
+                return new Op(INTEGRAL, size, type == FieldType.SINT, column, null, field, null);
+        }
+    }
+
+    /**
+     * Returns index of the column of a field or -1 if the field is not stored in a column,
+     * or its column has another type (a field of another format with the same name).
+     */
+    private int getColumnIndex(Field field) {
+        ColumnarBatch.ColumnType type = ColumnarBatch.ColumnType.of(field);
+        for (int i = 0; i < columnFields.size(); i++) {
+            Field columnField = columnFields.get(i);
+            if (columnField.getName().equals(field.getName())) {
+                return type == ColumnarBatch.ColumnType.of(columnField) ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+}
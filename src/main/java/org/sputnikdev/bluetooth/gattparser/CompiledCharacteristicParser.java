@@ -0,0 +1,201 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A characteristic parser which produces exactly the same results as {@link GenericCharacteristicParser},
+ * but instead of interpreting GATT specification of a characteristic on every parse, it compiles
+ * the specification into a {@link ParsePlan} once, on the first parse of the characteristic, and then
+ * reuses it for all subsequent values of the characteristic. Values can be read in place from array regions
+ * and byte buffers, including direct ones. If lazy parsing is configured
+ * (see {@link GattParserConfigurationBuilder#withLazyParsing(boolean)}), field values are decoded when they are
+ * first accessed rather than when a characteristic value is parsed, see {@link ParsePlan#parseLazily(byte[])}.
+ * Serialization is delegated to the generic parser.
+ */
+public class CompiledCharacteristicParser extends GenericCharacteristicParser {
+
+    private final Logger logger = LoggerFactory.getLogger(CompiledCharacteristicParser.class);
+    private final IGattParserConfiguration config;
+    private final ParsePlanCompiler compiler;
+    private volatile CompiledPlans compiledPlans = new CompiledPlans(-1);
+
+    CompiledCharacteristicParser(IGattParserConfiguration config) {
+        super(config);
+        this.config = config;
+        compiler = new ParsePlanCompiler(config);
+    }
+
+    @Override
+    public LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, byte[] raw)
+            throws CharacteristicFormatException {
+        validate(characteristic);
+        if (config.isLazyParsing()) {
+            // lazy field holders keep the value, hence it is copied in case the caller reuses the array
+            return getPlan(characteristic).parseLazily(raw.clone());
+        }
+        return getPlan(characteristic).parse(raw);
+    }
+
+    @Override
+    public LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, byte[] raw, int offset,
+                                                    int length) throws CharacteristicFormatException {
+        validate(characteristic);
+        if (config.isLazyParsing()) {
+            return getPlan(characteristic).parseLazily(Arrays.copyOfRange(raw, offset, offset + length));
+        }
+        if (offset == 0 && length == raw.length) {
+            return getPlan(characteristic).parse(raw);
+        }
+        return getPlan(characteristic).parse(ByteBuffer.wrap(raw, offset, length).slice());
+    }
+
+    @Override
+    public LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, ByteBuffer raw)
+            throws CharacteristicFormatException {
+        validate(characteristic);
+        if (config.isLazyParsing()) {
+            byte[] data = new byte[raw.remaining()];
+            raw.duplicate().get(data);
+            return getPlan(characteristic).parseLazily(data);
+        }
+        return getPlan(characteristic).parse(raw.slice());
+    }
+
+    /**
+     * Parses a characteristic value into field holders of a previous result of parsing the same characteristic,
+     * see {@link ParsePlan#parseInto(byte[], LinkedHashMap)}.
+     * @param characteristic characteristic specification
+     * @param raw characteristic value
+     * @param holders a previous result to be updated
+     * @throws CharacteristicFormatException if the value cannot be parsed
+     */
+    void parseInto(Characteristic characteristic, byte[] raw, LinkedHashMap<String, FieldHolder> holders)
+            throws CharacteristicFormatException {
+        validate(characteristic);
+        getPlan(characteristic).parseInto(raw, holders);
+    }
+
+    /**
+     * Parses many values of a characteristic into columns, see {@link ColumnarDecoder#decode(byte[][])}.
+     * @param characteristic characteristic specification
+     * @param values characteristic values
+     * @return decoded columns
+     * @throws CharacteristicFormatException if a value cannot be parsed
+     */
+    ColumnarBatch parseBatch(Characteristic characteristic, byte[][] values) throws CharacteristicFormatException {
+        validate(characteristic);
+        return getColumnarDecoder(characteristic).decode(values);
+    }
+
+    /**
+     * Parses many values of a characteristic concatenated into a single array into columns,
+     * see {@link ColumnarDecoder#decode(byte[], int[])}.
+     * @param characteristic characteristic specification
+     * @param data concatenated characteristic values
+     * @param offsets offsets of values, one more than the number of values
+     * @return decoded columns
+     * @throws CharacteristicFormatException if a value cannot be parsed
+     */
+    ColumnarBatch parseBatch(Characteristic characteristic, byte[] data, int[] offsets)
+            throws CharacteristicFormatException {
+        validate(characteristic);
+        return getColumnarDecoder(characteristic).decode(data, offsets);
+    }
+
+    /**
+     * Returns statistics of the layout cache of a given characteristic (see {@link LayoutCacheStatistics}).
+     * Statistics are empty if the characteristic has not been parsed yet or its layouts are not cached,
+     * e.g. it does not have a flags field.
+     * @param characteristic characteristic specification
+     * @return layout cache statistics
+     */
+    public LayoutCacheStatistics getLayoutCacheStatistics(Characteristic characteristic) {
+        ParsePlan plan = getCompiledPlans().plans.get(characteristic);
+        if (plan == null || !plan.isCachingLayouts()) {
+            return LayoutCacheStatistics.EMPTY;
+        }
+        return new LayoutCacheStatistics(plan.getLayoutHits(), plan.getLayoutMisses(), plan.getLayoutCount());
+    }
+
+    /**
+     * Returns a compiled parse plan for a given characteristic, the plan is compiled if it has not been yet
+     * or specifications have been changed by loading extensions since it was compiled.
+     * @param characteristic characteristic specification
+     * @return compiled parse plan
+     */
+    ParsePlan getPlan(Characteristic characteristic) {
+        Map<Characteristic, ParsePlan> plans = getCompiledPlans().plans;
+        ParsePlan plan = plans.get(characteristic);
+        return plan != null ? plan : plans.computeIfAbsent(characteristic, compiler::compile);
+    }
+
+    private ColumnarDecoder getColumnarDecoder(Characteristic characteristic) {
+        Map<Characteristic, ColumnarDecoder> columnarDecoders = getCompiledPlans().columnarDecoders;
+        ColumnarDecoder decoder = columnarDecoders.get(characteristic);
+        return decoder != null ? decoder : columnarDecoders.computeIfAbsent(characteristic,
+                key -> new ColumnarDecoder(getPlan(key), config));
+    }
+
+    private CompiledPlans getCompiledPlans() {
+        // plans inline referenced characteristics, hence all of them are dropped if any specification is overridden
+        int generation = config.getGattSpecificationReader().getGeneration();
+        CompiledPlans current = compiledPlans;
+        if (current.generation != generation) {
+            current = new CompiledPlans(generation);
+            compiledPlans = current;
+        }
+        return current;
+    }
+
+    private void validate(Characteristic characteristic) {
+        if (!characteristic.isValidForRead()) {
+            logger.error("Characteristic cannot be parsed: \"{}\".", characteristic.getName());
+            throw new CharacteristicFormatException("Characteristic cannot be parsed: \"" +
+                    characteristic.getName() + "\".");
+        }
+    }
+
+    /**
+     * Plans and columnar decoders compiled from a generation of specifications
+     * (see {@link org.sputnikdev.bluetooth.gattparser.spec.BluetoothGattSpecificationReader#getGeneration()}).
+     */
+    private static final class CompiledPlans {
+
+        private final int generation;
+        private final Map<Characteristic, ParsePlan> plans = new ConcurrentHashMap<>();
+        private final Map<Characteristic, ColumnarDecoder> columnarDecoders = new ConcurrentHashMap<>();
+
+        private CompiledPlans(int generation) {
+            this.generation = generation;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * A decoder of a single characteristic field. Decoders are bound to a field format (and to the number formatters
+ * of a parser configuration) once, when a {@link ParsePlan} is compiled, so that decoding a field does not
+ * require resolving its format again. Decoded values are written into field holders, numeric values are
+ * stored unboxed, so that the same holder can be reused for consecutive values of a characteristic.
+ * Values can be decoded either from byte arrays or directly from (heap or direct) byte buffers.
+ */
+interface FieldDecoder {
+
+    /**
+     * Decodes a field value into a given field holder.
+     * @param raw characteristic value
+     * @param offset bit offset of the field in the characteristic value
+     * @param holder a field holder to write the decoded value into
+     */
+    void decode(byte[] raw, int offset, FieldHolder holder);
+
+    /**
+     * Decodes a field value into a given field holder. The characteristic value spans from the position
+     * to the limit of the buffer, neither position nor limit of the buffer is changed.
+     * @param raw characteristic value
+     * @param offset bit offset of the field relative to the position of the buffer
+     * @param holder a field holder to write the decoded value into
+     */
+    void decode(ByteBuffer raw, int offset, FieldHolder holder);
+
+    /**
+     * Checks whether decoding can be deferred until the value is first accessed when parsing lazily. Decoders
+     * which fail regardless of the value, e.g. of unsupported field formats, must decode when the value is parsed,
+     * so that lazy parsing fails the same way as the eager one does.
+     * @return true if decoding can be deferred, false otherwise
+     */
+    default boolean isDeferrable() {
+        return true;
+    }
+
+}
@@ -36,13 +36,51 @@ import java.util.BitSet;
 /**
  * Bluetooth GATT field holder. Field holder encapsulates notion about field type and field value as well as some
  * helper methods to access field values in a user-friendly manner.
+ * Numeric values produced by the parser are kept unboxed, they can be accessed without any allocation via
+ * {@link #getAsInt()}, {@link #getAsLong()} and {@link #getAsDouble()}; the raw (boxed) value is only created
+ * when it is requested.
+ * <br>A field holder of a lazily parsed characteristic (see
+ * {@link GattParserConfigurationBuilder#withLazyParsing(boolean)}) knows where its value is located in the
+ * characteristic value, but the value is decoded only when it is first accessed (and then it is kept).
+ * Decoding is synchronized, so that such holders can be read by many threads.
  *
  * @author Vlad Kolotov
  */
 public class FieldHolder {
 
+    /**
+     * Describes where the field value is stored and what type the raw value is boxed to.
+     */
+    enum Slot {
+        OBJECT, INTEGER, LONG, FLOAT, DOUBLE
+    }
+
+    // converters are stateless, hence they are shared
+    private static final IntegerConverter INTEGER_CONVERTER = new IntegerConverter(null);
+    private static final LongConverter LONG_CONVERTER = new LongConverter(null);
+    private static final FloatConverter FLOAT_CONVERTER = new FloatConverter(null);
+    private static final BigDecimalConverter BIG_DECIMAL_CONVERTER = new BigDecimalConverter(null);
+    private static final BooleanConverter BOOLEAN_CONVERTER = new BooleanConverter(null);
+    private static final StringConverter STRING_CONVERTER = new StringConverter(null);
+    private static final ArrayConverter BYTES_CONVERTER = new ArrayConverter(byte[].class, new ByteConverter());
+    // converters for setters, they fail if a value cannot be converted
+    private static final BooleanConverter STRICT_BOOLEAN_CONVERTER = new BooleanConverter();
+    private static final IntegerConverter STRICT_INTEGER_CONVERTER = new IntegerConverter();
+    private static final LongConverter STRICT_LONG_CONVERTER = new LongConverter();
+    private static final BigIntegerConverter STRICT_BIG_INTEGER_CONVERTER = new BigIntegerConverter();
+    private static final FloatConverter STRICT_FLOAT_CONVERTER = new FloatConverter();
+    private static final DoubleConverter STRICT_DOUBLE_CONVERTER = new DoubleConverter();
+    private static final StringConverter STRICT_STRING_CONVERTER = new StringConverter();
+
     private final Field field;
     private Object value;
+    private Slot slot = Slot.OBJECT;
+    private long longValue;
+    private double doubleValue;
+    // a pending lazy decoding of the value, cleared when the value is decoded or set
+    private volatile FieldDecoder decoder;
+    private byte[] encoded;
+    private int encodedOffset;
 
     /**
      * Creates a new field holder for a given GATT field and its raw value.
@@ -62,6 +100,30 @@ public class FieldHolder {
         this.field = field;
     }
 
+    /**
+     * Creates a new field holder for a given GATT field and its unboxed integral value.
+     * @param field GATT field specification
+     * @param value field value
+     * @param slot raw value type, either {@link Slot#INTEGER} or {@link Slot#LONG}
+     */
+    FieldHolder(Field field, long value, Slot slot) {
+        this.field = field;
+        this.longValue = value;
+        this.slot = slot;
+    }
+
+    /**
+     * Creates a new field holder for a given GATT field and its unboxed floating point value.
+     * @param field GATT field specification
+     * @param value field value
+     * @param slot raw value type, either {@link Slot#FLOAT} or {@link Slot#DOUBLE}
+     */
+    FieldHolder(Field field, double value, Slot slot) {
+        this.field = field;
+        this.doubleValue = value;
+        this.slot = slot;
+    }
+
     /**
      * Returns the GATT field specification.
      * @return GATT field specification
@@ -102,6 +164,50 @@ public class FieldHolder {
         return field.getFormat().isStruct();
     }
 
+    /**
+     * Returns an int representation of the field (multiplier and offset applied) without boxing it.
+     * @return an int representation of the field
+     * @throws IllegalStateException if the field value is not set or it is not a number
+     */
+    public int getAsInt() {
+        decode();
+        if (slot == Slot.FLOAT || slot == Slot.DOUBLE) {
+            return (int) scale((long) doubleValue);
+        }
+        return (int) scale(slot == Slot.OBJECT ? getNumber().longValue() : longValue);
+    }
+
+    /**
+     * Returns a long representation of the field (multiplier and offset applied) without boxing it.
+     * @return a long representation of the field
+     * @throws IllegalStateException if the field value is not set or it is not a number
+     */
+    public long getAsLong() {
+        decode();
+        if (slot == Slot.FLOAT || slot == Slot.DOUBLE) {
+            return scale((long) doubleValue);
+        }
+        return scale(slot == Slot.OBJECT ? getNumber().longValue() : longValue);
+    }
+
+    /**
+     * Returns a double representation of the field (multiplier and offset applied) without boxing it.
+     * @return a double representation of the field
+     * @throws IllegalStateException if the field value is not set or it is not a number
+     */
+    public double getAsDouble() {
+        decode();
+        double result;
+        switch (slot) {
+            case INTEGER:
+            case LONG: result = longValue; break;
+            case FLOAT:
+            case DOUBLE: result = doubleValue; break;
+            default: result = getNumber().doubleValue();
+        }
+        return result * getMultiplier() + getOffset();
+    }
+
     /**
      * Returns an Integer representation of the field or a default value in case if the field cannot
      * be converted to an Integer.
@@ -109,12 +215,10 @@ public class FieldHolder {
      * @return an Integer representation of the field
      */
     public Integer getInteger(Integer def) {
-        Integer result = new IntegerConverter(null).convert(Integer.class, prepareValue());
+        Integer result = toInteger();
         if (result != null) {
-            double multiplier = getMultiplier();
-            double offset = getOffset();
-            if (multiplier != 1.0 || offset != 0.0) {
-                return (int) Math.round(result * multiplier + offset);
+            if (field.isScaled()) {
+                return (int) Math.round(result * getMultiplier() + getOffset());
             } else {
                 return result;
             }
@@ -130,12 +234,10 @@ public class FieldHolder {
      * @return a Long representation of the field
      */
     public Long getLong(Long def) {
-        Long result = new LongConverter(null).convert(Long.class, prepareValue());
+        Long result = toLong();
         if (result != null) {
-            double multiplier = getMultiplier();
-            double offset = getOffset();
-            if (multiplier != 1.0 || offset != 0.0) {
-                return Math.round(result * multiplier + offset);
+            if (field.isScaled()) {
+                return Math.round(result * getMultiplier() + getOffset());
             } else {
                 return result;
             }
@@ -151,7 +253,7 @@ public class FieldHolder {
      * @return a BigInteger representation of the field
      */
     public BigInteger getBigInteger(BigInteger def) {
-        BigDecimal result = new BigDecimalConverter(null).convert(BigDecimal.class, prepareValue());
+        BigDecimal result = BIG_DECIMAL_CONVERTER.convert(BigDecimal.class, prepareValue());
         return result != null
                 ? result.multiply(BigDecimal.valueOf(getMultiplier()))
                         .add(BigDecimal.valueOf(getOffset())).setScale(0, RoundingMode.HALF_UP).toBigInteger()
@@ -165,7 +267,7 @@ public class FieldHolder {
      * @return a BigDecimal representation of the field
      */
     public BigDecimal getBigDecimal(BigDecimal def) {
-        BigDecimal result = new BigDecimalConverter(null).convert(BigDecimal.class, prepareValue());
+        BigDecimal result = BIG_DECIMAL_CONVERTER.convert(BigDecimal.class, prepareValue());
         return result != null
                 ? result.multiply(BigDecimal.valueOf(getMultiplier()))
                 : def;
@@ -178,7 +280,7 @@ public class FieldHolder {
      * @return a Float representation of the field
      */
     public Float getFloat(Float def) {
-        Float result = new FloatConverter(null).convert(Float.class, prepareValue());
+        Float result = toFloat();
         if (result != null) {
             return (float) (result * getMultiplier() + getOffset());
         } else {
@@ -193,7 +295,7 @@ public class FieldHolder {
      * @return a Double representation of the field
      */
     public Double getDouble(Double def) {
-        Double result = new FloatConverter(null).convert(Double.class, prepareValue());
+        Double result = toDouble();
         if (result != null) {
             return result * getMultiplier() + getOffset();
         } else {
@@ -208,7 +310,8 @@ public class FieldHolder {
      * @return a Boolean representation of the field
      */
     public Boolean getBoolean(Boolean def) {
-        return new BooleanConverter(def).convert(Boolean.class, prepareValue());
+        Boolean result = BOOLEAN_CONVERTER.convert(Boolean.class, prepareValue());
+        return result != null ? result : def;
     }
 
     /**
@@ -218,7 +321,8 @@ public class FieldHolder {
      * @return a String representation of the field
      */
     public String getString(String def) {
-        return new StringConverter(def).convert(String.class, prepareValue());
+        // StringConverter never falls back to its default value, hence the shared one gives the same result
+        return STRING_CONVERTER.convert(String.class, prepareValue());
     }
 
     /**
@@ -228,7 +332,7 @@ public class FieldHolder {
      * @return an array representation of the field
      */
     public byte[] getBytes(byte[] def) {
-        return new ArrayConverter(byte[].class, new ByteConverter()).convert(byte[].class, value);
+        return BYTES_CONVERTER.convert(byte[].class, getRawValue());
     }
 
     /**
@@ -317,6 +421,16 @@ public class FieldHolder {
      * @return field raw value
      */
     public Object getRawValue() {
+        decode();
+        if (value == null) {
+            switch (slot) {
+                case INTEGER: value = (int) longValue; break;
+                case LONG: value = longValue; break;
+                case FLOAT: value = (float) doubleValue; break;
+                case DOUBLE: value = doubleValue; break;
+                default: break;
+            }
+        }
         return value;
     }
 
@@ -325,6 +439,12 @@ public class FieldHolder {
      * @return fields enumeration according to the field value
      */
     public Enumeration getEnumeration() {
+        decode();
+        if ((slot == Slot.INTEGER || slot == Slot.LONG) && !field.isScaled()) {
+            // no need to convert the key to BigInteger
+            return field.findEnumeration(longValue);
+        }
+        Object value = getRawValue();
         BigInteger key;
         if (field.getFormat().isStruct() && value instanceof byte[]) {
             byte[] data = (byte[]) value;
@@ -368,7 +488,7 @@ public class FieldHolder {
      * @param value a new field value
      */
     public void setBoolean(Boolean value) {
-        this.value = value;
+        assign(value);
     }
 
     /**
@@ -377,7 +497,7 @@ public class FieldHolder {
      */
     public void setInteger(Integer value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
             Double maximum = field.getMaximum();
             if (maximum != null && maximum < value) {
@@ -390,9 +510,9 @@ public class FieldHolder {
             double multiplier = getMultiplier();
             double offset = getOffset();
             if (multiplier != 1.0 || offset != 0.0) {
-                this.value = getConverter().convert(null, Math.round((value - offset) / multiplier));
+                assign(getConverter().convert(null, Math.round((value - offset) / multiplier)));
             } else {
-                this.value = getConverter().convert(null, value);
+                assign(getConverter().convert(null, value));
             }
         }
     }
@@ -403,7 +523,7 @@ public class FieldHolder {
      */
     public void setLong(Long value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
             Double maximum = field.getMaximum();
             if (maximum != null && maximum < value) {
@@ -416,9 +536,9 @@ public class FieldHolder {
             double multiplier = getMultiplier();
             double offset = getOffset();
             if (multiplier != 1.0 || offset != 0.0) {
-                this.value = getConverter().convert(null, Math.round((value - offset) / multiplier));
+                assign(getConverter().convert(null, Math.round((value - offset) / multiplier)));
             } else {
-                this.value = getConverter().convert(null, value);
+                assign(getConverter().convert(null, value));
             }
         }
     }
@@ -429,7 +549,7 @@ public class FieldHolder {
      */
     public void setBigInteger(BigInteger value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
             BigDecimal vl = new BigDecimal(value);
             Double maximum = field.getMaximum();
@@ -451,10 +571,10 @@ public class FieldHolder {
             }
 
             if (field.getFormat().isStruct()) {
-                this.value = new TwosComplementNumberFormatter().serialize(adjusted,
-                        adjusted.bitLength(), false).toByteArray();
+                assign(new TwosComplementNumberFormatter().serialize(adjusted,
+                        adjusted.bitLength(), false).toByteArray());
             } else {
-                this.value = getConverter().convert(null, adjusted);
+                assign(getConverter().convert(null, adjusted));
             }
         }
     }
@@ -465,7 +585,7 @@ public class FieldHolder {
      */
     public void setFloat(Float value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
             Double maximum = field.getMaximum();
             if (maximum != null && maximum < value) {
@@ -475,7 +595,7 @@ public class FieldHolder {
             if (minimum != null && minimum > value) {
                 throw new IllegalArgumentException("Value [" + value + "] is less than minimum: " + minimum);
             }
-            this.value = getConverter().convert(null, (value - getOffset()) / getMultiplier());
+            assign(getConverter().convert(null, (value - getOffset()) / getMultiplier()));
         }
     }
 
@@ -485,7 +605,7 @@ public class FieldHolder {
      */
     public void setDouble(Double value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
             Double maximum = field.getMaximum();
             if (maximum != null && maximum < value) {
@@ -495,7 +615,7 @@ public class FieldHolder {
             if (minimum != null && minimum > value) {
                 throw new IllegalArgumentException("Value [" + value + "] is less than minimum: " + minimum);
             }
-            this.value = getConverter().convert(null, (value - getOffset()) / getMultiplier());
+            assign(getConverter().convert(null, (value - getOffset()) / getMultiplier()));
         }
     }
 
@@ -504,7 +624,7 @@ public class FieldHolder {
      * @param value a new field value
      */
     public void setString(String value) {
-        this.value = value;
+        assign(value);
     }
 
     /**
@@ -512,7 +632,7 @@ public class FieldHolder {
      * @param struct a new field value
      */
     public void setStruct(byte[] struct) {
-        value = struct;
+        assign(struct);
     }
 
     /**
@@ -521,18 +641,18 @@ public class FieldHolder {
      */
     public void setEnumeration(Enumeration value) {
         if (value == null) {
-            this.value = null;
+            assign(null);
         } else {
 
             BigInteger key = value.getKey();
 
             if (field.getFormat().isStruct()) {
-                this.value = new TwosComplementNumberFormatter().serialize(key, key.bitLength(), false).toByteArray();
+                assign(new TwosComplementNumberFormatter().serialize(key, key.bitLength(), false).toByteArray());
             } else if (field.getFormat().isString()) {
                 String encoding = field.getFormat().getType() == FieldType.UTF8S ? "UTF-8" : "UTF-16";
                 try {
-                    this.value = new String(new TwosComplementNumberFormatter().serialize(key, key.bitLength(), false)
-                            .toByteArray(), encoding);
+                    assign(new String(new TwosComplementNumberFormatter().serialize(key, key.bitLength(), false)
+                            .toByteArray(), encoding));
                 } catch (UnsupportedEncodingException e) {
                     throw new IllegalStateException(e);
                 }
@@ -547,7 +667,45 @@ public class FieldHolder {
      * @param value a new field value
      */
     public void setRawValue(Object value) {
-        this.value = value;
+        assign(value);
+    }
+
+    /**
+     * Sets the field value to an unboxed integral raw value.
+     * @param value a new field value
+     * @param slot raw value type, either {@link Slot#INTEGER} or {@link Slot#LONG}
+     */
+    void setRawValue(long value, Slot slot) {
+        this.value = null;
+        this.longValue = value;
+        this.slot = slot;
+        cancelDecoding();
+    }
+
+    /**
+     * Sets the field value to an unboxed floating point raw value.
+     * @param value a new field value
+     * @param slot raw value type, either {@link Slot#FLOAT} or {@link Slot#DOUBLE}
+     */
+    void setRawValue(double value, Slot slot) {
+        this.value = null;
+        this.doubleValue = value;
+        this.slot = slot;
+        cancelDecoding();
+    }
+
+    /**
+     * Defers decoding of the field value until the value is first accessed.
+     * @param decoder field decoder
+     * @param raw characteristic value, it must not be changed afterwards
+     * @param offset bit offset of the field in the characteristic value
+     */
+    void setEncodedValue(FieldDecoder decoder, byte[] raw, int offset) {
+        this.value = null;
+        this.slot = Slot.OBJECT;
+        this.encoded = raw;
+        this.encodedOffset = offset;
+        this.decoder = decoder;
     }
 
     /**
@@ -555,7 +713,8 @@ public class FieldHolder {
      * @return true if field value is set, false otherwise
      */
     public boolean isValueSet() {
-        return value != null;
+        decode();
+        return slot != Slot.OBJECT || value != null;
     }
 
     @Override
@@ -563,18 +722,121 @@ public class FieldHolder {
         return getString();
     }
 
-    private double getMultiplier() {
-        double multiplier = 1;
-        if (field.getDecimalExponent() != null) {
-            multiplier = Math.pow(10, field.getDecimalExponent());
+    private void decode() {
+        if (decoder != null) {
+            decodeEncodedValue();
         }
-        if (field.getBinaryExponent() != null) {
-            multiplier *= Math.pow(2, field.getBinaryExponent());
+    }
+
+    private synchronized void decodeEncodedValue() {
+        FieldDecoder pending = decoder;
+        if (pending != null) {
+            // the decoder sets the value, which cancels decoding
+            pending.decode(encoded, encodedOffset, this);
+        }
+    }
+
+    private void cancelDecoding() {
+        if (decoder != null) {
+            // the value is written before the decoder is cleared, hence it is visible to other threads
+            decoder = null;
+            encoded = null;
+        }
+    }
+
+    private long scale(long value) {
+        if (field.isScaled()) {
+            return Math.round(value * getMultiplier() + getOffset());
         }
-        if (field.getMultiplier() != null && field.getMultiplier() != 0) {
-            multiplier *= (double) field.getMultiplier();
+        return value;
+    }
+
+    // direct conversions of numbers produced by the parser, other values are converted by beanutils converters
+
+    private Integer toInteger() {
+        decode();
+        if (slot == Slot.INTEGER) {
+            return (int) longValue;
+        } else if (slot == Slot.LONG) {
+            return toInteger(longValue);
         }
-        return multiplier;
+        Object value = prepareValue();
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof Long) {
+            return toInteger((Long) value);
+        }
+        return INTEGER_CONVERTER.convert(Integer.class, value);
+    }
+
+    private static Integer toInteger(long value) {
+        // out of range values are not converted, the same as IntegerConverter does
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (int) value : null;
+    }
+
+    private Long toLong() {
+        decode();
+        if (slot == Slot.INTEGER || slot == Slot.LONG) {
+            return longValue;
+        }
+        Object value = prepareValue();
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Integer) {
+            return (long) (Integer) value;
+        }
+        return LONG_CONVERTER.convert(Long.class, value);
+    }
+
+    private Float toFloat() {
+        decode();
+        if (slot == Slot.INTEGER || slot == Slot.LONG) {
+            return (float) longValue;
+        } else if (slot == Slot.FLOAT) {
+            return (float) doubleValue;
+        }
+        Object value = prepareValue();
+        if (value instanceof Float) {
+            return (Float) value;
+        }
+        return FLOAT_CONVERTER.convert(Float.class, value);
+    }
+
+    private Double toDouble() {
+        decode();
+        if (slot == Slot.INTEGER || slot == Slot.LONG) {
+            return (double) longValue;
+        } else if (slot == Slot.FLOAT || slot == Slot.DOUBLE) {
+            return doubleValue;
+        }
+        Object value = prepareValue();
+        if (value instanceof Double) {
+            return (Double) value;
+        } else if (value instanceof Float) {
+            return (double) (Float) value;
+        }
+        return FLOAT_CONVERTER.convert(Double.class, value);
+    }
+
+    private Number getNumber() {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        } else if (field.getFormat() != null && field.getFormat().isStruct() && value instanceof byte[]) {
+            return (Number) prepareValue();
+        }
+        throw new IllegalStateException("Field value is not a number: " + field.getName());
+    }
+
+    private void assign(Object value) {
+        this.value = value;
+        this.slot = Slot.OBJECT;
+        cancelDecoding();
+    }
+
+    private double getMultiplier() {
+        return field.getScaleFactor();
     }
 
     /**
@@ -585,40 +847,41 @@ public class FieldHolder {
      * @return offset as double if set, 0 if not present
      */
     private double getOffset() {
-        return (field.getOffset() != null) ? field.getOffset() : 0;
+        return field.getScaleOffset();
     }
 
     private AbstractConverter getConverter() {
         FieldFormat fieldFormat = field.getFormat();
         int size = fieldFormat.getSize();
         switch (fieldFormat.getType()) {
-            case BOOLEAN: return new BooleanConverter();
+            case BOOLEAN: return STRICT_BOOLEAN_CONVERTER;
             case UINT:
                 if (size < 32) {
-                    return new IntegerConverter();
+                    return STRICT_INTEGER_CONVERTER;
                 } else if (size < 64) {
-                    return new LongConverter();
+                    return STRICT_LONG_CONVERTER;
                 } else {
-                    return new BigIntegerConverter();
+                    return STRICT_BIG_INTEGER_CONVERTER;
                 }
             case SINT:
                 if (size <= 32) {
-                    return new IntegerConverter();
+                    return STRICT_INTEGER_CONVERTER;
                 } else if (size <= 64) {
-                    return new LongConverter();
+                    return STRICT_LONG_CONVERTER;
                 } else {
-                    return new BigIntegerConverter();
+                    return STRICT_BIG_INTEGER_CONVERTER;
                 }
             case FLOAT_IEE754:
-            case FLOAT_IEE11073: return size <= 32 ? new FloatConverter() : new DoubleConverter();
+            case FLOAT_IEE11073: return size <= 32 ? STRICT_FLOAT_CONVERTER : STRICT_DOUBLE_CONVERTER;
             case UTF8S:
-            case UTF16S: return new StringConverter();
+            case UTF16S: return STRICT_STRING_CONVERTER;
             default:
                 throw new IllegalStateException("Unsupported field format: " + fieldFormat.getType());
         }
     }
 
     private Object prepareValue() {
+        Object value = getRawValue();
         if (field.getFormat().isStruct() && value instanceof byte[]) {
             byte[] data = (byte[]) value;
             return new TwosComplementNumberFormatter().deserializeBigInteger(BitSet.valueOf(data),
@@ -4,6 +4,7 @@ import org.sputnikdev.bluetooth.gattparser.num.FloatingPointNumberFormatter;
 import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
 import org.sputnikdev.bluetooth.gattparser.spec.BluetoothGattSpecificationReader;
 import org.sputnikdev.bluetooth.gattparser.spec.IFlagUtils;
+import org.sputnikdev.bluetooth.gattparser.spec.SpecificationLoader;
 
 public final class GattParserConfiguration implements IGattParserConfiguration {
   private final RealNumberFormatter twosComplementNumberFormatter;
@@ -11,21 +12,28 @@ public final class GattParserConfiguration implements IGattParserConfiguration {
   private final FloatingPointNumberFormatter IEEE11073FloatingPointNumberFormatter;
   private final BluetoothGattSpecificationReader gattSpecificationReader;
   private final IFlagUtils flagUtils;
+  private final int maxPayloadSize;
+  private final boolean lazyParsing;
   private volatile BluetoothGattParser gattParser;
 
   GattParserConfiguration(
       RealNumberFormatter twosComplementNumberFormatter,
       FloatingPointNumberFormatter IEEE754FloatingPointNumberFormatter,
       FloatingPointNumberFormatter IEEE11073FloatingPointNumberFormatter,
-      IFlagUtils flagUtils
+      IFlagUtils flagUtils,
+      int maxPayloadSize,
+      boolean lazyParsing,
+      SpecificationLoader specificationLoader
   ) {
     this.twosComplementNumberFormatter = twosComplementNumberFormatter;
     this.IEEE754FloatingPointNumberFormatter = IEEE754FloatingPointNumberFormatter;
     this.IEEE11073FloatingPointNumberFormatter = IEEE11073FloatingPointNumberFormatter;
-    this.gattSpecificationReader = new BluetoothGattSpecificationReader();
+    this.gattSpecificationReader = new BluetoothGattSpecificationReader(specificationLoader);
     this.flagUtils = flagUtils;
+    this.maxPayloadSize = maxPayloadSize;
+    this.lazyParsing = lazyParsing;
     // gatt parser is lazily initialized in the getter to avoid leaking 'this' references from constructor
-    // in creation of GenericCharacteristicParser
+    // in creation of CompiledCharacteristicParser
   }
 
   @Override
@@ -39,7 +47,7 @@ public final class GattParserConfiguration implements IGattParserConfiguration {
       synchronized (this) {
         if (gattParser == null) {
           // initialize it
-          gattParser = new BluetoothGattParser(gattSpecificationReader, new GenericCharacteristicParser(this));
+          gattParser = new BluetoothGattParser(gattSpecificationReader, new CompiledCharacteristicParser(this));
         }
       }
     }
@@ -63,4 +71,10 @@ public final class GattParserConfiguration implements IGattParserConfiguration {
 
   @Override
   public IFlagUtils getFlagUtils() { return flagUtils; }
+
+  @Override
+  public int getMaxPayloadSize() { return maxPayloadSize; }
+
+  @Override
+  public boolean isLazyParsing() { return lazyParsing; }
 }
@@ -3,6 +3,8 @@ package org.sputnikdev.bluetooth.gattparser;
 import org.sputnikdev.bluetooth.gattparser.num.*;
 import org.sputnikdev.bluetooth.gattparser.spec.FlagUtils;
 import org.sputnikdev.bluetooth.gattparser.spec.IFlagUtils;
+import org.sputnikdev.bluetooth.gattparser.spec.BundledSpecificationLoader;
+import org.sputnikdev.bluetooth.gattparser.spec.SpecificationLoader;
 
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -15,11 +17,20 @@ public class GattParserConfigurationBuilder {
   public static final Supplier<FloatingPointNumberFormatter> DEFAULT_IEEE_11073_FLOATING_POINT_NUMBER_FORMATTER =
       IEEE11073FloatingPointNumberFormatter::new;
   public static final Supplier<IFlagUtils> DEFAULT_FLAG_UTILS = () -> new FlagUtils();
+  public static final Supplier<SpecificationLoader> DEFAULT_SPECIFICATION_LOADER = BundledSpecificationLoader::new;
+  // the default ATT_MTU is 23 bytes, a write request takes 3 of them (opcode and attribute handle)
+  public static final int DEFAULT_MTU = 23;
+  public static final int DEFAULT_MAX_PAYLOAD_SIZE = DEFAULT_MTU - 3;
+  // maximum length of an attribute value (Core v5, Vol 3, Part F, 3.2.9)
+  public static final int MAX_ATTRIBUTE_VALUE_SIZE = 512;
 
   private RealNumberFormatter twosComplementNumberFormatter;
   private FloatingPointNumberFormatter IEEE754FloatingPointNumberFormatter;
   private FloatingPointNumberFormatter IEEE11073FloatingPointNumberFormatter;
   private IFlagUtils flagUtils;
+  private int maxPayloadSize = DEFAULT_MAX_PAYLOAD_SIZE;
+  private boolean lazyParsing;
+  private SpecificationLoader specificationLoader;
 
   public static GattParserConfigurationBuilder builder() { return new GattParserConfigurationBuilder(); }
 
@@ -30,6 +41,9 @@ public class GattParserConfigurationBuilder {
     IEEE754FloatingPointNumberFormatter = null;
     IEEE11073FloatingPointNumberFormatter = null;
     flagUtils = null;
+    maxPayloadSize = DEFAULT_MAX_PAYLOAD_SIZE;
+    lazyParsing = false;
+    specificationLoader = null;
 
     return this;
   }
@@ -58,12 +72,55 @@ public class GattParserConfigurationBuilder {
     return this;
   }
 
+  public GattParserConfigurationBuilder withMaxPayloadSize(int maxPayloadSize) {
+    this.maxPayloadSize = checkMaxPayloadSize(maxPayloadSize);
+    return this;
+  }
+
+  // sets the maximum payload size to the one of a write request for the negotiated ATT_MTU
+  public GattParserConfigurationBuilder withMtu(int mtu) {
+    this.maxPayloadSize = Math.min(checkMtu(mtu) - 3, MAX_ATTRIBUTE_VALUE_SIZE);
+    return this;
+  }
+
+  // field offsets are still computed when a value is parsed, but field values are decoded on first access
+  public GattParserConfigurationBuilder withLazyParsing(boolean lazyParsing) {
+    this.lazyParsing = lazyParsing;
+    return this;
+  }
+
+  // e.g. StaxSpecificationLoader reads specification files in a single pass, without a DOM and reflection,
+  // by default specifications are read from the precompiled bundle, other files (user extensions) are read with XStream
+  public GattParserConfigurationBuilder withSpecificationLoader(SpecificationLoader loader) {
+    Objects.requireNonNull(loader, "Specification loader, if specified, cannot be null");
+    this.specificationLoader = loader;
+    return this;
+  }
+
   public GattParserConfiguration toConfiguration() {
     return new GattParserConfiguration(
         Objects.requireNonNullElse(twosComplementNumberFormatter, DEFAULT_TWOS_COMPLEMENT_NUMBER_FORMATTER.get()),
         Objects.requireNonNullElse(IEEE754FloatingPointNumberFormatter, DEFAULT_IEEE_754_FLOATING_POINT_NUMBER_FORMATTER.get()),
         Objects.requireNonNullElse(IEEE11073FloatingPointNumberFormatter, DEFAULT_IEEE_11073_FLOATING_POINT_NUMBER_FORMATTER.get()),
-        Objects.requireNonNullElse(flagUtils, DEFAULT_FLAG_UTILS.get())
+        Objects.requireNonNullElse(flagUtils, DEFAULT_FLAG_UTILS.get()),
+        maxPayloadSize,
+        lazyParsing,
+        Objects.requireNonNullElseGet(specificationLoader, DEFAULT_SPECIFICATION_LOADER)
     );
   }
+
+  static int checkMaxPayloadSize(int maxPayloadSize) {
+    if (maxPayloadSize < 1 || maxPayloadSize > MAX_ATTRIBUTE_VALUE_SIZE) {
+      throw new IllegalArgumentException("Maximum payload size must be between 1 and " + MAX_ATTRIBUTE_VALUE_SIZE
+          + ": " + maxPayloadSize);
+    }
+    return maxPayloadSize;
+  }
+
+  static int checkMtu(int mtu) {
+    if (mtu < DEFAULT_MTU) {
+      throw new IllegalArgumentException("ATT_MTU must be at least " + DEFAULT_MTU + ": " + mtu);
+    }
+    return mtu;
+  }
 }
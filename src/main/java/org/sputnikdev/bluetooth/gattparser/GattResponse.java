@@ -20,6 +20,8 @@ package org.sputnikdev.bluetooth.gattparser;
  * #L%
  */
 
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -29,17 +31,30 @@ import java.util.Set;
 /**
  * Represents result of Bluetooth GATT characteristic deserialization. Defines some useful methods for accessing
  * deserialized field values in a user-friendly manner.
+ * <br>A response can be reused for parsing consecutive values of the same characteristic
+ * (see {@link BluetoothGattParser#parseInto(String, byte[], GattResponse)}), in which case its field holders
+ * are updated in place. Such a response belongs to the caller, it is not threadsafe and it must not be
+ * shared with other threads while it is being reused.
  *
  * @author Vlad Kolotov
  */
 public class GattResponse {
 
     private final LinkedHashMap<String, FieldHolder> holders;
+    private String characteristicUUID;
+    private String shortUUID;
+    private Characteristic characteristic;
 
     GattResponse(LinkedHashMap<String, FieldHolder> holders) {
         this.holders = holders;
     }
 
+    GattResponse(LinkedHashMap<String, FieldHolder> holders, String characteristicUUID, String shortUUID,
+                 Characteristic characteristic) {
+        this.holders = holders;
+        bind(characteristicUUID, shortUUID, characteristic);
+    }
+
     /**
      * Returns field holders in this response as a Map (field name -&gt; field holder).
      * @return field holders
@@ -90,4 +105,26 @@ public class GattResponse {
         return holders.containsKey(fieldName);
     }
 
+    LinkedHashMap<String, FieldHolder> getModifiableHolders() {
+        return holders;
+    }
+
+    /**
+     * Returns the characteristic this response was parsed for if it was parsed for exactly the same
+     * (not normalized) UUID, null otherwise.
+     */
+    Characteristic getCharacteristic(String characteristicUUID) {
+        return characteristicUUID.equals(this.characteristicUUID) ? characteristic : null;
+    }
+
+    String getShortUUID() {
+        return shortUUID;
+    }
+
+    void bind(String characteristicUUID, String shortUUID, Characteristic characteristic) {
+        this.characteristicUUID = characteristicUUID;
+        this.shortUUID = shortUUID;
+        this.characteristic = characteristic;
+    }
+
 }
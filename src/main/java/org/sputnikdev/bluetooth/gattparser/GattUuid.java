@@ -0,0 +1,170 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable 128-bit UUID of a GATT service or characteristic. Specifications are registered by short UUIDs,
+ * i.e. by the most significant 32 bits of a UUID (16-bit UUIDs of SIG services and characteristics are expanded
+ * with the Bluetooth base UUID: 0000xxxx-0000-1000-8000-00805f9b34fb). The short UUID is computed once,
+ * when a GattUuid is created, so that a GattUuid can be used to look up specifications and parsers without
+ * any string manipulations. Applications are expected to create GattUuids once, e.g. when a device is connected,
+ * and reuse them for all values received from the device.
+ * <pre>
+ * {@code
+ *
+ * GattUuid batteryLevel = GattUuid.of(0x2A19);
+ * parser.parse(batteryLevel, rawData).get("Level").getInteger();
+ * }
+ * </pre>
+ */
+public final class GattUuid {
+
+    private static final long BASE_UUID_MOST_SIGNIFICANT_BITS = 0x0000000000001000L;
+    private static final long BASE_UUID_LEAST_SIGNIFICANT_BITS = 0x800000805F9B34FBL;
+    private static final int SHORT_UUID_CACHE_SIZE = 1024;
+    private static final Map<String, String> SHORT_UUID_CACHE = new ConcurrentHashMap<>();
+
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+    private final String shortUUID;
+    private final String uuid;
+
+    private GattUuid(long mostSignificantBits, long leastSignificantBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.shortUUID = Long.toHexString(mostSignificantBits >>> 32).toUpperCase();
+        this.uuid = new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+
+    /**
+     * Creates a GattUuid from a 16-bit or 32-bit UUID expanding it with the Bluetooth base UUID.
+     * @param shortUUID a 16-bit or 32-bit UUID, e.g. 0x2A19
+     * @return GATT UUID
+     */
+    public static GattUuid of(int shortUUID) {
+        return new GattUuid((shortUUID & 0xFFFFFFFFL) << 32 | BASE_UUID_MOST_SIGNIFICANT_BITS,
+                BASE_UUID_LEAST_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * Creates a GattUuid from a 128-bit UUID.
+     * @param uuid a 128-bit UUID
+     * @return GATT UUID
+     */
+    public static GattUuid of(UUID uuid) {
+        return new GattUuid(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Creates a GattUuid from its string representation, which is either a 16-bit or 32-bit UUID in hex
+     * (e.g. "2A19"), or a 128-bit UUID (e.g. "00002a19-0000-1000-8000-00805f9b34fb").
+     * @param uuid string representation of a UUID
+     * @return GATT UUID
+     * @throws IllegalArgumentException if the string is not a valid UUID
+     */
+    public static GattUuid fromString(String uuid) {
+        if (uuid.length() <= 8) {
+            return of(Integer.parseUnsignedInt(uuid, 16));
+        }
+        return of(UUID.fromString(uuid));
+    }
+
+    /**
+     * Returns the short UUID (the most significant 32 bits in upper case hex without leading zeros, e.g. "2A19")
+     * which GATT specifications and custom parsers are registered by.
+     * @return short UUID
+     */
+    public String getShortUUID() {
+        return shortUUID;
+    }
+
+    /**
+     * Returns the most significant 32 bits of the UUID, i.e. the value of a 16-bit or 32-bit UUID.
+     * @return short UUID value
+     */
+    public int getShortValue() {
+        return (int) (mostSignificantBits >>> 32);
+    }
+
+    /**
+     * Converts the GattUuid to a 128-bit {@link UUID}.
+     * @return 128-bit UUID
+     */
+    public UUID toUUID() {
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Converts a UUID string, either a short or a 128-bit one, to the short UUID (see {@link #getShortUUID()}).
+     * Results are cached, so that converting UUIDs of the same characteristics over and over again does not create
+     * any strings. The cache is cleared when it reaches its limit.
+     * @param uuid a short or 128-bit UUID string
+     * @return short UUID
+     */
+    static String toShortUUID(String uuid) {
+        String shortUUID = SHORT_UUID_CACHE.get(uuid);
+        if (shortUUID == null) {
+            if (uuid.length() < 8) {
+                shortUUID = uuid.toUpperCase();
+            } else {
+                shortUUID = Long.toHexString(Long.valueOf(uuid.substring(0, 8), 16)).toUpperCase();
+            }
+            if (SHORT_UUID_CACHE.size() >= SHORT_UUID_CACHE_SIZE) {
+                // UUIDs in use are cached again, whereas UUIDs seen once (e.g. of scanned devices) are dropped
+                SHORT_UUID_CACHE.clear();
+            }
+            SHORT_UUID_CACHE.put(uuid, shortUUID);
+        }
+        return shortUUID;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GattUuid that = (GattUuid) o;
+        return mostSignificantBits == that.mostSignificantBits && leastSignificantBits == that.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = mostSignificantBits ^ leastSignificantBits;
+        return (int) (hash >> 32) ^ (int) hash;
+    }
+
+    /**
+     * Returns the 128-bit string representation of the UUID, e.g. "00002a19-0000-1000-8000-00805f9b34fb".
+     * @return 128-bit UUID string
+     */
+    @Override
+    public String toString() {
+        return uuid;
+    }
+
+}
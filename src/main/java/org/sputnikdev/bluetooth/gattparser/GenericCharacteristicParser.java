@@ -28,6 +28,7 @@ import org.sputnikdev.bluetooth.gattparser.spec.*;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -59,13 +60,29 @@ public class GenericCharacteristicParser implements CharacteristicParser {
 
         int offset = 0;
         List<Field> fields = characteristic.getValue().getFields();
-        Set<String> requires = config.getFlagUtils().getReadFlags(fields, raw, config.getTwosComplementNumberFormatter());
-        requires.add("Mandatory");
+        boolean masked = characteristic.hasRequirementMasks();
+        Set<String> requires = null;
+        long requiresMask = 0;
+        if (masked) {
+            requiresMask = config.getFlagUtils().getReadFlagsMask(fields, raw,
+                    config.getTwosComplementNumberFormatter());
+        } else {
+            requires = config.getFlagUtils().getReadFlags(fields, raw, config.getTwosComplementNumberFormatter());
+            requires.add("Mandatory");
+        }
         for (Field field : fields) {
-            List<String> requirements = field.getRequirements();
-            if (requirements != null && !requirements.isEmpty() && !requires.containsAll(requirements)) {
-                // skipping field as per requirement in the Flags field
-                continue;
+            if (masked) {
+                long requirementMask = field.getRequirementMask();
+                if ((requiresMask & requirementMask) != requirementMask) {
+                    // skipping field as per requirement in the Flags field
+                    continue;
+                }
+            } else {
+                List<String> requirements = field.getRequirements();
+                if (requirements != null && !requirements.isEmpty() && !requires.containsAll(requirements)) {
+                    // skipping field as per requirement in the Flags field
+                    continue;
+                }
             }
             if (field.getReference() != null) {
                 LinkedHashMap<String, FieldHolder> subCharacteristic =
@@ -99,24 +116,46 @@ public class GenericCharacteristicParser implements CharacteristicParser {
 
     @Override
     public byte[] serialize(Collection<FieldHolder> fieldHolders) throws CharacteristicFormatException {
-        BitSet bitSet = new BitSet();
-        int offset = 0;
+        return serialize(fieldHolders, config.getMaxPayloadSize());
+    }
+
+    @Override
+    public int serialize(Collection<FieldHolder> fieldHolders, ByteBuffer out) throws CharacteristicFormatException {
+        return serialize(fieldHolders, out, config.getMaxPayloadSize());
+    }
+
+    @Override
+    public byte[] serialize(Collection<FieldHolder> fieldHolders, int maxPayloadSize)
+            throws CharacteristicFormatException {
+        GattParserConfigurationBuilder.checkMaxPayloadSize(maxPayloadSize);
+        byte[] data = new byte[maxPayloadSize];
+        int length = serialize(fieldHolders, new BitWriter(data, 0, data.length), maxPayloadSize);
+        return length < data.length ? Arrays.copyOf(data, length) : data;
+    }
+
+    @Override
+    public int serialize(Collection<FieldHolder> fieldHolders, ByteBuffer out, int maxPayloadSize)
+            throws CharacteristicFormatException {
+        // the buffer is not changed if the value does not fit into it or a field cannot be serialized
+        byte[] data = serialize(fieldHolders, maxPayloadSize);
+        out.put(data);
+        return data.length;
+    }
 
+    /**
+     * Serializes fields with a bit writer.
+     * @return number of bytes to be sent: written bytes excluding trailing zeros (but at least one byte)
+     * up to the maximum payload size
+     */
+    private int serialize(Collection<FieldHolder> fieldHolders, BitWriter writer, int maxPayloadSize) {
         for (FieldHolder holder : fieldHolders) {
             if (holder.isValueSet()) {
-                int size = holder.getField().getFormat().getSize();
-                BitSet serialized = serialize(holder);
-                if (size == FieldFormat.FULL_SIZE) {
-                    size = serialized.length();
-                }
-                concat(bitSet, serialized, offset, size);
-                offset += size;
+                serialize(holder, writer);
             }
         }
-        // BitSet does not keep 0, fields could be set all to 0, resulting bitSet to be of 0 length,
-        // however data array must not be empty, hence forcing to return an array with first byte of 0 value
-        byte[] data = bitSet.isEmpty() ? new byte[] {0} : bitSet.toByteArray();
-        return data.length > 20 ? Arrays.copyOf(bitSet.toByteArray(), 20) : data;
+        // fields could be set all to 0, however data array must not be empty,
+        // hence forcing to return an array with first byte of 0 value
+        return writer.finish(maxPayloadSize);
     }
 
     Object parse(Field field, byte[] raw, int offset) {
@@ -138,40 +177,55 @@ public class GenericCharacteristicParser implements CharacteristicParser {
         }
     }
 
-    BitSet serialize(boolean value) {
-        BitSet bitSet = new BitSet();
-        if (value) {
-            bitSet.set(0);
-        }
-        return bitSet;
-    }
-
-    void concat(BitSet target, BitSet source, int offset, int size) {
-        for (int i = 0; i < size; i++) {
-            if (source.get(i)) {
-                target.set(offset + i);
-            }
-        }
+    long serialize(boolean value) {
+        return value ? 1 : 0;
     }
 
-    private BitSet serialize(FieldHolder holder) {
+    private void serialize(FieldHolder holder, BitWriter writer) {
         FieldFormat fieldFormat = holder.getField().getFormat();
+        int size = fieldFormat.getSize();
         switch (fieldFormat.getType()) {
-            case BOOLEAN: return serialize(holder.getBoolean(null));
+            case BOOLEAN:
+                writer.write(serialize(holder.getBoolean(null)), size == FieldFormat.FULL_SIZE ? 1 : size);
+                break;
             case UINT:
-            case SINT: return serializeReal(holder);
-            case FLOAT_IEE754: return serializeFloat(
-                    config.getIEEE754FloatingPointNumberFormatter(), holder);
-            case FLOAT_IEE11073: return serializeFloat(
-                    config.getIEEE11073FloatingPointNumberFormatter(), holder);
-            case UTF8S: return serializeString(holder, "UTF-8");
-            case UTF16S: return serializeString(holder, "UTF-16");
-            case STRUCT: return BitSet.valueOf((byte[]) holder.getRawValue());
+            case SINT:
+                serializeReal(holder, writer);
+                break;
+            case FLOAT_IEE754:
+                writer.write(serializeFloat(config.getIEEE754FloatingPointNumberFormatter(), holder), size);
+                break;
+            case FLOAT_IEE11073:
+                writer.write(serializeFloat(config.getIEEE11073FloatingPointNumberFormatter(), holder), size);
+                break;
+            case UTF8S:
+                writeBytes(getBytes(holder, "UTF-8"), size, writer);
+                break;
+            case UTF16S:
+                writeBytes(getBytes(holder, "UTF-16"), size, writer);
+                break;
+            case STRUCT:
+                writeBytes((byte[]) holder.getRawValue(), size, writer);
+                break;
             default:
                 throw new IllegalStateException("Unsupported field format: " + fieldFormat.getType());
         }
     }
 
+    private static void writeBytes(byte[] bytes, int size, BitWriter writer) {
+        if (size == FieldFormat.FULL_SIZE) {
+            // trailing zero bits are not written, the same as BitSet.valueOf(bytes).length() does
+            size = 0;
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                if (bytes[i] != 0) {
+                    size = i * 8 + Integer.SIZE - Integer.numberOfLeadingZeros(bytes[i] & 0xFF);
+                    break;
+                }
+            }
+        }
+        writer.write(bytes, size);
+    }
+
     private Boolean parseBoolean(byte[] raw, int offset) {
         return BitSet.valueOf(raw).get(offset);
     }
@@ -209,28 +263,28 @@ public class GenericCharacteristicParser implements CharacteristicParser {
         return size;
     }
 
-    private BitSet serializeReal(FieldHolder holder) {
+    private void serializeReal(FieldHolder holder, BitWriter writer) {
         RealNumberFormatter realNumberFormatter = config.getTwosComplementNumberFormatter();
         int size = holder.getField().getFormat().getSize();
         boolean signed = holder.getField().getFormat().getType() == FieldType.SINT;
         if ((signed && size <= 32) || (!signed && size < 32)) {
-            return realNumberFormatter.serialize((Integer) holder.getRawValue(), size, signed);
+            writer.write(realNumberFormatter.toBits((Integer) holder.getRawValue(), size, signed), size);
         } else if ((signed && size <= 64) || (!signed && size < 64)) {
-            return realNumberFormatter.serialize((Long) holder.getRawValue(), size, signed);
+            writer.write(realNumberFormatter.toBits((Long) holder.getRawValue(), size, signed), size);
         } else {
-            return realNumberFormatter.serialize((BigInteger) holder.getRawValue(), size, signed);
+            writer.write(realNumberFormatter.serialize((BigInteger) holder.getRawValue(), size, signed), size);
         }
     }
 
     private Object deserializeReal(byte[] raw, int offset, int size, boolean signed) {
         RealNumberFormatter realNumberFormatter = config.getTwosComplementNumberFormatter();
-        int toIndex = offset + size;
         if ((signed && size <= 32) || (!signed && size < 32)) {
-            return realNumberFormatter.deserializeInteger(BitSet.valueOf(raw).get(offset, toIndex), size, signed);
+            return (int) realNumberFormatter.readBits(raw, offset, size, signed);
         } else if ((signed && size <= 64) || (!signed && size < 64)) {
-            return realNumberFormatter.deserializeLong(BitSet.valueOf(raw).get(offset, toIndex), size, signed);
+            return realNumberFormatter.readBits(raw, offset, size, signed);
         } else {
-            return realNumberFormatter.deserializeBigInteger(BitSet.valueOf(raw).get(offset, toIndex), size, signed);
+            return realNumberFormatter.deserializeBigInteger(BitSet.valueOf(raw).get(offset, offset + size),
+                    size, signed);
         }
     }
 
@@ -268,9 +322,9 @@ public class GenericCharacteristicParser implements CharacteristicParser {
         }
     }
 
-    private BitSet serializeString(FieldHolder holder, String encoding) {
+    private byte[] getBytes(FieldHolder holder, String encoding) {
         try {
-            return BitSet.valueOf(holder.getString(null).getBytes(encoding));
+            return holder.getString(null).getBytes(encoding);
         } catch (UnsupportedEncodingException e) {
             throw new IllegalStateException(e);
         }
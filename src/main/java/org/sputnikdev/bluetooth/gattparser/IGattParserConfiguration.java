@@ -12,4 +12,12 @@ public interface IGattParserConfiguration {
   FloatingPointNumberFormatter getIEEE754FloatingPointNumberFormatter();
   FloatingPointNumberFormatter getIEEE11073FloatingPointNumberFormatter();
   IFlagUtils getFlagUtils();
+  // maximum number of bytes a serialized characteristic value is truncated to (ATT_MTU - 3)
+  default int getMaxPayloadSize() {
+    return GattParserConfigurationBuilder.DEFAULT_MAX_PAYLOAD_SIZE;
+  }
+  // whether field values of parsed characteristics are decoded only when they are first accessed
+  default boolean isLazyParsing() {
+    return false;
+  }
 }
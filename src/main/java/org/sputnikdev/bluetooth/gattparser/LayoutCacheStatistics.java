@@ -0,0 +1,73 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A snapshot of statistics of the layout cache of a characteristic. Characteristics which start with a flags field
+ * are parsed according to a layout (a list of fields selected by the flags), layouts are cached by flags values,
+ * so that values with the same flags are parsed without evaluating field requirements.
+ * Normally a device sends only a few flags combinations, hence the number of misses is expected to stay
+ * as low as the number of cached layouts.
+ */
+public final class LayoutCacheStatistics {
+
+    static final LayoutCacheStatistics EMPTY = new LayoutCacheStatistics(0, 0, 0);
+
+    private final long hits;
+    private final long misses;
+    private final int layouts;
+
+    LayoutCacheStatistics(long hits, long misses, int layouts) {
+        this.hits = hits;
+        this.misses = misses;
+        this.layouts = layouts;
+    }
+
+    /**
+     * Returns number of parses which used a cached layout.
+     * @return number of cache hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns number of parses which had to select a layout by flags.
+     * @return number of cache misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns number of cached layouts, i.e. number of distinct flags values seen so far.
+     * @return number of cached layouts
+     */
+    public int getLayouts() {
+        return layouts;
+    }
+
+    @Override
+    public String toString() {
+        return "LayoutCacheStatistics{hits=" + hits + ", misses=" + misses + ", layouts=" + layouts + "}";
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable envelope of a characteristic value received from a device (e.g. a GATT notification or indication),
+ * which carries the value together with the device it was received from, the characteristic UUID and
+ * the time it was received at. Notifications are parsed in bulk by
+ * {@link BluetoothGattParser#parseAll(java.util.Collection)}, which keeps values of the same device in order.
+ * <pre>
+ * {@code
+ *
+ * List<Notification> received = ...;
+ * received.add(new Notification(deviceAddress, "2A37", value, System.currentTimeMillis()));
+ * ...
+ * for (ParsedNotification parsed : parser.parseAll(received)) {
+ *     ...
+ * }
+ * }
+ * </pre>
+ */
+public final class Notification {
+
+    private final String deviceId;
+    private final String characteristicUUID;
+    private final byte[] value;
+    private final long timestamp;
+
+    /**
+     * Creates a notification.
+     * @param deviceId an identifier of the device which the value is received from, e.g. its address,
+     *                 notifications of the same device are parsed in order
+     * @param characteristicUUID UUID of a GATT characteristic
+     * @param value characteristic value, the array is not copied and must not be changed
+     * @param timestamp time when the value was received, e.g. in milliseconds since the epoch
+     */
+    public Notification(String deviceId, String characteristicUUID, byte[] value, long timestamp) {
+        this.deviceId = Objects.requireNonNull(deviceId, "deviceId");
+        this.characteristicUUID = Objects.requireNonNull(characteristicUUID, "characteristicUUID");
+        this.value = Objects.requireNonNull(value, "value");
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the identifier of the device which the value is received from.
+     * @return device identifier
+     */
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Returns UUID of the characteristic.
+     * @return characteristic UUID
+     */
+    public String getCharacteristicUUID() {
+        return characteristicUUID;
+    }
+
+    /**
+     * Returns the characteristic value (not a copy).
+     * @return characteristic value
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the time when the value was received.
+     * @return receive timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "Notification{deviceId=" + deviceId + ", characteristicUUID=" + characteristicUUID
+                + ", value=" + Arrays.toString(value) + ", timestamp=" + timestamp + "}";
+    }
+
+}
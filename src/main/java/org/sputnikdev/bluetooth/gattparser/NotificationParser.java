@@ -0,0 +1,133 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parses many notifications in parallel. Notifications are split into partitions by their device identifiers,
+ * so that all notifications of a device belong to the same partition. Each partition is parsed by a single task,
+ * in the order the notifications are given, hence notifications of a device are never parsed out of order
+ * or concurrently. There are a few partitions per thread, so that devices sending more notifications than
+ * others do not leave the rest of the threads idle. Results are returned in the order of the given notifications.
+ */
+final class NotificationParser {
+
+    // splitting a batch into tasks smaller than that costs more than it saves
+    static final int MIN_TASK_SIZE = 64;
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final BluetoothGattParser parser;
+
+    NotificationParser(BluetoothGattParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses notifications using a given executor.
+     * @param notifications notifications to parse
+     * @param executor executor which the partitions are parsed by
+     * @return results in the order of the given notifications
+     */
+    List<ParsedNotification> parseAll(Collection<Notification> notifications, Executor executor) {
+        Notification[] batch = notifications.toArray(new Notification[0]);
+        ParsedNotification[] results = new ParsedNotification[batch.length];
+        int partitions = Math.min(getParallelism(executor) * PARTITIONS_PER_THREAD, batch.length / MIN_TASK_SIZE);
+        if (partitions <= 1) {
+            for (int i = 0; i < batch.length; i++) {
+                results[i] = parse(batch[i]);
+            }
+            return Collections.unmodifiableList(Arrays.asList(results));
+        }
+
+        // a stable counting sort of notification indexes by partitions, it keeps order of notifications of a device
+        int[] partitionOf = new int[batch.length];
+        int[] starts = new int[partitions + 1];
+        for (int i = 0; i < batch.length; i++) {
+            partitionOf[i] = getPartition(batch[i].getDeviceId(), partitions);
+            starts[partitionOf[i] + 1]++;
+        }
+        for (int i = 0; i < partitions; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] order = new int[batch.length];
+        int[] next = Arrays.copyOf(starts, partitions);
+        for (int i = 0; i < batch.length; i++) {
+            order[next[partitionOf[i]]++] = i;
+        }
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[partitions];
+        for (int i = 0; i < partitions; i++) {
+            int from = starts[i];
+            int to = starts[i + 1];
+            tasks[i] = from == to ? CompletableFuture.completedFuture(null) : CompletableFuture.runAsync(() -> {
+                for (int k = from; k < to; k++) {
+                    results[order[k]] = parse(batch[order[k]]);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException ex) {
+            // parse errors are returned as results, so this is something unexpected, e.g. an error
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Parses a single notification.
+     * @param notification notification to parse
+     * @return parsed value or the exception which the value could not be parsed with
+     */
+    ParsedNotification parse(Notification notification) {
+        try {
+            return new ParsedNotification(notification,
+                    parser.parse(notification.getCharacteristicUUID(), notification.getValue()), null);
+        } catch (RuntimeException ex) {
+            return new ParsedNotification(notification, null, ex);
+        }
+    }
+
+    private static int getPartition(String deviceId, int partitions) {
+        int hash = deviceId.hashCode() * 0x9E3779B9;
+        return (int) ((hash & 0xFFFFFFFFL) * partitions >>> 32);
+    }
+
+    private static int getParallelism(Executor executor) {
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+}
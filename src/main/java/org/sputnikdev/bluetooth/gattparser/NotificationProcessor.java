@@ -0,0 +1,153 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A {@link Flow.Processor} stage which parses a stream of notifications received from devices.
+ * Each notification is parsed as by {@link BluetoothGattParser#parse(String, byte[])} and published
+ * as a {@link ParsedNotification}, a notification which cannot be parsed is published as a failed result
+ * (see {@link ParsedNotification#getError()}) and the stream carries on. Results are published in the order
+ * the notifications are received.
+ * <br>Memory use is bounded regardless of how fast notifications arrive: the processor requests at most
+ * a buffer of notifications from upstream in advance, each subscriber has its own bounded buffer
+ * (see {@link SubmissionPublisher}), and while a buffer of any subscriber is full the processor stops
+ * requesting notifications, so that the upstream publisher is slowed down to the pace of the slowest subscriber
+ * instead of notifications being dropped. Nothing is requested from upstream until the first subscriber
+ * subscribes to the processor. Results are delivered to subscribers by a given executor.
+ * <pre>
+ * {@code
+ *
+ * SubmissionPublisher<Notification> notifications = new SubmissionPublisher<>();
+ * NotificationProcessor processor = new NotificationProcessor(parser, executor, 256);
+ * notifications.subscribe(processor);
+ * processor.subscribe(subscriber);
+ * ...
+ * notifications.submit(new Notification(deviceAddress, "2A37", value, System.currentTimeMillis()));
+ * }
+ * </pre>
+ */
+public class NotificationProcessor extends SubmissionPublisher<ParsedNotification>
+        implements Flow.Processor<Notification, ParsedNotification> {
+
+    private final NotificationParser parser;
+    private final int prefetch;
+    private Flow.Subscription subscription;
+    private boolean started;
+
+    /**
+     * Creates a processor which delivers results by the common {@link ForkJoinPool}
+     * with the default buffer size ({@link Flow#defaultBufferSize()}).
+     * @param parser GATT parser
+     */
+    public NotificationProcessor(BluetoothGattParser parser) {
+        this(parser, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Creates a processor.
+     * @param parser GATT parser
+     * @param executor executor to deliver results to subscribers by
+     * @param maxBufferCapacity the maximum number of notifications requested from upstream in advance
+     *                          and the maximum capacity of each subscriber buffer
+     * @throws IllegalArgumentException if the buffer capacity is not positive
+     */
+    public NotificationProcessor(BluetoothGattParser parser, Executor executor, int maxBufferCapacity) {
+        super(executor, maxBufferCapacity);
+        this.parser = new NotificationParser(parser);
+        this.prefetch = maxBufferCapacity;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        requestIfReady();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ParsedNotification> subscriber) {
+        super.subscribe(subscriber);
+        requestIfReady();
+    }
+
+    /**
+     * Parses a notification and publishes the result. Blocks while a buffer of any subscriber is full.
+     * @param notification notification to parse
+     */
+    @Override
+    public void onNext(Notification notification) {
+        if (isClosed()) {
+            // the processor has been closed, the upstream subscription is cancelled
+            return;
+        }
+        submit(parser.parse(notification));
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    /**
+     * Closes the processor and cancels the upstream subscription, subscribers are completed.
+     */
+    @Override
+    public void close() {
+        Flow.Subscription current;
+        synchronized (this) {
+            current = subscription;
+        }
+        if (current != null) {
+            current.cancel();
+        }
+        super.close();
+    }
+
+    private void requestIfReady() {
+        Flow.Subscription current;
+        synchronized (this) {
+            if (started || subscription == null || !hasSubscribers()) {
+                return;
+            }
+            started = true;
+            current = subscription;
+        }
+        current.request(prefetch);
+    }
+
+}
@@ -0,0 +1,530 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+import org.sputnikdev.bluetooth.gattparser.spec.Field;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+import org.sputnikdev.bluetooth.gattparser.spec.FlagUtils;
+import org.sputnikdev.bluetooth.gattparser.spec.IFlagUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A precompiled parse plan of a GATT characteristic (see {@link ParsePlanCompiler}).
+ * A plan is a flat list of steps, each step knows its field, its size in bits, its pre-bound decoder and
+ * the requirements (flags) which must be present for the step to be executed. Fields of referenced
+ * characteristics are inlined into the plan of the referencing characteristic where possible.
+ * Executing a plan yields exactly the same result as {@link GenericCharacteristicParser#parse(Characteristic, byte[])}.
+ * <p>
+ * If a characteristic starts with a flags field (of up to {@value #MAX_CACHED_FLAGS_SIZE} bits), the flags fully
+ * determine which fields follow, therefore steps selected by the flags (a layout) are cached by the flags value.
+ * Layouts are cached lazily, when a flags value is seen first time, so that parsing values with known flags
+ * does not evaluate any requirements.
+ * Threadsafe.
+ */
+final class ParsePlan {
+
+    static final int MAX_CACHED_FLAGS_SIZE = 16;
+
+    enum StepKind {
+        /**
+         * Decodes a field.
+         */
+        VALUE,
+        /**
+         * Skips a field (flags field).
+         */
+        SKIP,
+        /**
+         * Parses a referenced characteristic which has its own flags field, hence cannot be inlined.
+         */
+        NESTED,
+        /**
+         * Fails parsing, e.g. a referenced characteristic is unknown or cannot be parsed.
+         */
+        FAIL
+    }
+
+    static final class Step {
+
+        private final StepKind kind;
+        private final Field field;
+        private final String name;
+        private final List<String> requirements;
+        private final long requirementMask;
+        private final int size;
+        private final FieldDecoder decoder;
+        private final ParsePlan nested;
+        private final String failure;
+
+        private Step(StepKind kind, Field field, List<String> requirements, long requirementMask, int size,
+                     FieldDecoder decoder, ParsePlan nested, String failure) {
+            this.kind = kind;
+            this.field = field;
+            this.name = field != null ? field.getName() : null;
+            this.requirements = requirements;
+            this.requirementMask = requirementMask;
+            this.size = size;
+            this.decoder = decoder;
+            this.nested = nested;
+            this.failure = failure;
+        }
+
+        static Step value(Field field, List<String> requirements, int size, FieldDecoder decoder) {
+            return new Step(StepKind.VALUE, field, requirements, field.getRequirementMask(), size, decoder,
+                    null, null);
+        }
+
+        static Step skip(Field field, List<String> requirements, int size) {
+            return new Step(StepKind.SKIP, field, requirements, field.getRequirementMask(), size, null, null, null);
+        }
+
+        static Step nested(Field field, List<String> requirements, ParsePlan nested) {
+            return new Step(StepKind.NESTED, field, requirements, field.getRequirementMask(), FieldFormat.FULL_SIZE,
+                    null, nested, null);
+        }
+
+        static Step fail(Field field, List<String> requirements, String failure) {
+            return new Step(StepKind.FAIL, field, requirements, field.getRequirementMask(), FieldFormat.FULL_SIZE,
+                    null, null, failure);
+        }
+
+        StepKind getKind() {
+            return kind;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        List<String> getRequirements() {
+            return requirements;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        long getRequirementMask() {
+            return requirementMask;
+        }
+
+        String getFailure() {
+            return failure;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        FieldDecoder getDecoder() {
+            return decoder;
+        }
+
+        /**
+         * Returns a copy of this step guarded by the given requirements, e.g. requirements of a referencing field.
+         */
+        Step withRequirements(List<String> requirements, long requirementMask) {
+            return new Step(kind, field, requirements, requirementMask, size, decoder, nested, failure);
+        }
+    }
+
+    private final Characteristic characteristic;
+    private final List<Field> fields;
+    private final Step[] steps;
+    private final boolean readingFlags;
+    private final boolean masked;
+    private final boolean nesting;
+    private final IFlagUtils flagUtils;
+    private final RealNumberFormatter realNumberFormatter;
+    // layouts cache, null if layouts are not cached
+    private final int flagsOffset;
+    private final int flagsSize;
+    private final AtomicReferenceArray<Step[]> layouts;
+    private final LongAdder layoutHits = new LongAdder();
+    private final LongAdder layoutMisses = new LongAdder();
+
+    ParsePlan(Characteristic characteristic, List<Field> fields, List<Step> steps, boolean readingFlags,
+              int flagsOffset, IFlagUtils flagUtils, RealNumberFormatter realNumberFormatter) {
+        this.characteristic = characteristic;
+        this.fields = fields;
+        this.steps = steps.toArray(new Step[0]);
+        this.readingFlags = readingFlags;
+        this.masked = characteristic.hasRequirementMasks();
+        boolean nesting = false;
+        for (Step step : this.steps) {
+            nesting |= step.kind == StepKind.NESTED;
+        }
+        this.nesting = nesting;
+        this.flagUtils = flagUtils;
+        this.realNumberFormatter = realNumberFormatter;
+        // flags read by custom flag utils may depend on something else than the flags field
+        int flagsSize = flagsOffset >= 0 ? fields.stream().filter(Field::isFlagField).findFirst()
+                .map(field -> field.getFormat().getSize()).orElse(0) : 0;
+        if (readingFlags && masked && flagUtils instanceof FlagUtils
+                && flagsSize > 0 && flagsSize <= MAX_CACHED_FLAGS_SIZE) {
+            this.flagsOffset = flagsOffset;
+            this.flagsSize = flagsSize;
+            this.layouts = new AtomicReferenceArray<>(1 << flagsSize);
+        } else {
+            this.flagsOffset = -1;
+            this.flagsSize = 0;
+            this.layouts = null;
+        }
+    }
+
+    /**
+     * Returns the characteristic this plan was compiled for.
+     * @return characteristic specification
+     */
+    Characteristic getCharacteristic() {
+        return characteristic;
+    }
+
+    /**
+     * Returns steps of this plan.
+     * @return steps of this plan
+     */
+    Step[] getSteps() {
+        return steps.clone();
+    }
+
+    /**
+     * Checks whether layouts of the plan are cached by flags values.
+     * @return true if layouts are cached
+     */
+    boolean isCachingLayouts() {
+        return layouts != null;
+    }
+
+    /**
+     * Returns number of parses which used a cached layout.
+     * @return number of layout cache hits
+     */
+    long getLayoutHits() {
+        return layoutHits.sum();
+    }
+
+    /**
+     * Returns number of parses which had to select steps by flags.
+     * @return number of layout cache misses
+     */
+    long getLayoutMisses() {
+        return layoutMisses.sum();
+    }
+
+    /**
+     * Returns number of cached layouts.
+     * @return number of cached layouts
+     */
+    int getLayoutCount() {
+        int count = 0;
+        if (layouts != null) {
+            for (int i = 0; i < layouts.length(); i++) {
+                if (layouts.get(i) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether values can be decoded straight from the steps of the plan (see {@link ColumnarDecoder}):
+     * the plan has no nested steps and its steps are either not selected by flags or selected by cached layouts.
+     * @return true if steps to be executed can be selected by {@link #getLayout(byte[], int, int)}
+     */
+    boolean isFlat() {
+        return !nesting && (!readingFlags || layouts != null);
+    }
+
+    /**
+     * Returns size of the flags field which layouts are cached by, 0 if layouts are not cached.
+     * @return size of the flags field in bits
+     */
+    int getFlagsSize() {
+        return flagsSize;
+    }
+
+    /**
+     * Returns steps to be executed for a given value of a flat plan (see {@link #isFlat()}): either a layout
+     * selected by flags of the value or all steps of the plan if steps are not selected by flags.
+     * The value is read in place and the lookup is not counted in the layout cache statistics,
+     * as it is not a parse of the value.
+     * @param array an array containing characteristic value
+     * @param offset index of the first byte of the value
+     * @param length length of the value
+     * @return steps to be executed
+     */
+    Step[] getLayout(byte[] array, int offset, int length) {
+        if (layouts == null) {
+            return steps;
+        }
+        int flags = readFlags(array, offset, length);
+        Step[] layout = layouts.get(flags);
+        return layout != null ? layout : selectLayout(flags, flagUtils.getReadFlagsMask(fields,
+                ByteBuffer.wrap(array, offset, length).slice(), realNumberFormatter));
+    }
+
+    /**
+     * Reads the flags field value which layouts are cached by from a region of an array,
+     * missing bits (if the value is too short) are read as zeros.
+     * @param array an array containing characteristic value
+     * @param base index of the first byte of the value
+     * @param length length of the value in bytes
+     * @return flags value
+     */
+    int readFlags(byte[] array, int base, int length) {
+        return readFlags(array, null, base, length);
+    }
+
+    /**
+     * Runs the plan against the provided characteristic value.
+     * @param raw characteristic value
+     * @return a map of parsed characteristic fields
+     * @throws CharacteristicFormatException if the value cannot be parsed
+     */
+    LinkedHashMap<String, FieldHolder> parse(byte[] raw) throws CharacteristicFormatException {
+        LinkedHashMap<String, FieldHolder> result = new LinkedHashMap<>();
+        execute(raw, null, raw.length, result, false, false);
+        return result;
+    }
+
+    /**
+     * Runs the plan against the provided characteristic value without decoding field values: offsets of fields
+     * are computed (and the value is checked to be long enough) as usual, but each field value is decoded
+     * from the characteristic value only when it is first accessed (see {@link FieldHolder}).
+     * Fields which cannot be decoded whatever the value is (e.g. of unsupported formats) fail parsing as usual,
+     * see {@link FieldDecoder#isDeferrable()}.
+     * @param raw characteristic value, it is kept by the field holders and must not be changed afterwards
+     * @return a map of parsed characteristic fields
+     * @throws CharacteristicFormatException if the value cannot be parsed
+     */
+    LinkedHashMap<String, FieldHolder> parseLazily(byte[] raw) throws CharacteristicFormatException {
+        LinkedHashMap<String, FieldHolder> result = new LinkedHashMap<>();
+        execute(raw, null, raw.length, result, false, true);
+        return result;
+    }
+
+    /**
+     * Runs the plan against the provided characteristic value which spans from the position to the limit
+     * of the buffer. Field values are read directly from the buffer (either heap or direct one),
+     * neither position nor limit of the buffer is changed. Only values of nested characteristics
+     * (referenced characteristics which are not inlined into the plan) are copied into a temporary array.
+     * @param raw characteristic value
+     * @return a map of parsed characteristic fields
+     * @throws CharacteristicFormatException if the value cannot be parsed
+     */
+    LinkedHashMap<String, FieldHolder> parse(ByteBuffer raw) throws CharacteristicFormatException {
+        LinkedHashMap<String, FieldHolder> result = new LinkedHashMap<>();
+        execute(null, raw, raw.remaining(), result, false, false);
+        return result;
+    }
+
+    /**
+     * Runs the plan against the provided characteristic value reusing field holders of a previous result
+     * of this plan. If the previous result has exactly the same fields (which is always the case for
+     * characteristics without flags), field values are overwritten in place and no objects are created for
+     * fields of integral types, otherwise the content of the provided map is replaced with a new result.
+     * @param raw characteristic value
+     * @param holders a previous result of this plan (or an empty map) to be updated
+     * @throws CharacteristicFormatException if the value cannot be parsed, the provided map is left in
+     * an undefined state then
+     */
+    void parseInto(byte[] raw, LinkedHashMap<String, FieldHolder> holders) throws CharacteristicFormatException {
+        if (nesting || holders.isEmpty() || execute(raw, null, raw.length, holders, true, false) != holders.size()) {
+            LinkedHashMap<String, FieldHolder> result = parse(raw);
+            holders.clear();
+            holders.putAll(result);
+        }
+    }
+
+    /**
+     * Executes the plan against either a byte array or a byte buffer (the other one is null),
+     * either creating new field holders or reusing the existing ones, field values are either decoded or
+     * left to be decoded lazily (from a byte array only).
+     * @return number of decoded fields or -1 if an existing holder is not found
+     */
+    private int execute(byte[] array, ByteBuffer buffer, int length, LinkedHashMap<String, FieldHolder> result,
+                        boolean reuse, boolean lazy) {
+        Step[] selected = steps;
+        boolean selecting = readingFlags;
+        Set<String> requires = null;
+        long requiresMask = 0;
+        if (layouts != null) {
+            // steps are already selected by flags
+            selected = getLayout(array, buffer, length);
+            selecting = false;
+        } else if (readingFlags && masked) {
+            requiresMask = array != null ? flagUtils.getReadFlagsMask(fields, array, realNumberFormatter)
+                    : flagUtils.getReadFlagsMask(fields, buffer, realNumberFormatter);
+        } else if (readingFlags) {
+            requires = array != null ? flagUtils.getReadFlags(fields, array, realNumberFormatter)
+                    : flagUtils.getReadFlags(fields, buffer, realNumberFormatter);
+            requires.add("Mandatory");
+        }
+        int bits = length * 8;
+        int offset = 0;
+        int decoded = 0;
+        for (Step step : selected) {
+            if (selecting && step.requirements != null
+                    && (masked ? (requiresMask & step.requirementMask) != step.requirementMask
+                    : !requires.containsAll(step.requirements))) {
+                // skipping field as per requirement in the Flags field
+                continue;
+            }
+            switch (step.kind) {
+                case SKIP:
+                    offset += step.size;
+                    break;
+                case VALUE:
+                    if (step.size != FieldFormat.FULL_SIZE && offset + step.size > bits) {
+                        throw new CharacteristicFormatException(
+                                "Not enough bits to parse field \"" + step.name + "\". "
+                                        + "Data length: " + length + " bytes. "
+                                        + "Looks like your device does not conform SIG specification.");
+                    }
+                    FieldHolder holder;
+                    if (reuse) {
+                        holder = result.get(step.name);
+                        if (holder == null || holder.getField() != step.field) {
+                            return -1;
+                        }
+                    } else {
+                        holder = new FieldHolder(step.field);
+                        result.put(step.name, holder);
+                    }
+                    if (lazy && step.decoder.isDeferrable()) {
+                        holder.setEncodedValue(step.decoder, array, offset);
+                    } else if (array != null) {
+                        step.decoder.decode(array, offset, holder);
+                    } else {
+                        step.decoder.decode(buffer, offset, holder);
+                    }
+                    decoded++;
+                    if (step.size == FieldFormat.FULL_SIZE) {
+                        // full size field, e.g. a string
+                        return decoded;
+                    }
+                    offset += step.size;
+                    break;
+                case NESTED:
+                    byte[] remainder = getRemainder(array != null ? array : toArray(buffer), offset);
+                    LinkedHashMap<String, FieldHolder> subCharacteristic = lazy
+                            ? step.nested.parseLazily(remainder) : step.nested.parse(remainder);
+                    result.putAll(subCharacteristic);
+                    decoded += subCharacteristic.size();
+                    int size = getSize(subCharacteristic.values());
+                    if (size == FieldFormat.FULL_SIZE) {
+                        return decoded;
+                    }
+                    offset += size;
+                    break;
+                case FAIL:
+                    throw new CharacteristicFormatException(step.failure);
+                default:
+                    throw new IllegalStateException("Unsupported step: " + step.kind);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns steps selected by flags of the value, the steps are selected and cached if the flags value
+     * is seen first time.
+     */
+    private Step[] getLayout(byte[] array, ByteBuffer buffer, int length) {
+        int flags = readFlags(array, buffer, 0, length);
+        Step[] layout = layouts.get(flags);
+        if (layout != null) {
+            layoutHits.increment();
+            return layout;
+        }
+        layoutMisses.increment();
+        return selectLayout(flags, array != null ? flagUtils.getReadFlagsMask(fields, array, realNumberFormatter)
+                : flagUtils.getReadFlagsMask(fields, buffer, realNumberFormatter));
+    }
+
+    /**
+     * Selects steps required by the given flags and caches them as the layout of the flags value.
+     */
+    private Step[] selectLayout(int flags, long requiresMask) {
+        List<Step> selected = new ArrayList<>(steps.length);
+        for (Step step : steps) {
+            if (step.requirements == null || (requiresMask & step.requirementMask) == step.requirementMask) {
+                selected.add(step);
+            }
+        }
+        Step[] layout = selected.toArray(new Step[0]);
+        layouts.set(flags, layout);
+        return layout;
+    }
+
+    /**
+     * Reads the flags field value, missing bits (if the value is too short) are read as zeros.
+     */
+    private int readFlags(byte[] array, ByteBuffer buffer, int base, int length) {
+        // the flags field takes at most 3 bytes (up to 16 bits at a bit offset)
+        int first = flagsOffset >> 3;
+        int last = Math.min((flagsOffset + flagsSize - 1) >> 3, length - 1);
+        int value = 0;
+        for (int i = first, shift = 0; i <= last; i++, shift += 8) {
+            int b = array != null ? array[base + i] : buffer.get(buffer.position() + i);
+            value |= (b & 0xFF) << shift;
+        }
+        return value >>> (flagsOffset & 7) & (1 << flagsSize) - 1;
+    }
+
+    private static int getSize(Iterable<FieldHolder> holders) {
+        int size = 0;
+        for (FieldHolder holder : holders) {
+            int fieldSize = holder.getField().getFormat().getSize();
+            if (fieldSize == FieldFormat.FULL_SIZE) {
+                return FieldFormat.FULL_SIZE;
+            }
+            size += fieldSize;
+        }
+        return size;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] array = new byte[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    private static byte[] getRemainder(byte[] raw, int offset) {
+        byte[] remained = BitSet.valueOf(raw).get(offset, raw.length * 8).toByteArray();
+        byte[] remainedWithTrailingZeros = new byte[(raw.length - (int) Math.ceil(offset / 8.0))];
+        System.arraycopy(remained, 0, remainedWithTrailingZeros, 0, remained.length);
+        return remainedWithTrailingZeros;
+    }
+
+}
@@ -0,0 +1,493 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.gattparser.FieldHolder.Slot;
+import org.sputnikdev.bluetooth.gattparser.num.FloatingPointNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.spec.Bit;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+import org.sputnikdev.bluetooth.gattparser.spec.Field;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compiles GATT characteristic specifications into {@link ParsePlan}s. All the decisions that
+ * {@link GenericCharacteristicParser} makes for every field of every parsed value (resolving field formats,
+ * choosing number formatters and decoding methods, resolving referenced characteristics) are made here once.
+ * Stateless and threadsafe.
+ */
+final class ParsePlanCompiler {
+
+    private static final String MANDATORY_FLAG = "Mandatory";
+
+    private final IGattParserConfiguration config;
+
+    ParsePlanCompiler(IGattParserConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * Compiles a parse plan for a given characteristic.
+     * @param characteristic characteristic specification
+     * @return compiled parse plan
+     */
+    ParsePlan compile(Characteristic characteristic) {
+        return compile(characteristic, new ArrayDeque<>());
+    }
+
+    private ParsePlan compile(Characteristic characteristic, Deque<Characteristic> path) {
+        path.push(characteristic);
+        try {
+            List<Field> fields = characteristic.getValue().getFields();
+            List<ParsePlan.Step> steps = new ArrayList<>();
+            for (Field field : fields) {
+                List<String> requirements = getRequirements(field);
+                if (field.getReference() != null) {
+                    compileReference(field, requirements, steps, path);
+                } else if (field.getFormat() == null) {
+                    steps.add(ParsePlan.Step.fail(field, requirements,
+                            "Field format is missing: \"" + field.getName() + "\"."));
+                } else if (field.isFlagField()) {
+                    steps.add(ParsePlan.Step.skip(field, requirements, field.getFormat().getSize()));
+                } else {
+                    FieldFormat format = field.getFormat();
+                    steps.add(ParsePlan.Step.value(field, requirements, format.getSize(), compileDecoder(format)));
+                }
+            }
+            return new ParsePlan(characteristic, fields, steps, isReadingFlags(fields, steps), getFlagsOffset(fields),
+                    config.getFlagUtils(), config.getTwosComplementNumberFormatter());
+        } finally {
+            path.pop();
+        }
+    }
+
+    private void compileReference(Field field, List<String> requirements, List<ParsePlan.Step> steps,
+                                  Deque<Characteristic> path) {
+        String type = field.getReference().trim();
+        Characteristic referenced = config.getGattSpecificationReader().getCharacteristicByType(type);
+        if (referenced == null) {
+            steps.add(ParsePlan.Step.fail(field, requirements, "Unknown referenced characteristic: \"" + type + "\"."));
+        } else if (!referenced.isValidForRead()) {
+            steps.add(ParsePlan.Step.fail(field, requirements,
+                    "Characteristic cannot be parsed: \"" + referenced.getName() + "\"."));
+        } else if (path.contains(referenced)) {
+            steps.add(ParsePlan.Step.fail(field, requirements,
+                    "Recursive reference to characteristic: \"" + type + "\"."));
+        } else {
+            ParsePlan plan = compile(referenced, path);
+            if (isInlinable(referenced) && isByteAligned(steps)) {
+                // the referenced characteristic does not have flags, its fields are always read in the same way,
+                // hence they can be inlined guarded by the requirements of the referencing field
+                // (unless it starts at a bit offset, the remainder of the value is then truncated by the interpreter)
+                for (ParsePlan.Step step : plan.getSteps()) {
+                    if (step.getRequirements() == null) {
+                        steps.add(step.withRequirements(requirements, field.getRequirementMask()));
+                    }
+                }
+            } else {
+                steps.add(ParsePlan.Step.nested(field, requirements, plan));
+            }
+        }
+    }
+
+    private static boolean isInlinable(Characteristic characteristic) {
+        for (Field field : characteristic.getValue().getFields()) {
+            if (field.getReference() == null && (field.getFormat() == null || field.isFlagField())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isByteAligned(List<ParsePlan.Step> steps) {
+        for (ParsePlan.Step step : steps) {
+            if (step.getKind() != ParsePlan.StepKind.VALUE && step.getKind() != ParsePlan.StepKind.SKIP
+                    || step.getSize() % 8 != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the flags field must be read, i.e. some fields depend on flags or the flag utils are to report
+     * a malformed characteristic.
+     */
+    private static boolean isReadingFlags(List<Field> fields, List<ParsePlan.Step> steps) {
+        for (ParsePlan.Step step : steps) {
+            if (step.getRequirements() != null) {
+                return true;
+            }
+        }
+        for (Field field : fields) {
+            if (field.isFlagField() || field.getReference() != null) {
+                break;
+            }
+            if (field.getFormat() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns offset (in bits) of the flags field or -1 if there is no flags field, its offset is not fixed
+     * or its bits do not fit into the field.
+     */
+    private static int getFlagsOffset(List<Field> fields) {
+        int offset = 0;
+        for (Field field : fields) {
+            if (field.getReference() != null || field.getFormat() == null) {
+                return -1;
+            }
+            if (field.isFlagField()) {
+                int size = 0;
+                for (Bit bit : field.getBitField().getBits()) {
+                    size += bit.getSize();
+                }
+                return size <= field.getFormat().getSize() ? offset : -1;
+            }
+            offset += field.getFormat().getSize();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns field requirements or null if the field does not depend on flags, i.e. it is always read.
+     */
+    private static List<String> getRequirements(Field field) {
+        List<String> requirements = field.getRequirements();
+        if (requirements == null || requirements.isEmpty()
+                || requirements.stream().allMatch(MANDATORY_FLAG::equals)) {
+            return null;
+        }
+        return Collections.unmodifiableList(new ArrayList<>(requirements));
+    }
+
+    /**
+     * Returns the reason why fields of a given format cannot be decoded or null if they can be.
+     * @param fieldFormat field format
+     * @return failure message or null
+     */
+    static String getDecodingFailure(FieldFormat fieldFormat) {
+        switch (fieldFormat.getType()) {
+            case BOOLEAN:
+            case UINT:
+            case SINT:
+            case UTF8S:
+            case UTF16S:
+            case STRUCT:
+                return null;
+            case FLOAT_IEE754:
+            case FLOAT_IEE11073:
+                int size = fieldFormat.getSize();
+                return size == 16 || size == 32 || size == 64 ? null : "Unknown bit size for float numbers: " + size;
+            default:
+                return "Unsupported field format: " + fieldFormat.getType();
+        }
+    }
+
+    private FieldDecoder compileDecoder(FieldFormat fieldFormat) {
+        String failure = getDecodingFailure(fieldFormat);
+        if (failure != null) {
+            return new FailingDecoder(failure);
+        }
+        int size = fieldFormat.getSize();
+        switch (fieldFormat.getType()) {
+            case BOOLEAN: return new BooleanDecoder();
+            case UINT: return compileRealDecoder(size, false);
+            case SINT: return compileRealDecoder(size, true);
+            case FLOAT_IEE754: return new FloatDecoder(config.getTwosComplementNumberFormatter(),
+                    config.getIEEE754FloatingPointNumberFormatter(), size);
+            case FLOAT_IEE11073: return new FloatDecoder(config.getTwosComplementNumberFormatter(),
+                    config.getIEEE11073FloatingPointNumberFormatter(), size);
+            case UTF8S: return new StringDecoder(StandardCharsets.UTF_8);
+            case UTF16S: return new StringDecoder(StandardCharsets.UTF_16);
+            case STRUCT: return new StructDecoder();
+            default:
+                throw new IllegalStateException("Unsupported field format: " + fieldFormat.getType());
+        }
+    }
+
+    private FieldDecoder compileRealDecoder(int size, boolean signed) {
+        RealNumberFormatter formatter = config.getTwosComplementNumberFormatter();
+        if ((signed && size <= 32) || (!signed && size < 32)) {
+            return new IntegralDecoder(formatter, size, signed, Slot.INTEGER);
+        } else if ((signed && size <= 64) || (!signed && size < 64)) {
+            return new IntegralDecoder(formatter, size, signed, Slot.LONG);
+        } else {
+            return new BigIntegerDecoder(formatter, size, signed);
+        }
+    }
+
+    /**
+     * Reads all bytes from a given bit offset till the end of data, trailing zero bytes are dropped.
+     */
+    private static byte[] readRemaining(byte[] raw, int offset) {
+        if ((offset & 7) != 0) {
+            return BitSet.valueOf(raw).get(offset, offset + raw.length * 8).toByteArray();
+        }
+        int from = offset >> 3;
+        int to = raw.length;
+        while (to > from && raw[to - 1] == 0) {
+            to--;
+        }
+        return from < to ? Arrays.copyOfRange(raw, from, to) : new byte[0];
+    }
+
+    /**
+     * Reads all bytes from a given bit offset (relative to the buffer position) till the limit of the buffer,
+     * trailing zero bytes are dropped.
+     */
+    private static byte[] readRemaining(ByteBuffer raw, int offset) {
+        int length = raw.remaining();
+        if ((offset & 7) != 0) {
+            return BitSet.valueOf(raw).get(offset, offset + length * 8).toByteArray();
+        }
+        int from = offset >> 3;
+        int to = length;
+        int position = raw.position();
+        while (to > from && raw.get(position + to - 1) == 0) {
+            to--;
+        }
+        byte[] result = new byte[Math.max(to - from, 0)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = raw.get(position + from + i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads bits of a field straight from a buffer, only bytes of the field are read. Bits beyond the limit
+     * of the buffer are read as zeros, the same as {@code BitSet.valueOf(raw).get(offset, offset + size)} does.
+     */
+    private static BitSet getBits(ByteBuffer raw, int offset, int size) {
+        long[] words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        int position = raw.position();
+        int length = raw.remaining();
+        int first = offset >> 3;
+        int shift = offset & 7;
+        for (int i = 0; i << 3 < size; i++) {
+            int index = first + i;
+            int value = index < length ? (raw.get(position + index) & 0xFF) >>> shift : 0;
+            if (shift > 0 && index + 1 < length) {
+                value |= (raw.get(position + index + 1) & 0xFF) << (8 - shift);
+            }
+            int bits = Math.min(8, size - (i << 3));
+            value &= (1 << bits) - 1;
+            words[i >> 3] |= (long) value << ((i & 7) << 3);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static final class BooleanDecoder implements FieldDecoder {
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            holder.setRawValue((raw[offset >> 3] >> (offset & 7) & 1) != 0);
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            holder.setRawValue((raw.get(raw.position() + (offset >> 3)) >> (offset & 7) & 1) != 0);
+        }
+    }
+
+    private static final class IntegralDecoder implements FieldDecoder {
+        private final RealNumberFormatter formatter;
+        private final int size;
+        private final boolean signed;
+        private final Slot slot;
+
+        private IntegralDecoder(RealNumberFormatter formatter, int size, boolean signed, Slot slot) {
+            this.formatter = formatter;
+            this.size = size;
+            this.signed = signed;
+            this.slot = slot;
+        }
+
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            set(holder, formatter.readBits(raw, offset, size, signed));
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            set(holder, formatter.readBits(raw, offset, size, signed));
+        }
+
+        private void set(FieldHolder holder, long value) {
+            holder.setRawValue(slot == Slot.INTEGER ? (int) value : value, slot);
+        }
+    }
+
+    private static final class BigIntegerDecoder implements FieldDecoder {
+        private final RealNumberFormatter formatter;
+        private final int size;
+        private final boolean signed;
+
+        private BigIntegerDecoder(RealNumberFormatter formatter, int size, boolean signed) {
+            this.formatter = formatter;
+            this.size = size;
+            this.signed = signed;
+        }
+
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            holder.setRawValue(
+                    formatter.deserializeBigInteger(getBits(ByteBuffer.wrap(raw), offset, size), size, signed));
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            holder.setRawValue(formatter.deserializeBigInteger(getBits(raw, offset, size), size, signed));
+        }
+    }
+
+    private static final class FloatDecoder implements FieldDecoder {
+        private final RealNumberFormatter realNumberFormatter;
+        private final FloatingPointNumberFormatter formatter;
+        private final int size;
+        private final boolean supported;
+
+        private FloatDecoder(RealNumberFormatter realNumberFormatter, FloatingPointNumberFormatter formatter,
+                             int size) {
+            this.realNumberFormatter = realNumberFormatter;
+            this.formatter = formatter;
+            this.size = size;
+            supported = isSupported(formatter, size);
+        }
+
+        @Override
+        public boolean isDeferrable() {
+            return supported;
+        }
+
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            decode(realNumberFormatter.readBits(raw, offset, size, false), holder);
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            decode(realNumberFormatter.readBits(raw, offset, size, false), holder);
+        }
+
+        private void decode(long bits, FieldHolder holder) {
+            Slot slot = size == 64 ? Slot.DOUBLE : Slot.FLOAT;
+            double value = formatter.toDouble(bits, size);
+            if (!Double.isNaN(value)) {
+                holder.setRawValue(value, slot);
+                return;
+            }
+            // NaN stands for both NaN values and values which cannot be decoded (null)
+            BitSet bitSet = BitSet.valueOf(new long[] {bits});
+            Number number = size == 16 ? formatter.deserializeSFloat(bitSet)
+                    : size == 32 ? formatter.deserializeFloat(bitSet) : formatter.deserializeDouble(bitSet);
+            if (number != null) {
+                holder.setRawValue(number.doubleValue(), slot);
+            } else {
+                holder.setRawValue(null);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a formatter supports numbers of a given size, formatters fail on every number
+     * of a size they do not support (e.g. IEEE 754 16-bit numbers).
+     */
+    private static boolean isSupported(FloatingPointNumberFormatter formatter, int size) {
+        try {
+            formatter.toDouble(0, size);
+            return true;
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static final class StringDecoder implements FieldDecoder {
+        private final Charset charset;
+
+        private StringDecoder(Charset charset) {
+            this.charset = charset;
+        }
+
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            holder.setRawValue(new String(readRemaining(raw, offset), charset));
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            holder.setRawValue(new String(readRemaining(raw, offset), charset));
+        }
+    }
+
+    private static final class StructDecoder implements FieldDecoder {
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            holder.setRawValue(readRemaining(raw, offset));
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            holder.setRawValue(readRemaining(raw, offset));
+        }
+    }
+
+    /**
+     * A decoder which fails as the interpreter does when it comes across an unsupported field,
+     * compilation itself must not fail as such field might never be read.
+     */
+    private static final class FailingDecoder implements FieldDecoder {
+        private final String message;
+
+        private FailingDecoder(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void decode(byte[] raw, int offset, FieldHolder holder) {
+            throw new IllegalStateException(message);
+        }
+
+        @Override
+        public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+            throw new IllegalStateException(message);
+        }
+
+        @Override
+        public boolean isDeferrable() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+/**
+ * A result of parsing a {@link Notification} by {@link BluetoothGattParser#parseAll(java.util.Collection)}:
+ * either a parsed value or an exception which the value could not be parsed with. A failure of a single value
+ * does not fail the rest of the batch.
+ */
+public final class ParsedNotification {
+
+    private final Notification notification;
+    private final GattResponse response;
+    private final RuntimeException error;
+
+    ParsedNotification(Notification notification, GattResponse response, RuntimeException error) {
+        this.notification = notification;
+        this.response = response;
+        this.error = error;
+    }
+
+    /**
+     * Returns the notification which has been parsed.
+     * @return notification
+     */
+    public Notification getNotification() {
+        return notification;
+    }
+
+    /**
+     * Checks whether the notification has been parsed successfully.
+     * @return true if the notification has been parsed, false otherwise
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns the parsed value.
+     * @return parsed value or null if the notification could not be parsed
+     */
+    public GattResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Returns the exception which the notification could not be parsed with, normally
+     * a {@link CharacteristicFormatException}.
+     * @return exception or null if the notification has been parsed successfully
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedNotification{notification=" + notification
+                + (error == null ? ", fields=" + response.getFieldNames() : ", error=" + error) + "}";
+    }
+
+}
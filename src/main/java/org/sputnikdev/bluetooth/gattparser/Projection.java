@@ -0,0 +1,175 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+import org.sputnikdev.bluetooth.gattparser.spec.FieldFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A reusable handle for parsing only some fields of a characteristic, e.g. a single metric of a wide characteristic
+ * such as Running Speed and Cadence. A projection is created by
+ * {@link BluetoothGattParser#projection(String, String...)} once and then used for all values of the characteristic:
+ * <pre>
+ * {@code
+ *
+ * Projection running = parser.projection("2A53", "Instantaneous Speed", "Instantaneous Cadence");
+ * ...
+ * GattResponse response = running.parse(value);
+ * }
+ * </pre>
+ * Offsets of the requested fields are computed from the sizes of the preceding fields once per layout
+ * (i.e. per value of the flags field, see {@link ParsePlan}), fields after the last requested one are not
+ * visited at all, other fields are skipped without being decoded, hence strings and structs which are not requested
+ * are never materialized. Requested fields which are not present in a value (as per its flags) are not present
+ * in the response. A value fails to be parsed if it is too short for the requested fields, a value which is too
+ * short for other fields only is parsed successfully.
+ * <br>Characteristics which reference other characteristics with their own flags, and characteristics parsed by
+ * custom parsers, are parsed in full and the response is limited to the requested fields.
+ * Threadsafe.
+ */
+public final class Projection {
+
+    private final String characteristicUUID;
+    private final String shortUUID;
+    private final Characteristic characteristic;
+    private final Set<String> fieldNames;
+    // either a flat plan of a compiled parser or a parser to parse values in full
+    private final ParsePlan plan;
+    private final CharacteristicParser parser;
+    private final AtomicReferenceArray<Target[]> layouts;
+
+    /**
+     * A requested field at a known offset, or a failure which prevents reaching the requested fields.
+     */
+    private static final class Target {
+
+        private final ParsePlan.Step step;
+        private final int offset;
+
+        private Target(ParsePlan.Step step, int offset) {
+            this.step = step;
+            this.offset = offset;
+        }
+    }
+
+    Projection(String characteristicUUID, String shortUUID, Characteristic characteristic, Set<String> fieldNames,
+               ParsePlan plan, CharacteristicParser parser) {
+        this.characteristicUUID = characteristicUUID;
+        this.shortUUID = shortUUID;
+        this.characteristic = characteristic;
+        this.fieldNames = Collections.unmodifiableSet(new LinkedHashSet<>(fieldNames));
+        this.plan = plan != null && plan.isFlat() ? plan : null;
+        this.parser = parser;
+        this.layouts = this.plan != null ? new AtomicReferenceArray<>(1 << this.plan.getFlagsSize()) : null;
+    }
+
+    /**
+     * Returns names of the requested fields.
+     * @return names of the requested fields
+     */
+    public Set<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Parses the requested fields of a characteristic value.
+     * @param raw characteristic value
+     * @return requested fields which are present in the value
+     * @throws CharacteristicFormatException if the value cannot be parsed
+     */
+    public GattResponse parse(byte[] raw) throws CharacteristicFormatException {
+        LinkedHashMap<String, FieldHolder> holders;
+        if (plan != null) {
+            holders = new LinkedHashMap<>();
+            int bits = raw.length * 8;
+            for (Target target : getTargets(raw)) {
+                ParsePlan.Step step = target.step;
+                if (step.getKind() == ParsePlan.StepKind.FAIL) {
+                    throw new CharacteristicFormatException(step.getFailure());
+                }
+                if (step.getSize() != FieldFormat.FULL_SIZE && target.offset + step.getSize() > bits) {
+                    throw new CharacteristicFormatException(
+                            "Not enough bits to parse field \"" + step.getName() + "\". "
+                                    + "Data length: " + raw.length + " bytes. "
+                                    + "Looks like your device does not conform SIG specification.");
+                }
+                FieldHolder holder = new FieldHolder(step.getField());
+                step.getDecoder().decode(raw, target.offset, holder);
+                holders.put(step.getName(), holder);
+            }
+        } else {
+            holders = parser.parse(characteristic, raw);
+            holders.keySet().retainAll(fieldNames);
+        }
+        return new GattResponse(holders, characteristicUUID, shortUUID, characteristic);
+    }
+
+    private Target[] getTargets(byte[] raw) {
+        int flags = plan.getFlagsSize() > 0 ? plan.readFlags(raw, 0, raw.length) : 0;
+        Target[] targets = layouts.get(flags);
+        if (targets == null) {
+            targets = compile(plan.getLayout(raw, 0, raw.length));
+            layouts.set(flags, targets);
+        }
+        return targets;
+    }
+
+    /**
+     * Computes offsets of the requested fields in a layout, the layout is walked up to the last requested field.
+     */
+    private Target[] compile(ParsePlan.Step[] layout) {
+        int last = -1;
+        for (int i = 0; i < layout.length; i++) {
+            if (layout[i].getKind() == ParsePlan.StepKind.VALUE && fieldNames.contains(layout[i].getName())) {
+                last = i;
+            }
+        }
+        List<Target> targets = new ArrayList<>();
+        int offset = 0;
+        for (int i = 0; i <= last; i++) {
+            ParsePlan.Step step = layout[i];
+            if (step.getKind() == ParsePlan.StepKind.FAIL) {
+                // the requested fields cannot be reached, the same as when the value is parsed in full
+                targets.add(new Target(step, offset));
+                break;
+            }
+            if (step.getKind() == ParsePlan.StepKind.VALUE && fieldNames.contains(step.getName())) {
+                targets.add(new Target(step, offset));
+            }
+            if (step.getSize() == FieldFormat.FULL_SIZE) {
+                // the rest of the value belongs to this field, no more fields are parsed
+                break;
+            }
+            offset += step.getSize();
+        }
+        return targets.toArray(new Target[0]);
+    }
+
+}
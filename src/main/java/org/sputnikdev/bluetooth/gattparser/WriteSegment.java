@@ -0,0 +1,119 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A part of a characteristic value which is sent to a device in a single ATT request. A value which fits into
+ * a Write Request (ATT_MTU - 3 bytes) is sent as a single segment. A longer value (up to 512 bytes) is sent
+ * as a Long Write: a sequence of Prepare Write Requests, each carrying up to ATT_MTU - 5 bytes of the value
+ * at a given offset, followed by an Execute Write Request.
+ * <pre>
+ * {@code
+ *
+ * for (WriteSegment segment : parser.serializeSegments(request, mtu)) {
+ *     if (segment.isPrepared()) {
+ *         device.prepareWrite(handle, segment.getOffset(), segment.getValue());
+ *     } else {
+ *         device.write(handle, segment.getValue());
+ *     }
+ * }
+ * }
+ * </pre>
+ */
+public final class WriteSegment {
+
+    // opcode and attribute handle
+    private static final int WRITE_REQUEST_HEADER_SIZE = 3;
+    // opcode, attribute handle and value offset
+    private static final int PREPARE_WRITE_REQUEST_HEADER_SIZE = 5;
+
+    private final int offset;
+    private final byte[] value;
+    private final boolean prepared;
+
+    private WriteSegment(int offset, byte[] value, boolean prepared) {
+        this.offset = offset;
+        this.value = value;
+        this.prepared = prepared;
+    }
+
+    /**
+     * Splits a characteristic value into the minimal number of segments for a given ATT_MTU.
+     * @param value characteristic value, up to 512 bytes
+     * @param mtu negotiated ATT_MTU, at least 23 bytes
+     * @return a single (not prepared) segment if the value fits into a Write Request,
+     * otherwise Prepare Write segments with consecutive offsets
+     * @throws IllegalArgumentException if the value is too long or ATT_MTU is too small
+     */
+    public static List<WriteSegment> split(byte[] value, int mtu) {
+        GattParserConfigurationBuilder.checkMtu(mtu);
+        if (value.length > GattParserConfigurationBuilder.MAX_ATTRIBUTE_VALUE_SIZE) {
+            throw new IllegalArgumentException("Characteristic value is too long: " + value.length);
+        }
+        if (value.length <= mtu - WRITE_REQUEST_HEADER_SIZE) {
+            return Collections.singletonList(new WriteSegment(0, value, false));
+        }
+        int segmentSize = mtu - PREPARE_WRITE_REQUEST_HEADER_SIZE;
+        List<WriteSegment> segments = new ArrayList<>((value.length + segmentSize - 1) / segmentSize);
+        for (int offset = 0; offset < value.length; offset += segmentSize) {
+            segments.add(new WriteSegment(offset,
+                    Arrays.copyOfRange(value, offset, Math.min(offset + segmentSize, value.length)), true));
+        }
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Returns offset of the segment in the characteristic value.
+     * @return value offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the part of the characteristic value to be sent.
+     * @return segment bytes
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    /**
+     * Returns whether the segment is a part of a Long Write, i.e. it is to be sent in a Prepare Write Request
+     * (and the whole value is committed by an Execute Write Request), otherwise the segment is the whole value
+     * to be sent in a Write Request.
+     * @return true if the segment is to be sent in a Prepare Write Request
+     */
+    public boolean isPrepared() {
+        return prepared;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteSegment{offset=" + offset + ", length=" + value.length + ", prepared=" + prepared + "}";
+    }
+
+}
@@ -81,4 +81,22 @@ public interface FloatingPointNumberFormatter {
      */
     BitSet serializeDouble(Double number);
 
+    /**
+     * Performs deserialization of a sfloat (16 bits), float (32 bits) or double (64 bits) number given as its bit
+     * pattern (the lowest bit of the pattern is the first bit of the number), without creating intermediate
+     * bit sets. The default implementation falls back to {@link #deserializeSFloat(BitSet)},
+     * {@link #deserializeFloat(BitSet)} and {@link #deserializeDouble(BitSet)}, so that custom formatters
+     * keep working; implementations are encouraged to override it with a faster one.
+     *
+     * @param bits bit pattern of the number
+     * @param size number of bits of the number: 16, 32 or 64
+     * @return decoded number or NaN if the number cannot be decoded
+     */
+    default double toDouble(long bits, int size) {
+        BitSet bitSet = BitSet.valueOf(new long[] {bits});
+        Number value = size == 16 ? deserializeSFloat(bitSet)
+                : size == 32 ? deserializeFloat(bitSet) : deserializeDouble(bitSet);
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
 }
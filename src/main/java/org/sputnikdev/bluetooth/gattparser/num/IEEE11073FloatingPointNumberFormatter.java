@@ -89,6 +89,40 @@ public class IEEE11073FloatingPointNumberFormatter implements FloatingPointNumbe
     }
 
 
+    @Override
+    public double toDouble(long bits, int size) {
+        int exponent;
+        int mantissa;
+        if (size == 16) {
+            exponent = (int) bits << 16 >> 28;
+            mantissa = (int) bits << 20 >> 20;
+            if (exponent == 0) {
+                if (mantissa == SFLOAT_NaN) {
+                    return Float.NaN;
+                } else if (mantissa == SFLOAT_POSITIVE_INFINITY) {
+                    return Float.POSITIVE_INFINITY;
+                } else if (mantissa == SFLOAT_NEGATIVE_INFINITY_SIGNED) {
+                    return Float.NEGATIVE_INFINITY;
+                }
+            }
+        } else if (size == 32) {
+            exponent = (int) bits >> 24;
+            mantissa = (int) bits << 8 >> 8;
+            if (exponent == 0) {
+                if (mantissa == FLOAT_NaN) {
+                    return Float.NaN;
+                } else if (mantissa == FLOAT_POSITIVE_INFINITY) {
+                    return Float.POSITIVE_INFINITY;
+                } else if (mantissa == FLOAT_NEGATIVE_INFINITY_SIGNED) {
+                    return Float.NEGATIVE_INFINITY;
+                }
+            }
+        } else {
+            throw new IllegalStateException("Operation not supported");
+        }
+        return (float) ((double) mantissa * Math.pow(10, exponent));
+    }
+
     @Override
     public BitSet serializeSFloat(Float number) {
         throw new IllegalStateException("Operation not supported");
@@ -45,6 +45,16 @@ public class IEEE754FloatingPointNumberFormatter implements FloatingPointNumberF
         return Double.longBitsToDouble(bits.toLongArray()[0]);
     }
 
+    @Override
+    public double toDouble(long bits, int size) {
+        if (size == 32) {
+            return Float.intBitsToFloat((int) bits);
+        } else if (size == 64) {
+            return Double.longBitsToDouble(bits);
+        }
+        throw new IllegalStateException("Operation not supported");
+    }
+
     @Override
     public BitSet serializeSFloat(Float number) {
         throw new IllegalStateException("Operation not supported");
@@ -21,6 +21,7 @@ package org.sputnikdev.bluetooth.gattparser.num;
  */
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 
 /**
@@ -57,6 +58,46 @@ public interface RealNumberFormatter {
      */
     BigInteger deserializeBigInteger(BitSet bits, int size, boolean signed);
 
+    /**
+     * Reads a real number of up to 64 bits directly from a byte array (little-endian), without creating
+     * intermediate bit sets. Bits beyond the end of the array are read as zeros.
+     * Unsigned numbers of 64 bits are returned as is, i.e. their highest bit becomes the sign bit of the result.
+     * The default implementation falls back to {@link #deserializeInteger(BitSet, int, boolean)}
+     * and {@link #deserializeLong(BitSet, int, boolean)}, so that custom formatters keep working;
+     * implementations are encouraged to override it with a faster one.
+     * @param raw an array of bytes containing the number
+     * @param bitOffset offset in bits of the number in the array
+     * @param bitSize number of bits of the number (up to 64)
+     * @param signed indicates whether a given sequence represents a signed number
+     * @return decoded number
+     */
+    default long readBits(byte[] raw, int bitOffset, int bitSize, boolean signed) {
+        BitSet bits = BitSet.valueOf(raw).get(bitOffset, bitOffset + bitSize);
+        if ((signed && bitSize <= 32) || (!signed && bitSize < 32)) {
+            return deserializeInteger(bits, bitSize, signed);
+        }
+        return deserializeLong(bits, bitSize, signed);
+    }
+
+    /**
+     * Reads a real number of up to 64 bits directly from a byte buffer (little-endian), heap and direct buffers
+     * are supported. The bit offset is relative to the position of the buffer, bits beyond its limit are read
+     * as zeros. Position, limit and byte order of the buffer are not changed.
+     * See {@link #readBits(byte[], int, int, boolean)} for more details.
+     * @param raw a byte buffer containing the number
+     * @param bitOffset offset in bits of the number relative to the position of the buffer
+     * @param bitSize number of bits of the number (up to 64)
+     * @param signed indicates whether a given sequence represents a signed number
+     * @return decoded number
+     */
+    default long readBits(ByteBuffer raw, int bitOffset, int bitSize, boolean signed) {
+        BitSet bits = BitSet.valueOf(raw).get(bitOffset, bitOffset + bitSize);
+        if ((signed && bitSize <= 32) || (!signed && bitSize < 32)) {
+            return deserializeInteger(bits, bitSize, signed);
+        }
+        return deserializeLong(bits, bitSize, signed);
+    }
+
     /**
      * Performs serialization of a given real number encoded as an Integer object into a sequence of bits
      * @param number an Integer object
@@ -84,4 +125,27 @@ public interface RealNumberFormatter {
      */
     BitSet serialize(BigInteger number, int size, boolean signed);
 
+    /**
+     * Serializes a real number of up to 64 bits into its bit pattern (little-endian, the lowest bit of the result
+     * is the first bit of the number), without creating intermediate bit sets. Only the lowest bitSize bits
+     * of the result can be set. This is the counterpart of {@link #readBits(byte[], int, int, boolean)}.
+     * The default implementation falls back to {@link #serialize(Integer, int, boolean)}
+     * and {@link #serialize(Long, int, boolean)}, so that custom formatters keep working;
+     * implementations are encouraged to override it with a faster one.
+     * @param number a real number
+     * @param bitSize number of bits of the number (up to 64)
+     * @param signed indicates whether a given real number is a signed number
+     * @return serialized bits
+     */
+    default long toBits(long number, int bitSize, boolean signed) {
+        BitSet bits;
+        if ((signed && bitSize <= 32) || (!signed && bitSize < 32)) {
+            bits = serialize((int) number, bitSize, signed);
+        } else {
+            bits = serialize(number, bitSize, signed);
+        }
+        long[] words = bits.get(0, bitSize).toLongArray();
+        return words.length > 0 ? words[0] : 0;
+    }
+
 }
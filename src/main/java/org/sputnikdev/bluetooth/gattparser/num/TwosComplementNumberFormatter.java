@@ -21,6 +21,7 @@ package org.sputnikdev.bluetooth.gattparser.num;
  */
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 
 /**
@@ -93,6 +94,74 @@ public class TwosComplementNumberFormatter implements RealNumberFormatter {
         return value;
     }
 
+    @Override
+    public long readBits(byte[] raw, int bitOffset, int bitSize, boolean signed) {
+        if (bitSize > 64) {
+            throw new IllegalArgumentException("size must be less or equal than 64");
+        }
+        if (bitSize <= 0) {
+            return 0;
+        }
+
+        int index = bitOffset >> 3;
+        if ((bitOffset & 7) == 0 && index + (bitSize >> 3) <= raw.length) {
+            // byte aligned fast paths
+            switch (bitSize) {
+                case 8: return signed ? raw[index] : raw[index] & 0xFF;
+                case 16: return extend(readAligned(raw, index, 2), 16, signed);
+                case 24: return extend(readAligned(raw, index, 3), 24, signed);
+                case 32: return extend(readAligned(raw, index, 4), 32, signed);
+                case 48: return extend(readAligned(raw, index, 6), 48, signed);
+                case 64: return readAligned(raw, index, 8);
+                default: break;
+            }
+        }
+
+        int lastIndex = Math.min((bitOffset + bitSize - 1) >> 3, raw.length - 1);
+        int shift = -(bitOffset & 7);
+        long value = 0;
+        for (int i = index; i <= lastIndex; i++, shift += 8) {
+            long b = raw[i] & 0xFFL;
+            value |= shift >= 0 ? b << shift : b >>> -shift;
+        }
+        return extend(value, bitSize, signed);
+    }
+
+    @Override
+    public long readBits(ByteBuffer raw, int bitOffset, int bitSize, boolean signed) {
+        if (bitSize > 64) {
+            throw new IllegalArgumentException("size must be less or equal than 64");
+        }
+        if (bitSize <= 0) {
+            return 0;
+        }
+
+        int position = raw.position();
+        int length = raw.limit() - position;
+        int index = bitOffset >> 3;
+        if ((bitOffset & 7) == 0 && index + (bitSize >> 3) <= length) {
+            // byte aligned fast paths
+            switch (bitSize) {
+                case 8: return signed ? raw.get(position + index) : raw.get(position + index) & 0xFF;
+                case 16: return extend(readAligned(raw, position + index, 2), 16, signed);
+                case 24: return extend(readAligned(raw, position + index, 3), 24, signed);
+                case 32: return extend(readAligned(raw, position + index, 4), 32, signed);
+                case 48: return extend(readAligned(raw, position + index, 6), 48, signed);
+                case 64: return readAligned(raw, position + index, 8);
+                default: break;
+            }
+        }
+
+        int lastIndex = Math.min((bitOffset + bitSize - 1) >> 3, length - 1);
+        int shift = -(bitOffset & 7);
+        long value = 0;
+        for (int i = index; i <= lastIndex; i++, shift += 8) {
+            long b = raw.get(position + i) & 0xFFL;
+            value |= shift >= 0 ? b << shift : b >>> -shift;
+        }
+        return extend(value, bitSize, signed);
+    }
+
     @Override
     public BitSet serialize(Integer number, int size, boolean signed) {
         if (size == 1) {
@@ -137,4 +206,49 @@ public class TwosComplementNumberFormatter implements RealNumberFormatter {
         }
         return bitSet;
     }
+
+    @Override
+    public long toBits(long number, int bitSize, boolean signed) {
+        if (bitSize > 64) {
+            throw new IllegalArgumentException("size must be less or equal than 64");
+        }
+        if (bitSize <= 0) {
+            return 0;
+        }
+        if (bitSize == 1) {
+            signed = false;
+        }
+        long bits = bitSize == 64 ? number : number & (1L << bitSize) - 1;
+        if (signed && number < 0) {
+            bits |= 1L << bitSize - 1;
+        }
+        return bits;
+    }
+
+    private static long readAligned(byte[] raw, int index, int bytes) {
+        long value = 0;
+        for (int i = bytes - 1; i >= 0; i--) {
+            value = value << 8 | raw[index + i] & 0xFFL;
+        }
+        return value;
+    }
+
+    private static long readAligned(ByteBuffer raw, int index, int bytes) {
+        long value = 0;
+        for (int i = bytes - 1; i >= 0; i--) {
+            value = value << 8 | raw.get(index + i) & 0xFFL;
+        }
+        return value;
+    }
+
+    private static long extend(long value, int size, boolean signed) {
+        if (size >= 64) {
+            return value;
+        }
+        int shift = 64 - size;
+        if (signed && size > 1) {
+            return value << shift >> shift;
+        }
+        return value & -1L >>> shift;
+    }
 }
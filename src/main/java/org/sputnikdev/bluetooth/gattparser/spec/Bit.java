@@ -43,6 +43,10 @@ public class Bit {
     @XStreamAlias("Enumerations")
     private Enumerations enumerations;
 
+    // flags lookup table, see resolve(); transient fields are not read by XStream
+    private transient EnumerationIndex enumerationIndex;
+    private transient long[] flagsMasks;
+
     public int getIndex() {
         return index;
     }
@@ -60,6 +64,11 @@ public class Bit {
     }
 
     public String getFlag(byte value) {
+        EnumerationIndex index = enumerationIndex;
+        if (index != null) {
+            Enumeration enumeration = index.get(value);
+            return enumeration != null ? enumeration.getRequires() : null;
+        }
         if (enumerations == null) {
             return null;
         }
@@ -70,4 +79,41 @@ public class Bit {
         }
         return null;
     }
+
+    /**
+     * Returns flags of a value of this bit encoded as a bit mask, see {@link Field#getRequirementMask()}.
+     * Defined only if {@link Characteristic#hasRequirementMasks()} is true.
+     * @param value a value of this bit
+     * @return flags bit mask, 0 if the value does not have any flags
+     */
+    public long getFlagsMask(int value) {
+        return flagsMasks != null && value >= 0 && value < flagsMasks.length ? flagsMasks[value] : 0;
+    }
+
+    void setFlagsMasks(long[] flagsMasks) {
+        this.flagsMasks = flagsMasks;
+    }
+
+    /**
+     * Builds the flags lookup table in advance, so that flags are looked up without iterating over enumerations.
+     */
+    void resolve() {
+        enumerationIndex = EnumerationIndex.of(enumerations);
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setEnumerations(Enumerations enumerations) {
+        this.enumerations = enumerations;
+    }
 }
@@ -40,4 +40,8 @@ public class BitField {
         return bits;
     }
 
+    void setBits(List<Bit> bits) {
+        this.bits = bits;
+    }
+
 }
@@ -23,22 +23,6 @@ package org.sputnikdev.bluetooth.gattparser.spec;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
-import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.converters.Converter;
-import com.thoughtworks.xstream.converters.basic.*;
-import com.thoughtworks.xstream.converters.collections.*;
-import com.thoughtworks.xstream.converters.extended.*;
-import com.thoughtworks.xstream.converters.reflection.ExternalizableConverter;
-import com.thoughtworks.xstream.converters.reflection.ReflectionConverter;
-import com.thoughtworks.xstream.converters.reflection.SerializableConverter;
-import com.thoughtworks.xstream.core.JVM;
-import com.thoughtworks.xstream.core.util.SelfStreamingInstanceChecker;
-import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
-import com.thoughtworks.xstream.io.xml.DomDriver;
-import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
-import com.thoughtworks.xstream.io.xml.StaxDriver;
-import com.thoughtworks.xstream.security.NoTypePermission;
-import com.thoughtworks.xstream.security.WildcardTypePermission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,8 +39,15 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -83,20 +74,39 @@ public class BluetoothGattSpecificationReader {
     private static final String CLASSPATH_SPEC_FULL_SERVICE_FILE_NAME =
             SPEC_ROOT_FOLDER_NAME + "/" + SPEC_SERVICES_FOLDER_NAME + "/" + SPEC_REGISTRY_FILE_NAME;
     private final Logger logger = LoggerFactory.getLogger(BluetoothGattSpecificationReader.class);
+    private final SpecificationLoader specificationLoader;
 
-    private final Map<String, URL> servicesRegistry = new HashMap<>();
-    private final Map<String, URL> characteristicsRegistry = new HashMap<>();
-    private final Map<String, String> characteristicsTypeRegistry = new HashMap<>();
+    private final Map<String, URL> servicesRegistry = new ConcurrentHashMap<>();
+    private final Map<String, URL> characteristicsRegistry = new ConcurrentHashMap<>();
+    private final Map<String, String> characteristicsTypeRegistry = new ConcurrentHashMap<>();
 
-    private final Map<String, Service> services = new HashMap<>();
-    private final Map<String, Characteristic> characteristicsByUUID = new HashMap<>();
-    private final Map<String, Characteristic> characteristicsByType = new HashMap<>();
+    private final Map<String, Service> services = new ConcurrentHashMap<>();
+    private final Map<String, Characteristic> characteristicsByUUID = new ConcurrentHashMap<>();
+    private final Map<String, Characteristic> characteristicsByType = new ConcurrentHashMap<>();
+
+    // specifications being loaded (or already loaded) from the registries, one load per specification
+    private final ConcurrentMap<String, FutureTask<Service>> serviceLoads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FutureTask<Characteristic>> characteristicLoads = new ConcurrentHashMap<>();
+    // changes whenever extensions are loaded, i.e. when registered specifications may have been overridden
+    private final AtomicInteger generation = new AtomicInteger();
 
     /**
      * Creates an instance of GATT specification reader and pre-cache GATT specification files from java classpath
      * by the following paths: gatt/characteristic and gatt/service.
      */
     public BluetoothGattSpecificationReader() {
+        this(new BundledSpecificationLoader());
+    }
+
+    /**
+     * Creates an instance of GATT specification reader which reads GATT specification files with the given loader
+     * and pre-cache GATT specification files from java classpath by the following paths:
+     * gatt/characteristic and gatt/service.
+     *
+     * @param specificationLoader GATT specification file loader
+     */
+    public BluetoothGattSpecificationReader(SpecificationLoader specificationLoader) {
+        this.specificationLoader = Objects.requireNonNull(specificationLoader, "Specification loader cannot be null");
         URL servicesResource = getClass().getClassLoader().getResource(CLASSPATH_SPEC_FULL_SERVICE_FILE_NAME);
         URL characteristicsResource = getClass().getClassLoader().getResource(CLASSPATH_SPEC_FULL_CHARACTERISTIC_FILE_NAME);
 
@@ -110,19 +120,15 @@ public class BluetoothGattSpecificationReader {
      * @return GATT service specification
      */
     public Service getService(String uuid) {
-        if (services.containsKey(uuid)) {
-            return services.get(uuid);
-        } else if (servicesRegistry.containsKey(uuid)) {
-            synchronized (services) {
-                // is it still not loaded?
-                if (!services.containsKey(uuid)) {
-                    Service service = loadService(uuid);
-                    addService(service);
-                    return service;
-                }
-            }
+        Service service = services.get(uuid);
+        if (service != null || !servicesRegistry.containsKey(uuid)) {
+            return service;
         }
-        return null;
+        return load(serviceLoads, uuid, () -> {
+            Service loaded = loadService(uuid);
+            addService(loaded);
+            return loaded;
+        });
     }
 
     /**
@@ -132,19 +138,15 @@ public class BluetoothGattSpecificationReader {
      * @return GATT characteristic specification
      */
     public Characteristic getCharacteristicByUUID(String uuid) {
-        if (characteristicsByUUID.containsKey(uuid)) {
-            return characteristicsByUUID.get(uuid);
-        } else if (characteristicsRegistry.containsKey(uuid)) {
-            synchronized (characteristicsByUUID) {
-                // is it still not loaded?
-                if (!characteristicsByUUID.containsKey(uuid)) {
-                    Characteristic characteristic = loadCharacteristic(uuid);
-                    addCharacteristic(characteristic);
-                    return characteristic;
-                }
-            }
+        Characteristic characteristic = characteristicsByUUID.get(uuid);
+        if (characteristic != null || !characteristicsRegistry.containsKey(uuid)) {
+            return characteristic;
         }
-        return null;
+        return load(characteristicLoads, uuid, () -> {
+            Characteristic loaded = loadCharacteristic(uuid);
+            addCharacteristic(loaded);
+            return loaded;
+        });
     }
 
     /**
@@ -154,20 +156,12 @@ public class BluetoothGattSpecificationReader {
      * @return GATT characteristic specification
      */
     public Characteristic getCharacteristicByType(String type) {
-        if (characteristicsByType.containsKey(type)) {
-            return characteristicsByType.get(type);
-        } else if (characteristicsTypeRegistry.containsKey(type)) {
-            synchronized (characteristicsByUUID) {
-                // is it still not loaded?
-                if (!characteristicsByType.containsKey(type)) {
-                    Characteristic characteristic = loadCharacteristic(
-                            characteristicsTypeRegistry.get(type));
-                    addCharacteristic(characteristic);
-                    return characteristic;
-                }
-            }
+        Characteristic characteristic = characteristicsByType.get(type);
+        if (characteristic != null) {
+            return characteristic;
         }
-        return null;
+        String uuid = characteristicsTypeRegistry.get(type);
+        return uuid != null ? getCharacteristicByUUID(uuid) : null;
     }
 
     /**
@@ -188,6 +182,17 @@ public class BluetoothGattSpecificationReader {
         return new ArrayList<>(services.values());
     }
 
+    /**
+     * Returns a number which changes whenever services and characteristics are loaded or overridden
+     * by extensions (see {@link #loadExtensionsFromFolder(String)}). Anything derived from specifications,
+     * e.g. compiled characteristic parse plans, is stale once the number changes.
+     *
+     * @return generation of registered specifications
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
     /**
      * Returns a list of field specifications for a given characteristic.
      * Note that field references are taken into account. Referencing fields are not returned,
@@ -229,6 +234,7 @@ public class BluetoothGattSpecificationReader {
         readServices(getFilesFromFolder(servicesFolderName));
         logger.info("Reading characteristics from folder: " + characteristicsFolderName);
         readCharacteristics(getFilesFromFolder(characteristicsFolderName));
+        generation.incrementAndGet();
     }
 
     private static URL getSpecResourceURL(URL catalogURL, String characteristicType) throws MalformedURLException {
@@ -277,6 +283,7 @@ public class BluetoothGattSpecificationReader {
         servicesRegistry.putAll(loadedServicesRegistry);
         characteristicsRegistry.putAll(loadedCharacteristicsRegistry);
         characteristicsTypeRegistry.putAll(loadedTypeRegistry);
+        generation.incrementAndGet();
     }
 
     Set<String> getRequirements(List<Field> fields, Field flags) {
@@ -311,7 +318,7 @@ public class BluetoothGattSpecificationReader {
         services.put(service.getUuid(), service);
     }
 
-    private void validate(Characteristic characteristic) {
+    void validate(Characteristic characteristic) {
         List<Field> fields = characteristic.getValue().getFields();
         if (fields.isEmpty()) {
             logger.warn("Characteristic \"{}\" does not have any Fields tags, "
@@ -321,6 +328,7 @@ public class BluetoothGattSpecificationReader {
         Field flags = null;
         Field opCodes = null;
         for (Field field : fields) {
+            field.resolve();
             if (field.isFlagField()) {
                 flags = field;
             }
@@ -328,6 +336,7 @@ public class BluetoothGattSpecificationReader {
                 opCodes = field;
             }
         }
+        RequirementMasks.resolve(characteristic);
         Set<String> readFlags = flags != null ? flags.getAllFlags() : Collections.emptySet();
         Set<String> writeFlags = opCodes != null ? opCodes.getAllOpCodes() : Collections.emptySet();
         Set<String> requirements = getRequirements(fields, flags);
@@ -369,6 +378,39 @@ public class BluetoothGattSpecificationReader {
         return urls;
     }
 
+    /**
+     * Loads a specification exactly once, even if it is requested by many threads at the same time.
+     * Only the threads requesting the same specification wait for each other, lookups of other specifications
+     * are never blocked. If loading fails, the failure is propagated to all the waiting threads and the next
+     * request tries to load the specification again.
+     */
+    private static <T> T load(ConcurrentMap<String, FutureTask<T>> loads, String uuid, Callable<T> loader) {
+        FutureTask<T> task = loads.get(uuid);
+        if (task == null) {
+            FutureTask<T> newTask = new FutureTask<>(loader);
+            task = loads.putIfAbsent(uuid, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            loads.remove(uuid, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading GATT specification: " + uuid, e);
+        }
+    }
+
     private Service loadService(String uuid) {
         URL url = servicesRegistry.get(uuid);
         return getService(url);
@@ -398,149 +440,17 @@ public class BluetoothGattSpecificationReader {
     }
 
     private Service getService(URL file) {
-        return getSpec(file, Service.class);
+        try {
+            return specificationLoader.loadService(file);
+        } catch (Exception e) {
+            logger.error("Could not read file: " + file, e);
+            return null;
+        }
     }
 
     private Characteristic getCharacteristic(URL file) {
-        return getSpec(file, Characteristic.class);
-    }
-
-    private <T> T getSpec(URL file, Class<T> clazz) {
         try {
-            /*
-            XStream xstream = new XStream(new DomDriver());
-            // GP fix security warning
-            XStream.setupDefaultSecurity(xstream);
-            xstream.allowTypes(ALLOWED_CLASSES);
-            // end GP Fix
-            */
-            // ***
-            XStream xstream = new XStream(new DomDriver() {
-                @Override
-                public HierarchicalStreamWriter createWriter(Writer out) {
-                    return new PrettyPrintWriter(out, "    ");
-                }
-            }) {
-
-                // only register the converters we need; other converters generate a private access warning in the console on Java9+...
-                @Override
-                protected void setupConverters() {
-                    /*
-                    registerConverter(new NullConverter(), PRIORITY_VERY_HIGH);
-                    registerConverter(new IntConverter(), PRIORITY_NORMAL);
-                    registerConverter(new FloatConverter(), PRIORITY_NORMAL);
-                    registerConverter(new DoubleConverter(), PRIORITY_NORMAL);
-                    registerConverter(new LongConverter(), PRIORITY_NORMAL);
-                    registerConverter(new ShortConverter(), PRIORITY_NORMAL);
-                    registerConverter(new BooleanConverter(), PRIORITY_NORMAL);
-                    registerConverter(new ByteConverter(), PRIORITY_NORMAL);
-                    registerConverter(new StringConverter(), PRIORITY_NORMAL);
-                    registerConverter(new DateConverter(), PRIORITY_NORMAL);
-                    registerConverter(new CollectionConverter(getMapper()), PRIORITY_NORMAL);
-                    registerConverter(new ReflectionConverter(getMapper(), getReflectionProvider()), PRIORITY_VERY_LOW);
-                    */
-                    registerConverter(new ReflectionConverter(getMapper(), getReflectionProvider()), PRIORITY_VERY_LOW);
-
-                    registerConverter(new SerializableConverter(getMapper(), getReflectionProvider(), getClassLoaderReference()), PRIORITY_LOW);
-                    registerConverter(new ExternalizableConverter(getMapper(), getClassLoaderReference()), PRIORITY_LOW);
-
-                    registerConverter(new NullConverter(), PRIORITY_VERY_HIGH);
-                    registerConverter(new IntConverter(), PRIORITY_NORMAL);
-                    registerConverter(new FloatConverter(), PRIORITY_NORMAL);
-                    registerConverter(new DoubleConverter(), PRIORITY_NORMAL);
-                    registerConverter(new LongConverter(), PRIORITY_NORMAL);
-                    registerConverter(new ShortConverter(), PRIORITY_NORMAL);
-                    registerConverter((Converter)new CharConverter(), PRIORITY_NORMAL);
-                    registerConverter(new BooleanConverter(), PRIORITY_NORMAL);
-                    registerConverter(new ByteConverter(), PRIORITY_NORMAL);
-
-                    registerConverter(new StringConverter(), PRIORITY_NORMAL);
-                    registerConverter(new StringBufferConverter(), PRIORITY_NORMAL);
-                    registerConverter(new DateConverter(), PRIORITY_NORMAL);
-                    registerConverter(new BitSetConverter(), PRIORITY_NORMAL);
-                    registerConverter(new URIConverter(), PRIORITY_NORMAL);
-                    registerConverter(new URLConverter(), PRIORITY_NORMAL);
-                    registerConverter(new BigIntegerConverter(), PRIORITY_NORMAL);
-                    registerConverter(new BigDecimalConverter(), PRIORITY_NORMAL);
-
-                    registerConverter(new ArrayConverter(getMapper()), PRIORITY_NORMAL);
-                    registerConverter(new CharArrayConverter(), PRIORITY_NORMAL);
-                    registerConverter(new CollectionConverter(getMapper()), PRIORITY_NORMAL);
-                    registerConverter(new MapConverter(getMapper()), PRIORITY_NORMAL);
-
-                    /* Remove to prevent Illegal reflective Access warning in java 11+
-                    */
-                    registerConverter(new TreeMapConverter(getMapper()), PRIORITY_NORMAL);
-                    registerConverter(new TreeSetConverter(getMapper()), PRIORITY_NORMAL);
-                    /*
-                    */
-
-                    registerConverter(new SingletonCollectionConverter(getMapper()), PRIORITY_NORMAL);
-                    registerConverter(new SingletonMapConverter(getMapper()), PRIORITY_NORMAL);
-
-                    /* Remove to prevent Illegal reflective Access warning in java 11+
-                    */
-                    registerConverter(new PropertiesConverter(), PRIORITY_NORMAL);
-                    /*
-                    */
-
-                    registerConverter((Converter)new EncodedByteArrayConverter(), PRIORITY_NORMAL);
-
-                    registerConverter(new FileConverter(), PRIORITY_NORMAL);
-                    /*
-                    if (JVM.isSQLAvailable()) {
-                        registerConverter(new SqlTimestampConverter(), PRIORITY_NORMAL);
-                        registerConverter(new SqlTimeConverter(), PRIORITY_NORMAL);
-                        registerConverter(new SqlDateConverter(), PRIORITY_NORMAL);
-                    }
-                    */
-
-                    registerConverter(new JavaClassConverter(getClassLoaderReference()), PRIORITY_NORMAL);
-                    registerConverter(new JavaMethodConverter(getClassLoaderReference()), PRIORITY_NORMAL);
-                    registerConverter(new JavaFieldConverter(getClassLoaderReference()), PRIORITY_NORMAL);
-
-                    /*
-                    if (JVM.isAWTAvailable()) {
-                        registerConverter(new ColorConverter(), PRIORITY_NORMAL);
-                    }
-                    if (JVM.isSwingAvailable()) {
-                        registerConverter(new LookAndFeelConverter(getMapper(), getReflectionProvider()), PRIORITY_NORMAL);
-                    }
-                    */
-                    registerConverter(new LocaleConverter(), PRIORITY_NORMAL);
-                    registerConverter(new GregorianCalendarConverter(), PRIORITY_NORMAL);
-
-                    registerConverter(new SelfStreamingInstanceChecker(getConverterLookup(), this), PRIORITY_NORMAL);
-                }
-
-            };
-            // setup proper security by limiting which classes can be loaded by XStream
-            xstream.addPermission(NoTypePermission.NONE);
-            xstream.addPermission(
-                new WildcardTypePermission(
-                    new String[] {this.getClass().getPackageName() + ".**"}
-                )
-            );
-            // ***
-            xstream.autodetectAnnotations(true);
-            xstream.processAnnotations(Bit.class);
-            xstream.processAnnotations(BitField.class);
-            xstream.processAnnotations(Characteristic.class);
-            xstream.processAnnotations(Enumeration.class);
-            xstream.processAnnotations(Enumerations.class);
-            xstream.processAnnotations(Field.class);
-            xstream.processAnnotations(InformativeText.class);
-            xstream.processAnnotations(Service.class);
-            xstream.processAnnotations(Value.class);
-            xstream.processAnnotations(Reserved.class);
-            xstream.processAnnotations(Examples.class);
-            xstream.processAnnotations(CharacteristicAccess.class);
-            xstream.processAnnotations(Characteristics.class);
-            xstream.processAnnotations(Properties.class);
-            xstream.ignoreUnknownElements();
-            xstream.setClassLoader(Characteristic.class.getClassLoader());
-
-            return (T) clazz.cast(xstream.fromXML(file));
+            return specificationLoader.loadCharacteristic(file);
         } catch (Exception e) {
             logger.error("Could not read file: " + file, e);
             return null;
@@ -0,0 +1,84 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Reads GATT specifications from the precompiled specification bundle generated at build time
+ * (see {@link SpecificationBundle}), without parsing any XML. Specification files which are not in the bundle,
+ * e.g. user extensions, are read by a fallback loader. The bundle is read once, when the first bundled
+ * loader is created, and shared by all bundled loaders. This is the default specification loader.
+ */
+public class BundledSpecificationLoader implements SpecificationLoader {
+
+    private final SpecificationBundle bundle;
+    private final SpecificationLoader fallback;
+
+    /**
+     * Creates a loader which reads specification files which are not bundled with XStream.
+     */
+    public BundledSpecificationLoader() {
+        this(new XStreamSpecificationLoader());
+    }
+
+    /**
+     * Creates a loader which reads specification files which are not bundled with the given loader.
+     *
+     * @param fallback loader of specification files which are not bundled
+     */
+    public BundledSpecificationLoader(SpecificationLoader fallback) {
+        this(BundleHolder.BUNDLE, fallback);
+    }
+
+    BundledSpecificationLoader(SpecificationBundle bundle, SpecificationLoader fallback) {
+        this.bundle = bundle;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Characteristic loadCharacteristic(URL file) throws IOException {
+        Characteristic characteristic = bundle != null ? bundle.getCharacteristic(file) : null;
+        return characteristic != null ? characteristic : fallback.loadCharacteristic(file);
+    }
+
+    @Override
+    public Service loadService(URL file) throws IOException {
+        Service service = bundle != null ? bundle.getService(file) : null;
+        return service != null ? service : fallback.loadService(file);
+    }
+
+    /**
+     * Checks whether specifications are read from the bundle, i.e. the bundle is found on the classpath.
+     *
+     * @return true if specifications are read from the bundle
+     */
+    public boolean isBundled() {
+        return bundle != null;
+    }
+
+    private static final class BundleHolder {
+        private static final SpecificationBundle BUNDLE = SpecificationBundle.loadBundled();
+    }
+
+}
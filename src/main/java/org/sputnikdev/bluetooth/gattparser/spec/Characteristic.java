@@ -22,6 +22,9 @@ package org.sputnikdev.bluetooth.gattparser.spec;
 
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import com.thoughtworks.xstream.annotations.XStreamAsAttribute;
+import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
+
+import java.util.List;
 
 /**
  *
@@ -42,6 +45,7 @@ public class Characteristic {
 
     private boolean validForRead;
     private boolean validForWrite;
+    private transient boolean requirementMasks;
 
     public String getName() {
         return name;
@@ -78,4 +82,37 @@ public class Characteristic {
     void setValidForWrite(boolean validForWrite) {
         this.validForWrite = validForWrite;
     }
+
+    /**
+     * Checks whether field requirements and flags of the characteristic are encoded as bit masks,
+     * see {@link Field#getRequirementMask()} and {@link IFlagUtils#getReadFlagsMask(List, byte[], RealNumberFormatter)}.
+     * @return true if field requirements and flags are encoded as bit masks
+     */
+    public boolean hasRequirementMasks() {
+        return requirementMasks;
+    }
+
+    void setRequirementMasks(boolean requirementMasks) {
+        this.requirementMasks = requirementMasks;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    void setInformativeText(InformativeText informativeText) {
+        this.informativeText = informativeText;
+    }
+
+    void setValue(Value value) {
+        this.value = value;
+    }
 }
@@ -63,4 +63,24 @@ public class CharacteristicAccess {
         return properties;
     }
 
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    void setInformativeText(String informativeText) {
+        this.informativeText = informativeText;
+    }
+
+    void setRequirement(String requirement) {
+        this.requirement = requirement;
+    }
+
+    void setProperties(List<Properties> properties) {
+        this.properties = properties;
+    }
+
 }
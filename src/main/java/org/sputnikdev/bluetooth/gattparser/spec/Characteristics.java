@@ -39,4 +39,8 @@ public class Characteristics {
         return characteristics;
     }
 
+    void setCharacteristics(List<CharacteristicAccess> characteristics) {
+        this.characteristics = characteristics;
+    }
+
 }
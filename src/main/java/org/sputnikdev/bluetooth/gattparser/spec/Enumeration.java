@@ -51,4 +51,16 @@ public class Enumeration {
         return requires;
     }
 
+    void setKey(BigInteger key) {
+        this.key = key;
+    }
+
+    void setValue(String value) {
+        this.value = value;
+    }
+
+    void setRequires(String requires) {
+        this.requires = requires;
+    }
+
 }
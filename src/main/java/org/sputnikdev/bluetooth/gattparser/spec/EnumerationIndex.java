@@ -0,0 +1,174 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable lookup table of enumerations of a field or a bit, built once when a GATT specification is loaded.
+ * Keys which fit into a small range are looked up in a dense array, other keys which fit into a long are looked up
+ * in an open addressing hash table of primitive longs, so that looking up an enumeration by a long key
+ * does not create any objects. Keys which do not fit into a long (e.g. keys of string fields) are looked up
+ * in a hash map. Enumerations are also indexed by their values.
+ * If there are several enumerations with the same key, the first one is returned, the same as a linear search does.
+ */
+final class EnumerationIndex {
+
+    static final EnumerationIndex EMPTY = new EnumerationIndex(Collections.emptyList());
+
+    // dense arrays are used if they are not much bigger than the number of enumerations
+    private static final int MIN_DENSE_SIZE = 256;
+    private static final int DENSE_FACTOR = 4;
+
+    private final long denseBase;
+    private final Enumeration[] dense;
+    private final long[] hashKeys;
+    private final Enumeration[] hashValues;
+    private final Map<BigInteger, Enumeration> bigKeys;
+    private final Map<String, List<Enumeration>> values;
+
+    private EnumerationIndex(List<Enumeration> enumerations) {
+        List<Enumeration> longKeys = new ArrayList<>();
+        Map<BigInteger, Enumeration> bigKeys = new HashMap<>();
+        Map<String, List<Enumeration>> values = new HashMap<>();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Enumeration enumeration : enumerations) {
+            BigInteger key = enumeration.getKey();
+            if (key != null) {
+                if (key.bitLength() < Long.SIZE) {
+                    long value = key.longValue();
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    longKeys.add(enumeration);
+                } else {
+                    bigKeys.putIfAbsent(key, enumeration);
+                }
+            }
+            if (enumeration.getValue() != null) {
+                values.computeIfAbsent(enumeration.getValue(), k -> new ArrayList<>()).add(enumeration);
+            }
+        }
+        values.replaceAll((value, list) -> Collections.unmodifiableList(list));
+        this.bigKeys = bigKeys.isEmpty() ? Collections.emptyMap() : bigKeys;
+        this.values = values.isEmpty() ? Collections.emptyMap() : values;
+
+        long range = longKeys.isEmpty() ? 0 : max - min + 1;
+        if (range > 0 && range <= Math.max(MIN_DENSE_SIZE, DENSE_FACTOR * longKeys.size())) {
+            denseBase = min;
+            dense = new Enumeration[(int) range];
+            for (Enumeration enumeration : longKeys) {
+                int index = (int) (enumeration.getKey().longValue() - min);
+                if (dense[index] == null) {
+                    dense[index] = enumeration;
+                }
+            }
+            hashKeys = null;
+            hashValues = null;
+        } else {
+            denseBase = 0;
+            dense = null;
+            if (longKeys.isEmpty()) {
+                hashKeys = null;
+                hashValues = null;
+            } else {
+                // load factor is at most 0.5, hence there is always an empty slot
+                int capacity = Integer.highestOneBit(longKeys.size() * 2 - 1) << 1;
+                hashKeys = new long[capacity];
+                hashValues = new Enumeration[capacity];
+                for (Enumeration enumeration : longKeys) {
+                    long key = enumeration.getKey().longValue();
+                    int slot = find(key);
+                    if (hashValues[slot] == null) {
+                        hashKeys[slot] = key;
+                        hashValues[slot] = enumeration;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds an index of the given enumerations.
+     * @param enumerations enumerations, can be null
+     * @return enumeration index
+     */
+    static EnumerationIndex of(Enumerations enumerations) {
+        if (enumerations == null || enumerations.getEnumerations() == null
+                || enumerations.getEnumerations().isEmpty()) {
+            return EMPTY;
+        }
+        return new EnumerationIndex(enumerations.getEnumerations());
+    }
+
+    /**
+     * Returns an enumeration by its key.
+     * @param key enumeration key
+     * @return enumeration or null if there is no enumeration with the given key
+     */
+    Enumeration get(long key) {
+        if (dense != null) {
+            long index = key - denseBase;
+            return index >= 0 && index < dense.length ? dense[(int) index] : null;
+        } else if (hashKeys != null) {
+            return hashValues[find(key)];
+        }
+        return null;
+    }
+
+    /**
+     * Returns an enumeration by its key.
+     * @param key enumeration key
+     * @return enumeration or null if there is no enumeration with the given key
+     */
+    Enumeration get(BigInteger key) {
+        if (key == null) {
+            return null;
+        }
+        return key.bitLength() < Long.SIZE ? get(key.longValue()) : bigKeys.get(key);
+    }
+
+    /**
+     * Returns all enumerations which have the given value.
+     * @param value enumeration value
+     * @return an unmodifiable list of enumerations
+     */
+    List<Enumeration> get(String value) {
+        List<Enumeration> result = value != null ? values.get(value) : null;
+        return result != null ? result : Collections.emptyList();
+    }
+
+    private int find(long key) {
+        int mask = hashKeys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (hashValues[slot] != null && hashKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+}
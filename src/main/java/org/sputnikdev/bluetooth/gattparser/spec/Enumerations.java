@@ -47,4 +47,12 @@ public class Enumerations {
     public List<Reserved> getReserves() {
         return reserves != null ? Collections.unmodifiableList(reserves) : reserves;
     }
+
+    void setEnumerations(List<Enumeration> enumerations) {
+        this.enumerations = enumerations;
+    }
+
+    void setReserves(List<Reserved> reserves) {
+        this.reserves = reserves;
+    }
 }
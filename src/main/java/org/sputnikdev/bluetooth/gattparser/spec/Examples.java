@@ -37,7 +37,11 @@ public class Examples {
     private List<String> examples;
 
     public List<String> getExamples() {
-        return Collections.unmodifiableList(examples);
+        return examples != null ? Collections.unmodifiableList(examples) : null;
+    }
+
+    void setExamples(List<String> examples) {
+        this.examples = examples;
     }
 
 }
@@ -26,6 +26,7 @@ import com.thoughtworks.xstream.annotations.XStreamImplicit;
 import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -72,10 +73,20 @@ public class Field {
     @XStreamAsAttribute
     private boolean system;
 
+    // resolved format, scale and enumerations, see getFormat() and resolve(); transient fields are not read by XStream
+    private transient FieldFormat fieldFormat;
+    private transient Scale scale;
+    private transient EnumerationIndex enumerationIndex;
+    private transient long requirementMask;
+
     public String getName() {
         return name != null ? name.trim() : null;
     }
 
+    String getRawName() {
+        return name;
+    }
+
     public String getInformativeText() {
         return informativeText;
     }
@@ -84,8 +95,104 @@ public class Field {
         return requirements;
     }
 
+    String getRawFormat() {
+        return format;
+    }
+
     public FieldFormat getFormat() {
-        return FieldFormat.valueOf(format);
+        // FieldFormat is immutable, hence it is safe to publish it without synchronization
+        FieldFormat resolved = fieldFormat;
+        if (resolved == null && format != null) {
+            resolved = FieldFormat.valueOf(format);
+            fieldFormat = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the factor which field values are multiplied by, i.e. a product of the multiplier, 10 to the power of
+     * the decimal exponent and 2 to the power of the binary exponent.
+     * @return scale factor of the field
+     */
+    public final double getScaleFactor() {
+        Scale resolved = scale;
+        return resolved != null ? resolved.factor : computeScaleFactor();
+    }
+
+    /**
+     * Returns the offset which is added to (scaled) field values, 0 if the field does not define any offset.
+     * @return offset of the field
+     */
+    public final double getScaleOffset() {
+        Scale resolved = scale;
+        return resolved != null ? resolved.offset : computeScaleOffset();
+    }
+
+    /**
+     * Checks whether field values are to be scaled, i.e. the scale factor is not 1 or the offset is not 0.
+     * @return true if field values are to be scaled
+     */
+    public final boolean isScaled() {
+        Scale resolved = scale;
+        return resolved != null ? resolved.scaled : computeScaleFactor() != 1.0 || computeScaleOffset() != 0.0;
+    }
+
+    /**
+     * Resolves the field format, scale and enumeration lookup tables in advance, so that they do not have to be
+     * computed on a hot path. Malformed formats are not reported here, they are reported when the field is read
+     * or written.
+     */
+    void resolve() {
+        try {
+            getFormat();
+        } catch (IllegalStateException ignored) {
+            // reported by getFormat() later
+        }
+        scale = new Scale(computeScaleFactor(), computeScaleOffset());
+        enumerationIndex = EnumerationIndex.of(getEnumerations());
+        if (getBitField() != null && getBitField().getBits() != null) {
+            for (Bit bit : getBitField().getBits()) {
+                bit.resolve();
+            }
+        }
+    }
+
+    private double computeScaleFactor() {
+        double factor = 1;
+        Integer decimalExponent = getDecimalExponent();
+        if (decimalExponent != null) {
+            factor = Math.pow(10, decimalExponent);
+        }
+        Integer binaryExponent = getBinaryExponent();
+        if (binaryExponent != null) {
+            factor *= Math.pow(2, binaryExponent);
+        }
+        Integer multiplier = getMultiplier();
+        if (multiplier != null && multiplier != 0) {
+            factor *= (double) multiplier;
+        }
+        return factor;
+    }
+
+    private double computeScaleOffset() {
+        Double offset = getOffset();
+        return offset != null ? offset : 0;
+    }
+
+    /**
+     * Returns requirements of the field encoded as a bit mask, each requirement is assigned a bit position
+     * within the characteristic when the specification is loaded. The field is present in a characteristic value
+     * if all bits of its mask are set in the mask of the flags of the value
+     * (see {@link IFlagUtils#getReadFlagsMask(List, byte[], RealNumberFormatter)}).
+     * Defined only if {@link Characteristic#hasRequirementMasks()} is true.
+     * @return requirements bit mask, 0 if the field does not have any requirements
+     */
+    public long getRequirementMask() {
+        return requirementMask;
+    }
+
+    void setRequirementMask(long requirementMask) {
+        this.requirementMask = requirementMask;
     }
 
     public BitField getBitField() {
@@ -159,16 +266,38 @@ public class Field {
         if (key == null) {
             return Optional.empty();
         }
+        EnumerationIndex index = enumerationIndex;
+        if (index != null) {
+            return Optional.ofNullable(index.get(key));
+        }
 
         return Optional.ofNullable(getEnumerations()).map(Enumerations::getEnumerations)
             .map(Collection::stream).orElse(Stream.empty())
             .filter(e -> key.equals(e.getKey())).findAny();
     }
 
+    /**
+     * Returns an enumeration by its key. Unlike {@link #getEnumeration(BigInteger)}, it does not create any objects
+     * once the field is loaded by {@link BluetoothGattSpecificationReader}.
+     * @param key enumeration key
+     * @return enumeration or null if the field does not have an enumeration with the given key
+     */
+    public Enumeration findEnumeration(long key) {
+        EnumerationIndex index = enumerationIndex;
+        if (index != null) {
+            return index.get(key);
+        }
+        return getEnumeration(BigInteger.valueOf(key)).orElse(null);
+    }
+
     public List<Enumeration> getEnumerations(String value) {
         if (value == null) {
             return Collections.emptyList();
         }
+        EnumerationIndex index = enumerationIndex;
+        if (index != null) {
+            return index.get(value);
+        }
 
         return Optional.ofNullable(getEnumerations()).map(Enumerations::getEnumerations)
             .map(Collection::stream).orElse(Stream.empty())
@@ -204,7 +333,14 @@ public class Field {
     // package protected methods
 
     int[] parseReadFlags(byte[] raw, int index, RealNumberFormatter formatter) {
-        BitSet bitSet = BitSet.valueOf(raw).get(index, index + getFormat().getSize());
+        return parseReadFlags(BitSet.valueOf(raw).get(index, index + getFormat().getSize()), formatter);
+    }
+
+    int[] parseReadFlags(ByteBuffer raw, int index, RealNumberFormatter formatter) {
+        return parseReadFlags(BitSet.valueOf(raw).get(index, index + getFormat().getSize()), formatter);
+    }
+
+    private int[] parseReadFlags(BitSet bitSet, RealNumberFormatter formatter) {
         List<Bit> bits = getBitField().getBits();
         int[] flags = new int[bits.size()];
         int offset = 0;
@@ -216,5 +352,84 @@ public class Field {
         return flags;
     }
 
+    /**
+     * Immutable (hence safely published) scale of field values.
+     */
+    private static final class Scale {
+
+        private final double factor;
+        private final double offset;
+        private final boolean scaled;
+
+        private Scale(double factor, double offset) {
+            this.factor = factor;
+            this.offset = offset;
+            this.scaled = factor != 1.0 || offset != 0.0;
+        }
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setInformativeText(String informativeText) {
+        this.informativeText = informativeText;
+    }
+
+    void setRequirements(List<String> requirements) {
+        this.requirements = requirements;
+    }
+
+    void setReference(String reference) {
+        this.reference = reference;
+    }
+
+    void setFormat(String format) {
+        this.format = format;
+    }
+
+    void setBitField(BitField bitField) {
+        this.bitField = bitField;
+    }
+
+    void setDecimalExponent(Integer decimalExponent) {
+        this.decimalExponent = decimalExponent;
+    }
+
+    void setBinaryExponent(Integer binaryExponent) {
+        this.binaryExponent = binaryExponent;
+    }
+
+    void setMultiplier(Integer multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    void setMinimum(Double minimum) {
+        this.minimum = minimum;
+    }
+
+    void setMaximum(Double maximum) {
+        this.maximum = maximum;
+    }
+
+    void setOffset(Double offset) {
+        this.offset = offset;
+    }
+
+    void setEnumerations(Enumerations enumerations) {
+        this.enumerations = enumerations;
+    }
+
+    void setUnknown(boolean unknown) {
+        this.unknown = unknown;
+    }
+
+    void setSystem(boolean system) {
+        this.system = system;
+    }
 
 }
@@ -48,6 +48,12 @@ public class FieldFormat {
                 put("reg-cert-data-list", new FieldFormat("struct", FieldType.STRUCT, FULL_SIZE));
     }});
 
+    private static final int MAX_INTERNED_SIZE = 64;
+    // formats of integral numbers of all sizes up to 64 bits are created once and shared
+    private static final FieldFormat[] UINTS = intern("uint%d", FieldType.UINT);
+    private static final FieldFormat[] SINTS = intern("sint%d", FieldType.SINT);
+    private static final FieldFormat[] BITS = intern("%dbit", FieldType.UINT);
+
     private final String name;
     private final FieldType type;
     private final int size;
@@ -65,10 +71,12 @@ public class FieldFormat {
         String fieldName = name.toLowerCase();
         if (PREDEFINED.containsKey(fieldName)) {
             return PREDEFINED.get(fieldName);
-        } else if (fieldName.startsWith("uint") || fieldName.endsWith("bit")) {
-            return new FieldFormat(fieldName, FieldType.UINT, parseSize(fieldName));
+        } else if (fieldName.startsWith("uint")) {
+            return valueOf(UINTS, fieldName, FieldType.UINT);
+        } else if (fieldName.endsWith("bit")) {
+            return valueOf(BITS, fieldName, FieldType.UINT);
         } else if (fieldName.startsWith("sint")) {
-            return new FieldFormat(fieldName, FieldType.SINT, parseSize(fieldName));
+            return valueOf(SINTS, fieldName, FieldType.SINT);
         } else {
             return null;
         }
@@ -110,6 +118,22 @@ public class FieldFormat {
         return isReal() || isDecimal();
     }
 
+    private static FieldFormat valueOf(FieldFormat[] interned, String fieldName, FieldType type) {
+        int size = parseSize(fieldName);
+        if (size > 0 && size <= MAX_INTERNED_SIZE && interned[size].name.equals(fieldName)) {
+            return interned[size];
+        }
+        return new FieldFormat(fieldName, type, size);
+    }
+
+    private static FieldFormat[] intern(String pattern, FieldType type) {
+        FieldFormat[] formats = new FieldFormat[MAX_INTERNED_SIZE + 1];
+        for (int size = 1; size <= MAX_INTERNED_SIZE; size++) {
+            formats[size] = new FieldFormat(String.format(pattern, size), type, size);
+        }
+        return formats;
+    }
+
     private static int parseSize(String name) {
         try {
             return Integer.parseInt(name.replace("uint", "").replace("sint", "").replace("bit", ""));
@@ -24,6 +24,7 @@ import org.sputnikdev.bluetooth.gattparser.BluetoothGattParserFactory;
 import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
@@ -45,36 +46,100 @@ public final class FlagUtils implements IFlagUtils {
 
     @Override
     public Set<String> getReadFlags(List<Field> fields, byte[] data, RealNumberFormatter formatter) {
-        Set<String> flags = new HashSet<>();
-        int index = 0;
-        for (Field field : fields) {
+        int position = getFlagsPosition(fields);
+        if (position < 0) {
+            return new HashSet<>();
+        }
+        Field flagsField = fields.get(position);
+        return getFlags(flagsField, flagsField.parseReadFlags(data, getOffset(fields, position), formatter));
+    }
+
+    @Override
+    public Set<String> getReadFlags(List<Field> fields, ByteBuffer data, RealNumberFormatter formatter) {
+        int position = getFlagsPosition(fields);
+        if (position < 0) {
+            return new HashSet<>();
+        }
+        Field flagsField = fields.get(position);
+        return getFlags(flagsField, flagsField.parseReadFlags(data, getOffset(fields, position), formatter));
+    }
+
+    @Override
+    public long getReadFlagsMask(List<Field> fields, byte[] data, RealNumberFormatter formatter) {
+        int position = getFlagsPosition(fields);
+        if (position < 0) {
+            return MANDATORY_MASK;
+        }
+        long mask = MANDATORY_MASK;
+        int offset = getOffset(fields, position);
+        for (Bit bit : fields.get(position).getBitField().getBits()) {
+            mask |= bit.getFlagsMask((int) formatter.readBits(data, offset, bit.getSize(), false));
+            offset += bit.getSize();
+        }
+        return mask;
+    }
+
+    @Override
+    public long getReadFlagsMask(List<Field> fields, ByteBuffer data, RealNumberFormatter formatter) {
+        int position = getFlagsPosition(fields);
+        if (position < 0) {
+            return MANDATORY_MASK;
+        }
+        long mask = MANDATORY_MASK;
+        int offset = getOffset(fields, position);
+        for (Bit bit : fields.get(position).getBitField().getBits()) {
+            mask |= bit.getFlagsMask((int) formatter.readBits(data, offset, bit.getSize(), false));
+            offset += bit.getSize();
+        }
+        return mask;
+    }
+
+    /**
+     * Returns position of the flags field in the list of fields or -1 if there is no flags field
+     * or it cannot be read.
+     */
+    private static int getFlagsPosition(List<Field> fields) {
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
             if (field.isFlagField()) {
-                int[] values = field.parseReadFlags(data, index, formatter);
-                int bitIndex = 0;
-                for (Bit bit : field.getBitField().getBits()) {
-                    String requires = bit.getFlag((byte) values[bitIndex++]);
-                    if (requires != null) {
-                        List<String> flgs = Arrays.asList(requires.split(","));
-                        if (!flgs.isEmpty()) {
-                            flags.addAll(flgs);
-                        }
-                    }
-                }
-                break;
+                return i;
             }
             if (field.getReference() != null) {
                 // if flags field goes after a reference field, then it is not possible to parse the such characteristic
                 // simply because we don't know if this reference field if optional or not
-                break;
+                return -1;
             }
             if (field.getFormat() == null) {
                 // This is a strange field without format!
                 throw new IllegalStateException("A filed is missing its format: " + field.getName());
             }
-            index += field.getFormat().getSize();
+        }
+        return -1;
+    }
+
+    private static int getOffset(List<Field> fields, int position) {
+        int index = 0;
+        for (int i = 0; i < position; i++) {
+            index += fields.get(i).getFormat().getSize();
+        }
+        return index;
+    }
+
+    private static Set<String> getFlags(Field flagsField, int[] values) {
+        Set<String> flags = new HashSet<>();
+        int bitIndex = 0;
+        for (Bit bit : flagsField.getBitField().getBits()) {
+            String requires = bit.getFlag((byte) values[bitIndex++]);
+            if (requires != null) {
+                List<String> flgs = Arrays.asList(requires.split(","));
+                if (!flgs.isEmpty()) {
+                    flags.addAll(flgs);
+                }
+            }
         }
         return flags;
     }
+
     /*
     public static String getRequires(Field field, BigInteger key) {
         return getEnumeration(field, key).map(Enumeration::getRequires).orElse(null);
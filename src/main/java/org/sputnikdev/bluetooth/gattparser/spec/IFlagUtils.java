@@ -2,12 +2,73 @@ package org.sputnikdev.bluetooth.gattparser.spec;
 
 import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Set;
 
 public interface IFlagUtils {
+
+  /**
+   * The bit of the "Mandatory" requirement, it is always set in flags masks.
+   */
+  long MANDATORY_MASK = 1L;
+
   Set<String> getReadFlags(List<Field> fields, byte[] data, RealNumberFormatter formatter);
 
+  /**
+   * Reads flags of a characteristic value held by a byte buffer (between its position and limit).
+   * The default implementation copies the value into an array, implementations should read the buffer directly.
+   * Position and limit of the buffer are not changed.
+   */
+  default Set<String> getReadFlags(List<Field> fields, ByteBuffer data, RealNumberFormatter formatter) {
+    byte[] copy = new byte[data.remaining()];
+    data.duplicate().get(copy);
+    return getReadFlags(fields, copy, formatter);
+  }
+
+  /**
+   * Reads flags of a characteristic value encoded as a bit mask (see {@link Field#getRequirementMask()}),
+   * the {@link #MANDATORY_MASK} bit is always set. Defined only for fields of a characteristic which
+   * {@link Characteristic#hasRequirementMasks()}. The default implementation encodes flags returned by
+   * {@link #getReadFlags(List, byte[], RealNumberFormatter)}, implementations should read the mask directly.
+   */
+  default long getReadFlagsMask(List<Field> fields, byte[] data, RealNumberFormatter formatter) {
+    return toMask(fields, getReadFlags(fields, data, formatter));
+  }
+
+  /**
+   * Reads flags of a characteristic value held by a byte buffer (between its position and limit) encoded
+   * as a bit mask, see {@link #getReadFlagsMask(List, byte[], RealNumberFormatter)}.
+   * Position and limit of the buffer are not changed.
+   */
+  default long getReadFlagsMask(List<Field> fields, ByteBuffer data, RealNumberFormatter formatter) {
+    return toMask(fields, getReadFlags(fields, data, formatter));
+  }
+
+  /**
+   * Encodes flags as a bit mask. Each requirement bit belongs to some field, hence the mask is a union of
+   * requirement masks of the fields whose requirements are fulfilled by the flags.
+   */
+  private static long toMask(List<Field> fields, Set<String> flags) {
+    long mask = MANDATORY_MASK;
+    for (Field field : fields) {
+      List<String> requirements = field.getRequirements();
+      if (requirements != null && isFulfilled(requirements, flags)) {
+        mask |= field.getRequirementMask();
+      }
+    }
+    return mask;
+  }
+
+  private static boolean isFulfilled(List<String> requirements, Set<String> flags) {
+    for (String requirement : requirements) {
+      if (!"Mandatory".equals(requirement) && !flags.contains(requirement)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   // Field getFlags(List<Field> fields);
   // Field getOpCodes(List<Field> fields);
 
@@ -53,4 +53,20 @@ public class InformativeText {
         return note;
     }
 
+    void setAbstract(String _abstract) {
+        this._abstract = _abstract;
+    }
+
+    void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    void setExamples(Examples examples) {
+        this.examples = examples;
+    }
+
+    void setNote(String note) {
+        this.note = note;
+    }
+
 }
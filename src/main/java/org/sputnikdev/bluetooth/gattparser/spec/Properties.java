@@ -84,4 +84,40 @@ public class Properties {
         return broadcast;
     }
 
+    void setRead(String read) {
+        this.read = read;
+    }
+
+    void setWrite(String write) {
+        this.write = write;
+    }
+
+    void setWriteWithoutResponse(String writeWithoutResponse) {
+        this.writeWithoutResponse = writeWithoutResponse;
+    }
+
+    void setSignedWrite(String signedWrite) {
+        this.signedWrite = signedWrite;
+    }
+
+    void setReliableWrite(String reliableWrite) {
+        this.reliableWrite = reliableWrite;
+    }
+
+    void setNotify(String notify) {
+        this.notify = notify;
+    }
+
+    void setIndicate(String indicate) {
+        this.indicate = indicate;
+    }
+
+    void setWritableAuxiliaries(String writableAuxiliaries) {
+        this.writableAuxiliaries = writableAuxiliaries;
+    }
+
+    void setBroadcast(String broadcast) {
+        this.broadcast = broadcast;
+    }
+
 }
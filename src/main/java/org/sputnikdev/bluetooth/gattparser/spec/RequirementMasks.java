@@ -0,0 +1,109 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes requirements of fields and flags of a characteristic as bit masks, so that checking whether a field
+ * is present in a characteristic value is a single bitwise operation instead of a comparison of sets of strings.
+ * Each requirement of the characteristic fields is assigned a bit position, the "Mandatory" requirement is always
+ * assigned {@link IFlagUtils#MANDATORY_MASK}.
+ */
+final class RequirementMasks {
+
+    private static final String MANDATORY_FLAG = "Mandatory";
+    // values of bits of flags are looked up in arrays
+    private static final int MAX_BIT_SIZE = 8;
+
+    private RequirementMasks() { }
+
+    /**
+     * Assigns requirement masks to fields and flags masks to bits of the flags field of a characteristic.
+     * Masks are not assigned if the characteristic has more requirements than bits in a long
+     * or its flags cannot be looked up in arrays.
+     * @param characteristic characteristic specification
+     */
+    static void resolve(Characteristic characteristic) {
+        List<Field> fields = characteristic.getValue().getFields();
+        Map<String, Long> masks = new HashMap<>();
+        masks.put(MANDATORY_FLAG, IFlagUtils.MANDATORY_MASK);
+        for (Field field : fields) {
+            if (field.getRequirements() != null) {
+                for (String requirement : field.getRequirements()) {
+                    if (!masks.containsKey(requirement)) {
+                        if (masks.size() == Long.SIZE) {
+                            return;
+                        }
+                        masks.put(requirement, 1L << masks.size());
+                    }
+                }
+            }
+        }
+        for (Field field : fields) {
+            if (field.isFlagField() && !resolveFlags(field, masks)) {
+                return;
+            }
+        }
+        for (Field field : fields) {
+            field.setRequirementMask(getMask(field.getRequirements(), masks));
+        }
+        characteristic.setRequirementMasks(true);
+    }
+
+    private static boolean resolveFlags(Field flagsField, Map<String, Long> masks) {
+        List<Bit> bits = flagsField.getBitField().getBits();
+        if (bits == null) {
+            return true;
+        }
+        for (Bit bit : bits) {
+            if (bit.getSize() < 0 || bit.getSize() > MAX_BIT_SIZE) {
+                return false;
+            }
+        }
+        for (Bit bit : bits) {
+            long[] flagsMasks = new long[1 << bit.getSize()];
+            for (int value = 0; value < flagsMasks.length; value++) {
+                String requires = bit.getFlag((byte) value);
+                if (requires != null) {
+                    for (String flag : requires.split(",")) {
+                        flagsMasks[value] |= masks.getOrDefault(flag, 0L);
+                    }
+                }
+            }
+            bit.setFlagsMasks(flagsMasks);
+        }
+        return true;
+    }
+
+    private static long getMask(List<String> requirements, Map<String, Long> masks) {
+        long mask = 0;
+        if (requirements != null) {
+            for (String requirement : requirements) {
+                mask |= masks.get(requirement);
+            }
+        }
+        return mask;
+    }
+
+}
@@ -43,4 +43,12 @@ public class Reserved {
         return end;
     }
 
+    void setStart(int start) {
+        this.start = start;
+    }
+
+    void setEnd(int end) {
+        this.end = end;
+    }
+
 }
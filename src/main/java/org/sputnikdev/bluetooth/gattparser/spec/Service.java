@@ -61,4 +61,24 @@ public class Service {
         return characteristics;
     }
 
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    void setInformativeText(InformativeText informativeText) {
+        this.informativeText = informativeText;
+    }
+
+    void setCharacteristics(Characteristics characteristics) {
+        this.characteristics = characteristics;
+    }
+
 }
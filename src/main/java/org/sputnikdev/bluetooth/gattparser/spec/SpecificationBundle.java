@@ -0,0 +1,579 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A precompiled bundle of the GATT specifications shipped with the library: all characteristic and service
+ * specifications encoded in a compact binary format, so that they can be loaded without parsing any XML.
+ * The bundle is generated at build time from the specification files (see {@link #main(String[])}) and is placed
+ * next to them on the classpath. At runtime it is read once, with a single sequential read or through
+ * a memory-mapped file, and specifications are decoded from it on demand, see {@link BundledSpecificationLoader}.
+ * Bundled specifications take precedence over their files, the build regenerates the bundle whenever
+ * the files change.
+ * <p>
+ * Format of the bundle, numbers are big-endian:
+ * <pre>
+ * magic ("GATT" as int), version (int)
+ * number of characteristics (int), then for each: path of the specification file (string), record offset (int)
+ * number of services (int), then for each: path of the specification file (string), record offset (int)
+ * records of specifications, offsets are relative to the end of the service index
+ * </pre>
+ * Paths are relative to the classpath root, e.g. "gatt/characteristic/org.bluetooth.characteristic.battery_level.xml".
+ * Records hold all the fields of the specification model which are read from specification files. Strings are
+ * encoded as a length (int, -1 for null) followed by UTF-8 bytes, lists as a size (int, -1 for null) followed
+ * by their elements, nullable objects and numbers are preceded by a presence flag (byte).
+ */
+public final class SpecificationBundle {
+
+    static final String RESOURCE = "gatt/gatt_spec_bundle.bin";
+
+    private static final Logger logger = LoggerFactory.getLogger(SpecificationBundle.class);
+    private static final int MAGIC = 0x47415454;
+    private static final int VERSION = 1;
+    private static final String CHARACTERISTICS_FOLDER = "gatt/characteristic";
+    private static final String SERVICES_FOLDER = "gatt/service";
+
+    private final ByteBuffer data;
+    // record offsets by URLs of specification files
+    private final Map<String, Integer> characteristics;
+    private final Map<String, Integer> services;
+
+    private SpecificationBundle(ByteBuffer data, String base) throws IOException {
+        this.data = data;
+        ByteBuffer index = data.duplicate();
+        if (index.remaining() < Integer.BYTES * 2 || index.getInt() != MAGIC) {
+            throw new IOException("Not a GATT specification bundle");
+        }
+        int version = index.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of GATT specification bundle: " + version);
+        }
+        characteristics = readIndex(index, base);
+        services = readIndex(index, base);
+        int recordsOffset = index.position();
+        characteristics.replaceAll((file, offset) -> recordsOffset + offset);
+        services.replaceAll((file, offset) -> recordsOffset + offset);
+    }
+
+    /**
+     * Generates a bundle of the specification files of a resources folder, i.e. of the files in its
+     * gatt/characteristic and gatt/service subfolders. Files which cannot be read are not bundled,
+     * they are read from XML at runtime (and fail there the same way).
+     *
+     * @param args resources folder and bundle file
+     * @throws IOException if the bundle cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SpecificationBundle <resources folder> <bundle file>");
+        }
+        Path resources = Paths.get(args[0]);
+        Path bundle = Paths.get(args[1]);
+        StaxSpecificationLoader loader = new StaxSpecificationLoader();
+        Map<String, Characteristic> characteristics = new TreeMap<>();
+        for (Path file : listFiles(resources.resolve(CHARACTERISTICS_FOLDER))) {
+            try {
+                characteristics.put(CHARACTERISTICS_FOLDER + "/" + file.getFileName(),
+                        loader.loadCharacteristic(file.toUri().toURL()));
+            } catch (Exception e) {
+                logger.warn("Could not bundle file, it will be read from XML: " + file, e);
+            }
+        }
+        Map<String, Service> services = new TreeMap<>();
+        for (Path file : listFiles(resources.resolve(SERVICES_FOLDER))) {
+            try {
+                services.put(SERVICES_FOLDER + "/" + file.getFileName(), loader.loadService(file.toUri().toURL()));
+            } catch (Exception e) {
+                logger.warn("Could not bundle file, it will be read from XML: " + file, e);
+            }
+        }
+        if (bundle.getParent() != null) {
+            Files.createDirectories(bundle.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(bundle))) {
+            write(characteristics, services, out);
+        }
+        logger.info("Bundled {} characteristics and {} services into {}", characteristics.size(), services.size(),
+                bundle);
+    }
+
+    /**
+     * Loads the bundle of the specifications shipped with the library from the classpath.
+     *
+     * @return specification bundle or null if there is no bundle on the classpath or it cannot be read
+     */
+    static SpecificationBundle loadBundled() {
+        URL bundle = SpecificationBundle.class.getClassLoader().getResource(RESOURCE);
+        if (bundle == null) {
+            logger.info("GATT specification bundle is not found, specifications are read from XML files");
+            return null;
+        }
+        try {
+            return load(bundle);
+        } catch (IOException e) {
+            logger.warn("Could not read GATT specification bundle, specifications are read from XML files: "
+                    + bundle, e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads a bundle, files are memory-mapped, other resources (e.g. jar entries) are read with a single
+     * sequential read. Bundled specifications are looked up by URLs of their files, which are resolved
+     * relative to the location of the bundle.
+     *
+     * @param bundle URL of the bundle, which must be {@value #RESOURCE} relative to the classpath root
+     * @return specification bundle
+     * @throws IOException if the bundle cannot be read
+     */
+    static SpecificationBundle load(URL bundle) throws IOException {
+        String location = bundle.toString();
+        String base = location.endsWith(RESOURCE) ? location.substring(0, location.length() - RESOURCE.length()) : "";
+        ByteBuffer data;
+        if ("file".equals(bundle.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(bundle.toURI()), StandardOpenOption.READ)) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        } else {
+            try (InputStream stream = bundle.openStream()) {
+                data = ByteBuffer.wrap(stream.readAllBytes());
+            }
+        }
+        return new SpecificationBundle(data, base);
+    }
+
+    /**
+     * Decodes a characteristic specification, a new object is returned on every call.
+     *
+     * @param file URL of the specification file
+     * @return characteristic specification or null if the file is not bundled
+     */
+    Characteristic getCharacteristic(URL file) {
+        Integer offset = characteristics.get(file.toString());
+        return offset != null ? new Decoder(data, offset).readCharacteristic() : null;
+    }
+
+    /**
+     * Decodes a service specification, a new object is returned on every call.
+     *
+     * @param file URL of the specification file
+     * @return service specification or null if the file is not bundled
+     */
+    Service getService(URL file) {
+        Integer offset = services.get(file.toString());
+        return offset != null ? new Decoder(data, offset).readService() : null;
+    }
+
+    /**
+     * Returns the number of bundled characteristics and services.
+     *
+     * @return number of bundled specifications
+     */
+    int size() {
+        return characteristics.size() + services.size();
+    }
+
+    /**
+     * Writes a bundle of specifications.
+     *
+     * @param characteristics characteristic specifications by paths of their files
+     * @param services service specifications by paths of their files
+     * @param out output stream
+     * @throws IOException if the bundle cannot be written
+     */
+    static void write(Map<String, Characteristic> characteristics, Map<String, Service> services, OutputStream out)
+            throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Encoder encoder = new Encoder(new DataOutputStream(records));
+        Map<String, Integer> characteristicOffsets = new LinkedHashMap<>();
+        for (Map.Entry<String, Characteristic> entry : characteristics.entrySet()) {
+            characteristicOffsets.put(entry.getKey(), records.size());
+            encoder.writeCharacteristic(entry.getValue());
+        }
+        Map<String, Integer> serviceOffsets = new LinkedHashMap<>();
+        for (Map.Entry<String, Service> entry : services.entrySet()) {
+            serviceOffsets.put(entry.getKey(), records.size());
+            encoder.writeService(entry.getValue());
+        }
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        writeIndex(header, characteristicOffsets);
+        writeIndex(header, serviceOffsets);
+        records.writeTo(header);
+        header.flush();
+    }
+
+    private static void writeIndex(DataOutputStream out, Map<String, Integer> offsets) throws IOException {
+        out.writeInt(offsets.size());
+        for (Map.Entry<String, Integer> entry : offsets.entrySet()) {
+            byte[] path = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(path.length);
+            out.write(path);
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readIndex(ByteBuffer index, String base) {
+        int size = index.getInt();
+        Map<String, Integer> offsets = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            byte[] path = new byte[index.getInt()];
+            index.get(path);
+            offsets.put(base + new String(path, StandardCharsets.UTF_8), index.getInt());
+        }
+        return offsets;
+    }
+
+    private static List<Path> listFiles(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".xml")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class Encoder {
+
+        private final DataOutputStream out;
+
+        private Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeCharacteristic(Characteristic characteristic) throws IOException {
+            writeString(characteristic.getName());
+            writeString(characteristic.getUuid());
+            writeString(characteristic.getType());
+            writeOptional(characteristic.getInformativeText(), this::writeInformativeText);
+            writeOptional(characteristic.getValue(), value -> writeList(value.getFields(), this::writeField));
+        }
+
+        private void writeService(Service service) throws IOException {
+            writeString(service.getName());
+            writeString(service.getUuid());
+            writeString(service.getType());
+            writeOptional(service.getInformativeText(), this::writeInformativeText);
+            writeOptional(service.getCharacteristics(),
+                characteristics -> writeList(characteristics.getCharacteristics(), this::writeCharacteristicAccess));
+        }
+
+        private void writeInformativeText(InformativeText informativeText) throws IOException {
+            writeString(informativeText.getAbstract());
+            writeString(informativeText.getSummary());
+            writeOptional(informativeText.getExamples(),
+                examples -> writeList(examples.getExamples(), this::writeString));
+            writeString(informativeText.getNote());
+        }
+
+        private void writeCharacteristicAccess(CharacteristicAccess characteristicAccess) throws IOException {
+            writeString(characteristicAccess.getName());
+            writeString(characteristicAccess.getType());
+            writeString(characteristicAccess.getInformativeText());
+            writeString(characteristicAccess.getRequirement());
+            writeList(characteristicAccess.getProperties(), this::writeProperties);
+        }
+
+        private void writeProperties(Properties properties) throws IOException {
+            writeString(properties.getRead());
+            writeString(properties.getWrite());
+            writeString(properties.getWriteWithoutResponse());
+            writeString(properties.getSignedWrite());
+            writeString(properties.getReliableWrite());
+            writeString(properties.getNotify());
+            writeString(properties.getIndicate());
+            writeString(properties.getWritableAuxiliaries());
+            writeString(properties.getBroadcast());
+        }
+
+        private void writeField(Field field) throws IOException {
+            writeString(field.getRawName());
+            writeString(field.getInformativeText());
+            writeList(field.getRequirements(), this::writeString);
+            writeString(field.getReference());
+            writeString(field.getRawFormat());
+            writeOptional(field.getBitField(), bitField -> writeList(bitField.getBits(), this::writeBit));
+            writeOptional(field.getDecimalExponent(), out::writeInt);
+            writeOptional(field.getBinaryExponent(), out::writeInt);
+            writeOptional(field.getMultiplier(), out::writeInt);
+            writeString(field.getUnit());
+            writeOptional(field.getMinimum(), out::writeDouble);
+            writeOptional(field.getMaximum(), out::writeDouble);
+            writeOptional(field.getOffset(), out::writeDouble);
+            writeOptional(field.getEnumerations(), this::writeEnumerations);
+            out.writeBoolean(field.isUnknown());
+            out.writeBoolean(field.isSystem());
+        }
+
+        private void writeBit(Bit bit) throws IOException {
+            out.writeInt(bit.getIndex());
+            out.writeInt(bit.getSize());
+            writeString(bit.getName());
+            writeOptional(bit.getEnumerations(), this::writeEnumerations);
+        }
+
+        private void writeEnumerations(Enumerations enumerations) throws IOException {
+            writeList(enumerations.getEnumerations(), this::writeEnumeration);
+            writeList(enumerations.getReserves(), reserved -> {
+                out.writeInt(reserved.getStart());
+                out.writeInt(reserved.getEnd());
+            });
+        }
+
+        private void writeEnumeration(Enumeration enumeration) throws IOException {
+            writeOptional(enumeration.getKey(), key -> {
+                byte[] bytes = key.toByteArray();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            });
+            writeString(enumeration.getValue());
+            writeString(enumeration.getRequires());
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private <T> void writeList(List<T> list, ElementWriter<T> writer) throws IOException {
+            if (list == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(list.size());
+                for (T element : list) {
+                    writer.write(element);
+                }
+            }
+        }
+
+        private <T> void writeOptional(T value, ElementWriter<T> writer) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                writer.write(value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(T element) throws IOException;
+    }
+
+    private static final class Decoder {
+
+        private final ByteBuffer data;
+
+        private Decoder(ByteBuffer data, int offset) {
+            this.data = data.duplicate();
+            this.data.position(offset);
+        }
+
+        private Characteristic readCharacteristic() {
+            Characteristic characteristic = new Characteristic();
+            characteristic.setName(readString());
+            characteristic.setUuid(readString());
+            characteristic.setType(readString());
+            characteristic.setInformativeText(readOptional(this::readInformativeText));
+            characteristic.setValue(readOptional(() -> {
+                Value value = new Value();
+                value.setFields(readList(this::readField));
+                return value;
+            }));
+            return characteristic;
+        }
+
+        private Service readService() {
+            Service service = new Service();
+            service.setName(readString());
+            service.setUuid(readString());
+            service.setType(readString());
+            service.setInformativeText(readOptional(this::readInformativeText));
+            service.setCharacteristics(readOptional(() -> {
+                Characteristics characteristics = new Characteristics();
+                characteristics.setCharacteristics(readList(this::readCharacteristicAccess));
+                return characteristics;
+            }));
+            return service;
+        }
+
+        private InformativeText readInformativeText() {
+            InformativeText informativeText = new InformativeText();
+            informativeText.setAbstract(readString());
+            informativeText.setSummary(readString());
+            informativeText.setExamples(readOptional(() -> {
+                Examples examples = new Examples();
+                examples.setExamples(readList(this::readString));
+                return examples;
+            }));
+            informativeText.setNote(readString());
+            return informativeText;
+        }
+
+        private CharacteristicAccess readCharacteristicAccess() {
+            CharacteristicAccess characteristicAccess = new CharacteristicAccess();
+            characteristicAccess.setName(readString());
+            characteristicAccess.setType(readString());
+            characteristicAccess.setInformativeText(readString());
+            characteristicAccess.setRequirement(readString());
+            characteristicAccess.setProperties(readList(this::readProperties));
+            return characteristicAccess;
+        }
+
+        private Properties readProperties() {
+            Properties properties = new Properties();
+            properties.setRead(readString());
+            properties.setWrite(readString());
+            properties.setWriteWithoutResponse(readString());
+            properties.setSignedWrite(readString());
+            properties.setReliableWrite(readString());
+            properties.setNotify(readString());
+            properties.setIndicate(readString());
+            properties.setWritableAuxiliaries(readString());
+            properties.setBroadcast(readString());
+            return properties;
+        }
+
+        private Field readField() {
+            Field field = new Field();
+            field.setName(readString());
+            field.setInformativeText(readString());
+            field.setRequirements(readList(this::readString));
+            field.setReference(readString());
+            field.setFormat(readString());
+            field.setBitField(readOptional(() -> {
+                BitField bitField = new BitField();
+                bitField.setBits(readList(this::readBit));
+                return bitField;
+            }));
+            field.setDecimalExponent(readOptional(data::getInt));
+            field.setBinaryExponent(readOptional(data::getInt));
+            field.setMultiplier(readOptional(data::getInt));
+            field.setUnit(readString());
+            field.setMinimum(readOptional(data::getDouble));
+            field.setMaximum(readOptional(data::getDouble));
+            field.setOffset(readOptional(data::getDouble));
+            field.setEnumerations(readOptional(this::readEnumerations));
+            field.setUnknown(data.get() != 0);
+            field.setSystem(data.get() != 0);
+            return field;
+        }
+
+        private Bit readBit() {
+            Bit bit = new Bit();
+            bit.setIndex(data.getInt());
+            bit.setSize(data.getInt());
+            bit.setName(readString());
+            bit.setEnumerations(readOptional(this::readEnumerations));
+            return bit;
+        }
+
+        private Enumerations readEnumerations() {
+            Enumerations enumerations = new Enumerations();
+            enumerations.setEnumerations(readList(this::readEnumeration));
+            enumerations.setReserves(readList(() -> {
+                Reserved reserved = new Reserved();
+                reserved.setStart(data.getInt());
+                reserved.setEnd(data.getInt());
+                return reserved;
+            }));
+            return enumerations;
+        }
+
+        private Enumeration readEnumeration() {
+            Enumeration enumeration = new Enumeration();
+            enumeration.setKey(readOptional(() -> {
+                byte[] bytes = new byte[data.getInt()];
+                data.get(bytes);
+                return new BigInteger(bytes);
+            }));
+            enumeration.setValue(readString());
+            enumeration.setRequires(readString());
+            return enumeration;
+        }
+
+        private String readString() {
+            int length = data.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private <T> List<T> readList(Supplier<T> reader) {
+            int size = data.getInt();
+            if (size < 0) {
+                return null;
+            }
+            List<T> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(reader.get());
+            }
+            return list;
+        }
+
+        private <T> T readOptional(Supplier<T> reader) {
+            return data.get() != 0 ? reader.get() : null;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Reads GATT specification files (XML files of the Bluetooth SIG format) into the specification model.
+ * Implementations must be threadsafe, a loader is shared by all threads loading specifications
+ * of a {@link BluetoothGattSpecificationReader}.
+ *
+ * @see XStreamSpecificationLoader
+ * @see StaxSpecificationLoader
+ * @see BundledSpecificationLoader
+ */
+public interface SpecificationLoader {
+
+    /**
+     * Reads a characteristic specification file.
+     *
+     * @param file URL of the specification file
+     * @return characteristic specification
+     * @throws IOException if the file cannot be read
+     */
+    Characteristic loadCharacteristic(URL file) throws IOException;
+
+    /**
+     * Reads a service specification file.
+     *
+     * @param file URL of the specification file
+     * @return service specification
+     * @throws IOException if the file cannot be read
+     */
+    Service loadService(URL file) throws IOException;
+
+}
@@ -0,0 +1,450 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads GATT specification files with a streaming (StAX) XML parser, the specification model is built
+ * in a single pass without building a DOM of a file and without reflection. The model is the same as the one
+ * built by {@link XStreamSpecificationLoader}: elements and attributes are mapped to the same model fields
+ * as XStream annotations of the model classes map them, element values are converted the same way as XStream
+ * converts them, unknown elements and attributes are ignored. As with XStream, documents declaring
+ * a DOCTYPE are rejected, hence neither external entities nor DTDs are ever loaded.
+ */
+public class StaxSpecificationLoader implements SpecificationLoader {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    @Override
+    public Characteristic loadCharacteristic(URL file) throws IOException {
+        return load(file, "Characteristic", StaxSpecificationLoader::readCharacteristic);
+    }
+
+    @Override
+    public Service loadService(URL file) throws IOException {
+        return load(file, "Service", StaxSpecificationLoader::readService);
+    }
+
+    private static <T> T load(URL file, String rootElement, ElementReader<T> elementReader) throws IOException {
+        try (InputStream stream = file.openStream()) {
+            XMLStreamReader reader = createReader(stream);
+            try {
+                if (!nextRootElement(reader)) {
+                    throw new IOException("GATT specification file does not have any elements: " + file);
+                }
+                if (!rootElement.equals(getName(reader))) {
+                    throw new IOException("Unexpected root element \"" + reader.getLocalName() + "\" of GATT "
+                            + "specification file: " + file);
+                }
+                return elementReader.read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read GATT specification file: " + file, e);
+        }
+    }
+
+    private static Characteristic readCharacteristic(XMLStreamReader reader) throws XMLStreamException {
+        Characteristic characteristic = new Characteristic();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "name": characteristic.setName(reader.getAttributeValue(i)); break;
+                case "uuid": characteristic.setUuid(reader.getAttributeValue(i)); break;
+                case "type": characteristic.setType(reader.getAttributeValue(i)); break;
+                default: break;
+            }
+        }
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "InformativeText": characteristic.setInformativeText(readInformativeText(reader)); break;
+                case "Value": characteristic.setValue(readValue(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        return characteristic;
+    }
+
+    private static Service readService(XMLStreamReader reader) throws XMLStreamException {
+        Service service = new Service();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "name": service.setName(reader.getAttributeValue(i)); break;
+                case "uuid": service.setUuid(reader.getAttributeValue(i)); break;
+                case "type": service.setType(reader.getAttributeValue(i)); break;
+                default: break;
+            }
+        }
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "InformativeText": service.setInformativeText(readInformativeText(reader)); break;
+                case "Characteristics": service.setCharacteristics(readCharacteristics(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        return service;
+    }
+
+    private static InformativeText readInformativeText(XMLStreamReader reader) throws XMLStreamException {
+        InformativeText informativeText = new InformativeText();
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "Abstract": informativeText.setAbstract(readText(reader)); break;
+                case "Summary": informativeText.setSummary(readText(reader)); break;
+                case "Examples": informativeText.setExamples(readExamples(reader)); break;
+                case "Note": informativeText.setNote(readText(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        return informativeText;
+    }
+
+    private static Examples readExamples(XMLStreamReader reader) throws XMLStreamException {
+        Examples examples = new Examples();
+        List<String> items = null;
+        while (nextElement(reader)) {
+            // examples is an implicit collection of strings, XStream maps its items to "string" elements
+            if ("string".equals(getName(reader))) {
+                items = add(items, readText(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        examples.setExamples(items);
+        return examples;
+    }
+
+    private static Characteristics readCharacteristics(XMLStreamReader reader) throws XMLStreamException {
+        Characteristics characteristics = new Characteristics();
+        List<CharacteristicAccess> items = null;
+        while (nextElement(reader)) {
+            if ("Characteristic".equals(getName(reader))) {
+                items = add(items, readCharacteristicAccess(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        characteristics.setCharacteristics(items);
+        return characteristics;
+    }
+
+    private static CharacteristicAccess readCharacteristicAccess(XMLStreamReader reader) throws XMLStreamException {
+        CharacteristicAccess characteristicAccess = new CharacteristicAccess();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "name": characteristicAccess.setName(reader.getAttributeValue(i)); break;
+                case "type": characteristicAccess.setType(reader.getAttributeValue(i)); break;
+                default: break;
+            }
+        }
+        List<Properties> properties = null;
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "InformativeText": characteristicAccess.setInformativeText(readText(reader)); break;
+                case "Requirement": characteristicAccess.setRequirement(readText(reader)); break;
+                case "Properties": properties = add(properties, readProperties(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        characteristicAccess.setProperties(properties);
+        return characteristicAccess;
+    }
+
+    private static Properties readProperties(XMLStreamReader reader) throws XMLStreamException {
+        Properties properties = new Properties();
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "Read": properties.setRead(readText(reader)); break;
+                case "Write": properties.setWrite(readText(reader)); break;
+                case "WriteWithoutResponse": properties.setWriteWithoutResponse(readText(reader)); break;
+                case "SignedWrite": properties.setSignedWrite(readText(reader)); break;
+                case "ReliableWrite": properties.setReliableWrite(readText(reader)); break;
+                case "Notify": properties.setNotify(readText(reader)); break;
+                case "Indicate": properties.setIndicate(readText(reader)); break;
+                case "WritableAuxiliaries": properties.setWritableAuxiliaries(readText(reader)); break;
+                case "Broadcast": properties.setBroadcast(readText(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        return properties;
+    }
+
+    private static Value readValue(XMLStreamReader reader) throws XMLStreamException {
+        Value value = new Value();
+        List<Field> fields = null;
+        while (nextElement(reader)) {
+            if ("Field".equals(getName(reader))) {
+                fields = add(fields, readField(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        value.setFields(fields);
+        return value;
+    }
+
+    private static Field readField(XMLStreamReader reader) throws XMLStreamException {
+        Field field = new Field();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "name": field.setName(reader.getAttributeValue(i)); break;
+                case "unknown": field.setUnknown(Boolean.parseBoolean(reader.getAttributeValue(i))); break;
+                case "system": field.setSystem(Boolean.parseBoolean(reader.getAttributeValue(i))); break;
+                default: break;
+            }
+        }
+        List<String> requirements = null;
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "InformativeText": field.setInformativeText(readText(reader)); break;
+                case "Requirement": requirements = add(requirements, readText(reader)); break;
+                case "Reference": field.setReference(readText(reader)); break;
+                case "Format": field.setFormat(readText(reader)); break;
+                case "BitField": field.setBitField(readBitField(reader)); break;
+                case "DecimalExponent": field.setDecimalExponent(toInt(readText(reader))); break;
+                case "BinaryExponent": field.setBinaryExponent(toInt(readText(reader))); break;
+                case "Multiplier": field.setMultiplier(toInt(readText(reader))); break;
+                case "Unit": field.setUnit(readText(reader)); break;
+                case "Minimum": field.setMinimum(Double.valueOf(readText(reader))); break;
+                case "Maximum": field.setMaximum(Double.valueOf(readText(reader))); break;
+                case "Offset": field.setOffset(Double.valueOf(readText(reader))); break;
+                case "Enumerations": field.setEnumerations(readEnumerations(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        field.setRequirements(requirements);
+        return field;
+    }
+
+    private static BitField readBitField(XMLStreamReader reader) throws XMLStreamException {
+        BitField bitField = new BitField();
+        List<Bit> bits = null;
+        while (nextElement(reader)) {
+            if ("Bit".equals(getName(reader))) {
+                bits = add(bits, readBit(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        bitField.setBits(bits);
+        return bitField;
+    }
+
+    private static Bit readBit(XMLStreamReader reader) throws XMLStreamException {
+        Bit bit = new Bit();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "index": bit.setIndex(toInt(reader.getAttributeValue(i))); break;
+                case "size": bit.setSize(toInt(reader.getAttributeValue(i))); break;
+                case "name": bit.setName(reader.getAttributeValue(i)); break;
+                default: break;
+            }
+        }
+        while (nextElement(reader)) {
+            if ("Enumerations".equals(getName(reader))) {
+                bit.setEnumerations(readEnumerations(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return bit;
+    }
+
+    private static Enumerations readEnumerations(XMLStreamReader reader) throws XMLStreamException {
+        Enumerations enumerations = new Enumerations();
+        List<Enumeration> items = null;
+        List<Reserved> reserves = null;
+        while (nextElement(reader)) {
+            switch (getName(reader)) {
+                case "Enumeration": items = add(items, readEnumeration(reader)); break;
+                case "Reserved": reserves = add(reserves, readReserved(reader)); break;
+                default: skipElement(reader);
+            }
+        }
+        enumerations.setEnumerations(items);
+        enumerations.setReserves(reserves);
+        return enumerations;
+    }
+
+    private static Enumeration readEnumeration(XMLStreamReader reader) throws XMLStreamException {
+        Enumeration enumeration = new Enumeration();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "key": enumeration.setKey(new BigInteger(reader.getAttributeValue(i))); break;
+                case "value": enumeration.setValue(reader.getAttributeValue(i)); break;
+                case "requires": enumeration.setRequires(reader.getAttributeValue(i)); break;
+                default: break;
+            }
+        }
+        skipElement(reader);
+        return enumeration;
+    }
+
+    private static Reserved readReserved(XMLStreamReader reader) throws XMLStreamException {
+        Reserved reserved = new Reserved();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (getAttributeName(reader, i)) {
+                case "start": reserved.setStart(toInt(reader.getAttributeValue(i))); break;
+                case "end": reserved.setEnd(toInt(reader.getAttributeValue(i))); break;
+                default: break;
+            }
+        }
+        skipElement(reader);
+        return reserved;
+    }
+
+    /**
+     * Converts a value to an int the same way as XStream does, i.e. decimal, hex and octal values are accepted,
+     * as well as unsigned 32-bit values.
+     */
+    private static int toInt(String value) {
+        long result = Long.decode(value);
+        if (result < Integer.MIN_VALUE || result > 0xFFFFFFFFL) {
+            throw new NumberFormatException("For input string: \"" + value + "\"");
+        }
+        return (int) result;
+    }
+
+    private static <E> List<E> add(List<E> list, E element) {
+        // implicit collections are left null by XStream if there are no elements
+        List<E> result = list != null ? list : new ArrayList<>();
+        result.add(element);
+        return result;
+    }
+
+    /**
+     * Reads the text of the current element, which is the concatenated text of its own text nodes
+     * (text of child elements is skipped). The reader is left at the end of the element.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 0;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth-- == 0) {
+                        return text.toString();
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 0) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Skips the current element including its children. The reader is left at the end of the element.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT && depth-- == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     * @return true if the reader is at the start of a child element,
+     * false if it is at the end of the current element
+     */
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    private static boolean nextRootElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.DTD) {
+                throw new XMLStreamException("DOCTYPE is not allowed in GATT specification files",
+                        reader.getLocation());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name of the current element, names with a namespace prefix are not mapped to the model.
+     */
+    private static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : "";
+    }
+
+    private static String getAttributeName(XMLStreamReader reader, int index) {
+        String prefix = reader.getAttributePrefix(index);
+        return prefix == null || prefix.isEmpty() ? reader.getAttributeLocalName(index) : "";
+    }
+
+    private static XMLStreamReader createReader(InputStream stream) throws XMLStreamException {
+        // XMLInputFactory is not guaranteed to be threadsafe, readers it creates are used by a single thread
+        synchronized (FACTORY) {
+            return FACTORY.createXMLStreamReader(stream);
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    @FunctionalInterface
+    private interface ElementReader<T> {
+        T read(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+}
@@ -37,7 +37,11 @@ public class Value {
     private List<Field> fields;
 
     public List<Field> getFields() {
-        return Collections.unmodifiableList(fields);
+        return fields != null ? Collections.unmodifiableList(fields) : null;
+    }
+
+    void setFields(List<Field> fields) {
+        this.fields = fields;
     }
 
 }
@@ -0,0 +1,213 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.basic.*;
+import com.thoughtworks.xstream.converters.collections.*;
+import com.thoughtworks.xstream.converters.extended.*;
+import com.thoughtworks.xstream.converters.reflection.ExternalizableConverter;
+import com.thoughtworks.xstream.converters.reflection.ReflectionConverter;
+import com.thoughtworks.xstream.converters.reflection.SerializableConverter;
+import com.thoughtworks.xstream.core.util.SelfStreamingInstanceChecker;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.security.NoTypePermission;
+import com.thoughtworks.xstream.security.WildcardTypePermission;
+
+import java.io.Writer;
+import java.net.URL;
+
+/**
+ * Reads GATT specification files with XStream, which builds a DOM of a file and binds it reflectively
+ * to the specification model according to XStream annotations of the model classes. Only classes of
+ * the specification model can be created by XStream. This is the fallback of the default, bundled loader
+ * (see {@link BundledSpecificationLoader}) for specification files which are not bundled.
+ * <p>
+ * Setting up XStream is much more expensive than reading a specification file, hence a single XStream instance
+ * is created once, when the first specification file is read, and shared by all loaders.
+ * XStream is threadsafe once it is configured, annotations of all specification classes are processed
+ * when it is created, so that it is not reconfigured while reading.
+ */
+public class XStreamSpecificationLoader implements SpecificationLoader {
+
+    @Override
+    public Characteristic loadCharacteristic(URL file) {
+        return (Characteristic) XStreamHolder.XSTREAM.fromXML(file);
+    }
+
+    @Override
+    public Service loadService(URL file) {
+        return (Service) XStreamHolder.XSTREAM.fromXML(file);
+    }
+
+    /**
+     * Creates and configures an XStream instance which reads GATT specification files.
+     * @return XStream instance
+     */
+    static XStream createXStream() {
+        /*
+        XStream xstream = new XStream(new DomDriver());
+        // GP fix security warning
+        XStream.setupDefaultSecurity(xstream);
+        xstream.allowTypes(ALLOWED_CLASSES);
+        // end GP Fix
+        */
+        // ***
+        XStream xstream = new XStream(new DomDriver() {
+            @Override
+            public HierarchicalStreamWriter createWriter(Writer out) {
+                return new PrettyPrintWriter(out, "    ");
+            }
+        }) {
+
+            // only register the converters we need; other converters generate a private access warning in the console on Java9+...
+            @Override
+            protected void setupConverters() {
+                /*
+                registerConverter(new NullConverter(), PRIORITY_VERY_HIGH);
+                registerConverter(new IntConverter(), PRIORITY_NORMAL);
+                registerConverter(new FloatConverter(), PRIORITY_NORMAL);
+                registerConverter(new DoubleConverter(), PRIORITY_NORMAL);
+                registerConverter(new LongConverter(), PRIORITY_NORMAL);
+                registerConverter(new ShortConverter(), PRIORITY_NORMAL);
+                registerConverter(new BooleanConverter(), PRIORITY_NORMAL);
+                registerConverter(new ByteConverter(), PRIORITY_NORMAL);
+                registerConverter(new StringConverter(), PRIORITY_NORMAL);
+                registerConverter(new DateConverter(), PRIORITY_NORMAL);
+                registerConverter(new CollectionConverter(getMapper()), PRIORITY_NORMAL);
+                registerConverter(new ReflectionConverter(getMapper(), getReflectionProvider()), PRIORITY_VERY_LOW);
+                */
+                registerConverter(new ReflectionConverter(getMapper(), getReflectionProvider()), PRIORITY_VERY_LOW);
+
+                registerConverter(new SerializableConverter(getMapper(), getReflectionProvider(), getClassLoaderReference()), PRIORITY_LOW);
+                registerConverter(new ExternalizableConverter(getMapper(), getClassLoaderReference()), PRIORITY_LOW);
+
+                registerConverter(new NullConverter(), PRIORITY_VERY_HIGH);
+                registerConverter(new IntConverter(), PRIORITY_NORMAL);
+                registerConverter(new FloatConverter(), PRIORITY_NORMAL);
+                registerConverter(new DoubleConverter(), PRIORITY_NORMAL);
+                registerConverter(new LongConverter(), PRIORITY_NORMAL);
+                registerConverter(new ShortConverter(), PRIORITY_NORMAL);
+                registerConverter((Converter)new CharConverter(), PRIORITY_NORMAL);
+                registerConverter(new BooleanConverter(), PRIORITY_NORMAL);
+                registerConverter(new ByteConverter(), PRIORITY_NORMAL);
+
+                registerConverter(new StringConverter(), PRIORITY_NORMAL);
+                registerConverter(new StringBufferConverter(), PRIORITY_NORMAL);
+                registerConverter(new DateConverter(), PRIORITY_NORMAL);
+                registerConverter(new BitSetConverter(), PRIORITY_NORMAL);
+                registerConverter(new URIConverter(), PRIORITY_NORMAL);
+                registerConverter(new URLConverter(), PRIORITY_NORMAL);
+                registerConverter(new BigIntegerConverter(), PRIORITY_NORMAL);
+                registerConverter(new BigDecimalConverter(), PRIORITY_NORMAL);
+
+                registerConverter(new ArrayConverter(getMapper()), PRIORITY_NORMAL);
+                registerConverter(new CharArrayConverter(), PRIORITY_NORMAL);
+                registerConverter(new CollectionConverter(getMapper()), PRIORITY_NORMAL);
+                registerConverter(new MapConverter(getMapper()), PRIORITY_NORMAL);
+
+                /* Remove to prevent Illegal reflective Access warning in java 11+
+                */
+                registerConverter(new TreeMapConverter(getMapper()), PRIORITY_NORMAL);
+                registerConverter(new TreeSetConverter(getMapper()), PRIORITY_NORMAL);
+                /*
+                */
+
+                registerConverter(new SingletonCollectionConverter(getMapper()), PRIORITY_NORMAL);
+                registerConverter(new SingletonMapConverter(getMapper()), PRIORITY_NORMAL);
+
+                /* Remove to prevent Illegal reflective Access warning in java 11+
+                */
+                registerConverter(new PropertiesConverter(), PRIORITY_NORMAL);
+                /*
+                */
+
+                registerConverter((Converter)new EncodedByteArrayConverter(), PRIORITY_NORMAL);
+
+                registerConverter(new FileConverter(), PRIORITY_NORMAL);
+                /*
+                if (JVM.isSQLAvailable()) {
+                    registerConverter(new SqlTimestampConverter(), PRIORITY_NORMAL);
+                    registerConverter(new SqlTimeConverter(), PRIORITY_NORMAL);
+                    registerConverter(new SqlDateConverter(), PRIORITY_NORMAL);
+                }
+                */
+
+                registerConverter(new JavaClassConverter(getClassLoaderReference()), PRIORITY_NORMAL);
+                registerConverter(new JavaMethodConverter(getClassLoaderReference()), PRIORITY_NORMAL);
+                registerConverter(new JavaFieldConverter(getClassLoaderReference()), PRIORITY_NORMAL);
+
+                /*
+                if (JVM.isAWTAvailable()) {
+                    registerConverter(new ColorConverter(), PRIORITY_NORMAL);
+                }
+                if (JVM.isSwingAvailable()) {
+                    registerConverter(new LookAndFeelConverter(getMapper(), getReflectionProvider()), PRIORITY_NORMAL);
+                }
+                */
+                registerConverter(new LocaleConverter(), PRIORITY_NORMAL);
+                registerConverter(new GregorianCalendarConverter(), PRIORITY_NORMAL);
+
+                registerConverter(new SelfStreamingInstanceChecker(getConverterLookup(), this), PRIORITY_NORMAL);
+            }
+
+        };
+        // setup proper security by limiting which classes can be loaded by XStream
+        xstream.addPermission(NoTypePermission.NONE);
+        xstream.addPermission(
+            new WildcardTypePermission(
+                new String[] {XStreamSpecificationLoader.class.getPackageName() + ".**"}
+            )
+        );
+        // ***
+        // auto-detection of annotations is not threadsafe, all annotated classes are processed instead
+        xstream.processAnnotations(Bit.class);
+        xstream.processAnnotations(BitField.class);
+        xstream.processAnnotations(Characteristic.class);
+        xstream.processAnnotations(Enumeration.class);
+        xstream.processAnnotations(Enumerations.class);
+        xstream.processAnnotations(Field.class);
+        xstream.processAnnotations(InformativeText.class);
+        xstream.processAnnotations(Service.class);
+        xstream.processAnnotations(Value.class);
+        xstream.processAnnotations(Reserved.class);
+        xstream.processAnnotations(Examples.class);
+        xstream.processAnnotations(CharacteristicAccess.class);
+        xstream.processAnnotations(Characteristics.class);
+        xstream.processAnnotations(Properties.class);
+        xstream.ignoreUnknownElements();
+        xstream.setClassLoader(Characteristic.class.getClassLoader());
+
+        return xstream;
+    }
+
+    /**
+     * Lazily creates the shared XStream instance when the first specification is read.
+     */
+    private static final class XStreamHolder {
+        private static final XStream XSTREAM = createXStream();
+    }
+
+}
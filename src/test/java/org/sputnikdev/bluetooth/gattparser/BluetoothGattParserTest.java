@@ -89,7 +89,7 @@ public class BluetoothGattParserTest {
         assertThat(response, notNullValue());
 
         verify(defaultParser, times(1)).parse(characteristic, data);
-        verify(specificationReader, times(2)).getCharacteristicByUUID(CHARACTERISTIC_UUID);
+        verify(specificationReader, times(1)).getCharacteristicByUUID(CHARACTERISTIC_UUID);
     }
 
     public void testParseNoValid() {
@@ -107,7 +107,7 @@ public class BluetoothGattParserTest {
         assertThat(response, notNullValue());
 
         verify(defaultParser, times(0)).parse(characteristic, data);
-        verify(specificationReader, times(2)).getCharacteristicByUUID(CHARACTERISTIC_UUID);
+        verify(specificationReader, times(1)).getCharacteristicByUUID(CHARACTERISTIC_UUID);
         verify(customParser, times(1)).parse(characteristic, data);
     }
 
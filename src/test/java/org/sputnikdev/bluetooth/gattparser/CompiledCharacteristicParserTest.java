@@ -0,0 +1,561 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sputnikdev.bluetooth.gattparser.num.IEEE754FloatingPointNumberFormatter;
+import org.sputnikdev.bluetooth.gattparser.spec.BluetoothGattSpecificationReader;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class CompiledCharacteristicParserTest {
+
+    private static final int MAX_LENGTH = 24;
+    private static final int VALUES_PER_LENGTH = 20;
+
+    private GattParserConfiguration config;
+    private GenericCharacteristicParser interpreter;
+    private CompiledCharacteristicParser compiled;
+
+    @BeforeEach
+    public void setUp() {
+        config = GattParserConfigurationBuilder.builder().setDefaults().toConfiguration();
+        interpreter = new GenericCharacteristicParser(config);
+        compiled = new CompiledCharacteristicParser(config);
+    }
+
+    @Test
+    public void testEquivalenceForAllBundledCharacteristics() throws Exception {
+        List<Characteristic> characteristics = getBundledCharacteristics();
+        assertFalse(characteristics.isEmpty());
+
+        Random random = new Random(20171024L);
+        int parsed = 0;
+        for (Characteristic characteristic : characteristics) {
+            if (!characteristic.isValidForRead()) {
+                continue;
+            }
+            for (int length = 0; length <= MAX_LENGTH; length++) {
+                for (int i = 0; i < VALUES_PER_LENGTH; i++) {
+                    byte[] raw = new byte[length];
+                    random.nextBytes(raw);
+                    if (i == 0) {
+                        Arrays.fill(raw, (byte) 0);
+                    } else if (i == 1) {
+                        Arrays.fill(raw, (byte) 0xFF);
+                    }
+                    if (assertEquivalent(characteristic, raw)) {
+                        parsed++;
+                    }
+                }
+            }
+        }
+        assertTrue(parsed > 0);
+    }
+
+    @Test
+    public void testByteBufferEquivalenceForAllBundledCharacteristics() throws Exception {
+        Random random = new Random(20171103L);
+        for (Characteristic characteristic : getBundledCharacteristics()) {
+            if (!characteristic.isValidForRead()) {
+                continue;
+            }
+            for (int length = 0; length <= MAX_LENGTH; length++) {
+                for (int i = 0; i < VALUES_PER_LENGTH; i++) {
+                    byte[] raw = new byte[length];
+                    random.nextBytes(raw);
+                    // the value in the middle of a bigger packet
+                    byte[] packet = new byte[length + 5];
+                    random.nextBytes(packet);
+                    System.arraycopy(raw, 0, packet, 3, raw.length);
+
+                    ByteBuffer direct = ByteBuffer.allocateDirect(packet.length);
+                    direct.put(packet).position(3).limit(3 + raw.length);
+                    ByteBuffer heap = ByteBuffer.wrap(packet, 3, raw.length).order(ByteOrder.BIG_ENDIAN);
+
+                    String message = characteristic.getName() + " " + Arrays.toString(raw);
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> compiled.parse(characteristic, packet, 3, raw.length));
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> compiled.parse(characteristic, direct));
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> compiled.parse(characteristic, heap));
+
+                    assertEquals(3, direct.position());
+                    assertEquals(3 + raw.length, direct.limit());
+                    assertEquals(3, heap.position());
+                    assertEquals(3 + raw.length, heap.limit());
+                    assertEquals(ByteOrder.BIG_ENDIAN, heap.order());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLazyEquivalenceForAllBundledCharacteristics() throws Exception {
+        CompiledCharacteristicParser lazy = new CompiledCharacteristicParser(getLazyConfiguration());
+        Random random = new Random(20171117L);
+        for (Characteristic characteristic : getBundledCharacteristics()) {
+            if (!characteristic.isValidForRead()) {
+                continue;
+            }
+            for (int length = 0; length <= MAX_LENGTH; length++) {
+                for (int i = 0; i < VALUES_PER_LENGTH; i++) {
+                    byte[] raw = new byte[length];
+                    random.nextBytes(raw);
+                    byte[] packet = new byte[length + 3];
+                    System.arraycopy(raw, 0, packet, 2, raw.length);
+                    String message = characteristic.getName() + " " + Arrays.toString(raw);
+                    // values are checked to be long enough when they are parsed, but decoded when they are accessed
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> decodeAll(lazy.parse(characteristic, raw)));
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> decodeAll(lazy.parse(characteristic, packet, 2, raw.length)));
+                    assertEquivalent(message, () -> compiled.parse(characteristic, raw),
+                            () -> decodeAll(lazy.parse(characteristic, ByteBuffer.wrap(packet, 2, raw.length))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLazyParsing() throws Exception {
+        CompiledCharacteristicParser lazy = new CompiledCharacteristicParser(getLazyConfiguration());
+        Characteristic characteristic = getBundledCharacteristics().stream()
+                .filter(c -> "org.bluetooth.characteristic.heart_rate_measurement".equals(c.getType()))
+                .findFirst().get();
+        byte[] raw = {0x10, 74, 0x10, 0x20};
+        LinkedHashMap<String, FieldHolder> holders = lazy.parse(characteristic, raw);
+        assertEquals(new ArrayList<>(compiled.parse(characteristic, raw).keySet()),
+                new ArrayList<>(holders.keySet()));
+
+        // the value is copied, so that the caller can reuse the array
+        raw[1] = 0;
+        FieldHolder heartRate = holders.get("Heart Rate Measurement Value (uint8)");
+        assertEquals(74, heartRate.getAsInt());
+        Object rawValue = heartRate.getRawValue();
+        assertSame(rawValue, heartRate.getRawValue());
+        assertEquals(0x2010, holders.get("RR-Interval").getAsInt());
+
+        // the value is still checked to be long enough when it is parsed
+        try {
+            lazy.parse(characteristic, new byte[] {0x10, 74, 0x10});
+            fail("CharacteristicFormatException is expected");
+        } catch (CharacteristicFormatException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLazyParsingOfUnsupportedFields() throws Exception {
+        // the IEEE 754 formatter does not support SFLOAT numbers, hence they cannot be decoded whatever they are
+        IGattParserConfiguration lazyConfig = getLazyConfiguration();
+        doReturn(new IEEE754FloatingPointNumberFormatter()).when(lazyConfig).getIEEE11073FloatingPointNumberFormatter();
+        CompiledCharacteristicParser lazy = new CompiledCharacteristicParser(lazyConfig);
+        Characteristic bloodPressure = config.getGattSpecificationReader().getCharacteristicByUUID("2A35");
+        try {
+            lazy.parse(bloodPressure, new byte[] {0x00, 0x10, 0x00, 0x20, 0x00, 0x30, 0x00});
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException ex) {
+            assertEquals("Operation not supported", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testProjectionEquivalenceForAllBundledCharacteristics() throws Exception {
+        Random random = new Random(20171124L);
+        int parsed = 0;
+        for (Characteristic characteristic : getBundledCharacteristics()) {
+            if (!characteristic.isValidForRead()) {
+                continue;
+            }
+            ParsePlan plan = compiled.getPlan(characteristic);
+            List<String> names = new ArrayList<>();
+            for (ParsePlan.Step step : plan.getSteps()) {
+                if (step.getKind() == ParsePlan.StepKind.VALUE && !names.contains(step.getName())) {
+                    names.add(step.getName());
+                }
+            }
+            List<Set<String>> projections = new ArrayList<>();
+            names.forEach(name -> projections.add(Collections.singleton(name)));
+            if (names.size() > 2) {
+                projections.add(new LinkedHashSet<>(Arrays.asList(names.get(0), names.get(names.size() - 1))));
+            }
+            for (Set<String> fieldNames : projections) {
+                Projection projection = new Projection(characteristic.getUuid(), characteristic.getUuid(),
+                        characteristic, fieldNames, plan, compiled);
+                for (int length = 0; length <= MAX_LENGTH; length++) {
+                    for (int i = 0; i < 5; i++) {
+                        byte[] raw = new byte[length];
+                        random.nextBytes(raw);
+                        LinkedHashMap<String, FieldHolder> expected;
+                        try {
+                            expected = compiled.parse(characteristic, raw);
+                        } catch (RuntimeException ex) {
+                            // a projection may succeed if the failure is not on the way to the requested fields
+                            continue;
+                        }
+                        expected.keySet().retainAll(fieldNames);
+                        String message = characteristic.getName() + " " + fieldNames + " " + Arrays.toString(raw);
+                        assertEquivalent(message, () -> expected,
+                                () -> new LinkedHashMap<>(projection.parse(raw).getHolders()));
+                        parsed++;
+                    }
+                }
+            }
+        }
+        assertTrue(parsed > 0);
+    }
+
+    @Test
+    public void testBatchEquivalenceForAllBundledCharacteristics() throws Exception {
+        Random random = new Random(20171110L);
+        int decoded = 0;
+        for (Characteristic characteristic : getBundledCharacteristics()) {
+            if (!characteristic.isValidForRead()) {
+                continue;
+            }
+            List<byte[]> values = new ArrayList<>();
+            List<LinkedHashMap<String, FieldHolder>> expected = new ArrayList<>();
+            for (int length = 0; length <= MAX_LENGTH; length++) {
+                for (int i = 0; i < VALUES_PER_LENGTH; i++) {
+                    byte[] raw = new byte[length];
+                    random.nextBytes(raw);
+                    try {
+                        expected.add(compiled.parse(characteristic, raw));
+                        values.add(raw);
+                    } catch (CharacteristicFormatException ex) {
+                        try {
+                            compiled.parseBatch(characteristic, new byte[][] {raw});
+                            fail(characteristic.getName() + " " + Arrays.toString(raw) + ": " + ex + " is expected");
+                        } catch (CharacteristicFormatException expectedException) {
+                            // expected
+                        }
+                    } catch (RuntimeException ex) {
+                        // formatters fail on some values, e.g. IEEE 754 SFLOAT is not supported
+                    }
+                }
+            }
+            ColumnarBatch batch = compiled.parseBatch(characteristic, values.toArray(new byte[0][]));
+            assertBatch(characteristic.getName(), expected, batch);
+
+            // the same values concatenated into a single array
+            ByteBuffer data = ByteBuffer.allocate(values.stream().mapToInt(value -> value.length).sum() + 3);
+            data.position(3);
+            int[] offsets = new int[values.size() + 1];
+            for (int i = 0; i < values.size(); i++) {
+                offsets[i] = data.position();
+                data.put(values.get(i));
+            }
+            offsets[values.size()] = data.position();
+            assertBatch(characteristic.getName(), expected, compiled.parseBatch(characteristic, data.array(), offsets));
+            decoded += values.size();
+        }
+        assertTrue(decoded > 0);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        Characteristic heartRate = config.getGattSpecificationReader().getCharacteristicByUUID("2A37");
+        ColumnarBatch batch = compiled.parseBatch(heartRate, new byte[][] {
+            {0x00, 74}, {0x01, 0x10, 0x01}, {0x10, 75, 0x10, 0x20}, {0x11, 0x20, 0x01, 0x00, 0x04}});
+        assertEquals(4, batch.getSize());
+        assertTrue(batch.isIntegral("Heart Rate Measurement Value (uint8)"));
+        assertEquals(74, batch.getLongs("Heart Rate Measurement Value (uint8)")[0]);
+        assertEquals(75, batch.getLongs("Heart Rate Measurement Value (uint8)")[2]);
+        assertEquals(0x110, batch.getLongs("Heart Rate Measurement Value (uint16)")[1]);
+        assertEquals(0x120, batch.getLongs("Heart Rate Measurement Value (uint16)")[3]);
+        BitSet uint8 = new BitSet();
+        uint8.set(0);
+        uint8.set(2);
+        assertEquals(uint8, batch.getPresence("Heart Rate Measurement Value (uint8)"));
+        assertTrue(batch.isPresent("RR-Interval", 2));
+        assertFalse(batch.isPresent("RR-Interval", 0));
+        assertEquals(0x2010, batch.getLongs("RR-Interval")[2]);
+        assertTrue(Double.isNaN(batch.getDoubles("RR-Interval")[0]));
+        assertEquals(0x400, batch.getDoubles("RR-Interval")[3], 0.0);
+        assertFalse(batch.contains("Flags"));
+        assertEquals(null, batch.getLongs("Unknown"));
+
+        Characteristic temperature = config.getGattSpecificationReader().getCharacteristicByUUID("2A1C");
+        batch = compiled.parseBatch(temperature, new byte[][] {
+            {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00, 0x03}});
+        assertFalse(batch.isIntegral("Temperature Measurement Value (Celsius)"));
+        assertEquals(179.0, batch.getDoubles("Temperature Measurement Value (Celsius)")[0], 0.001);
+        assertEquals(2017, batch.getLongs("Year")[0]);
+    }
+
+    @Test
+    public void testPlanIsCached() throws Exception {
+        Characteristic characteristic = config.getGattSpecificationReader().getCharacteristicByUUID("2A1C");
+        ParsePlan plan = compiled.getPlan(characteristic);
+        assertSame(plan, compiled.getPlan(characteristic));
+        assertSame(characteristic, plan.getCharacteristic());
+    }
+
+    @Test
+    public void testOverriddenReferencedCharacteristic() throws Exception {
+        Characteristic dayDateTime = config.getGattSpecificationReader().getCharacteristicByUUID("2A0A");
+        byte[] value = {(byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00, 0x03, 0x01};
+        assertEquals(3, compiled.parse(dayDateTime, value).get("Day of Week").getInteger(null).intValue());
+        assertEquals(3, compiled.parseBatch(dayDateTime, new byte[][] {value}).getLongs("Day of Week")[0]);
+
+        // Day of Week referenced by Day Date Time is overridden by a custom specification of a different size
+        Path folder = Files.createTempDirectory("extensions");
+        Files.createDirectory(folder.resolve("characteristic"));
+        Files.write(folder.resolve("characteristic").resolve("org.bluetooth.characteristic.day_of_week.xml"),
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<Characteristic name=\"Day of Week\" type=\"org.bluetooth.characteristic.day_of_week\""
+                + " uuid=\"2A09\"><Value><Field name=\"Day of Week\"><Requirement>Mandatory</Requirement>"
+                + "<Format>uint16</Format></Field></Value></Characteristic>").getBytes(StandardCharsets.UTF_8));
+        config.getGattSpecificationReader().loadExtensionsFromFolder(folder.toString());
+
+        assertEquals(0x103, compiled.parse(dayDateTime, value).get("Day of Week").getInteger(null).intValue());
+        assertEquals(0x103, compiled.parseBatch(dayDateTime, new byte[][] {value}).getLongs("Day of Week")[0]);
+        assertTrue(assertEquivalent(dayDateTime, value));
+    }
+
+    @Test
+    public void testLayoutCache() throws Exception {
+        Characteristic heartRate = config.getGattSpecificationReader().getCharacteristicByUUID("2A37");
+        assertEquals(0, compiled.getLayoutCacheStatistics(heartRate).getMisses());
+        assertTrue(compiled.getPlan(heartRate).isCachingLayouts());
+
+        byte[] uint8 = {0x00, 74};
+        byte[] uint16 = {0x01, 74, 0x01};
+        for (int i = 0; i < 3; i++) {
+            assertEquals(interpreter.parse(heartRate, uint8).keySet(), compiled.parse(heartRate, uint8).keySet());
+            assertEquals(74, (int) compiled.parse(heartRate, uint8).get("Heart Rate Measurement Value (uint8)")
+                    .getInteger(null));
+            assertEquals(330, (int) compiled.parse(heartRate, ByteBuffer.wrap(uint16))
+                    .get("Heart Rate Measurement Value (uint16)").getInteger(null));
+        }
+        LayoutCacheStatistics statistics = compiled.getLayoutCacheStatistics(heartRate);
+        assertEquals(2, statistics.getMisses());
+        assertEquals(7, statistics.getHits());
+        assertEquals(2, statistics.getLayouts());
+
+        Characteristic batteryLevel = config.getGattSpecificationReader().getCharacteristicByUUID("2A19");
+        compiled.parse(batteryLevel, new byte[] {51});
+        assertFalse(compiled.getPlan(batteryLevel).isCachingLayouts());
+        assertEquals(0, compiled.getLayoutCacheStatistics(batteryLevel).getHits());
+    }
+
+    @Test
+    public void testLayoutCacheCountsOnlyParses() throws Exception {
+        Characteristic heartRate = config.getGattSpecificationReader().getCharacteristicByUUID("2A37");
+        byte[] data = {0x7F, 0x00, 74, 0x01, 0x10, 0x01};
+        compiled.parseBatch(heartRate, data, new int[] {1, 3, 6});
+        compiled.parseBatch(heartRate, new byte[][] {{0x00, 75}});
+        Projection projection = new Projection(heartRate.getUuid(), heartRate.getUuid(), heartRate,
+                Collections.singleton("RR-Interval"), compiled.getPlan(heartRate), compiled);
+        assertEquals(0x2010, (int) projection.parse(new byte[] {0x10, 75, 0x10, 0x20}).get("RR-Interval")
+                .getInteger());
+        LayoutCacheStatistics statistics = compiled.getLayoutCacheStatistics(heartRate);
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(3, statistics.getLayouts());
+
+        // layouts selected for batches and projections are reused by parses
+        compiled.parse(heartRate, new byte[] {0x00, 76});
+        statistics = compiled.getLayoutCacheStatistics(heartRate);
+        assertEquals(1, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+    }
+
+    @Test
+    public void testReferencedCharacteristicInlined() throws Exception {
+        // Temperature Measurement references Date Time, which does not have flags
+        Characteristic characteristic = config.getGattSpecificationReader().getCharacteristicByUUID("2A1C");
+        for (ParsePlan.Step step : compiled.getPlan(characteristic).getSteps()) {
+            assertTrue(step.getKind() == ParsePlan.StepKind.VALUE || step.getKind() == ParsePlan.StepKind.SKIP);
+        }
+        byte[] raw = {0x06, (byte) 0xFE, 0x06, 0x00, (byte) 0xFF, (byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00, 0x03};
+        LinkedHashMap<String, FieldHolder> result = compiled.parse(characteristic, raw);
+        assertEquals(interpreter.parse(characteristic, raw).keySet(), result.keySet());
+        assertEquals(2017, (int) result.get("Year").getInteger(null));
+        assertEquals(30, (int) result.get("Minutes").getInteger(null));
+        assertEquals(3, (int) result.get("Temperature Text Description").getInteger(null));
+    }
+
+    @Test
+    public void testInvalidCharacteristic() {
+        Characteristic characteristic = config.getGattSpecificationReader().getCharacteristics().stream()
+                .filter(c -> !c.isValidForRead()).findFirst().orElse(null);
+        if (characteristic == null) {
+            return;
+        }
+        try {
+            compiled.parse(characteristic, new byte[] {1, 2, 3});
+            fail("Exception is expected");
+        } catch (CharacteristicFormatException ex) {
+            assertTrue(ex.getMessage().startsWith("Characteristic cannot be parsed"));
+        }
+    }
+
+    private boolean assertEquivalent(Characteristic characteristic, byte[] raw) {
+        return assertEquivalent(characteristic.getName() + " " + Arrays.toString(raw),
+                () -> interpreter.parse(characteristic, raw), () -> compiled.parse(characteristic, raw));
+    }
+
+    private static boolean assertEquivalent(String message,
+                                            Supplier<LinkedHashMap<String, FieldHolder>> expectedParser,
+                                            Supplier<LinkedHashMap<String, FieldHolder>> actualParser) {
+        LinkedHashMap<String, FieldHolder> expected = null;
+        RuntimeException expectedException = null;
+        try {
+            expected = expectedParser.get();
+        } catch (RuntimeException ex) {
+            expectedException = ex;
+        }
+        LinkedHashMap<String, FieldHolder> actual = null;
+        RuntimeException actualException = null;
+        try {
+            actual = actualParser.get();
+        } catch (RuntimeException ex) {
+            actualException = ex;
+        }
+        if (expectedException != null) {
+            assertTrue(message + ": " + expectedException + " is expected, but got " + actual,
+                    actualException != null);
+            assertEquals(message, expectedException.getClass(), actualException.getClass());
+            return false;
+        }
+        if (actualException != null) {
+            throw new AssertionError(message + ": unexpected exception", actualException);
+        }
+        assertEquals(message, new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        Iterator<FieldHolder> actualHolders = actual.values().iterator();
+        for (FieldHolder expectedHolder : expected.values()) {
+            FieldHolder actualHolder = actualHolders.next();
+            assertSame(message, expectedHolder.getField(), actualHolder.getField());
+            Object expectedValue = expectedHolder.getRawValue();
+            Object actualValue = actualHolder.getRawValue();
+            assertTrue(message + ": " + expectedHolder.getField().getName() + " expected " + expectedValue
+                    + ", but got " + actualValue, Objects.deepEquals(expectedValue, actualValue)
+                    || isNaN(expectedValue) && isNaN(actualValue));
+        }
+        return true;
+    }
+
+    private IGattParserConfiguration getLazyConfiguration() {
+        // the same specification reader, hence the same fields of referenced characteristics
+        IGattParserConfiguration lazyConfig = mock(IGattParserConfiguration.class, delegatesTo(config));
+        doReturn(true).when(lazyConfig).isLazyParsing();
+        return lazyConfig;
+    }
+
+    private static LinkedHashMap<String, FieldHolder> decodeAll(LinkedHashMap<String, FieldHolder> holders) {
+        holders.values().forEach(FieldHolder::getRawValue);
+        return holders;
+    }
+
+    private static void assertBatch(String message, List<LinkedHashMap<String, FieldHolder>> expected,
+                                    ColumnarBatch batch) {
+        assertEquals(message, expected.size(), batch.getSize());
+        for (int i = 0; i < expected.size(); i++) {
+            for (FieldHolder holder : expected.get(i).values()) {
+                if (ColumnarBatch.ColumnType.of(holder.getField()) != null) {
+                    assertTrue(message + ": " + holder.getField().getName(),
+                            batch.contains(holder.getField().getName()));
+                }
+            }
+        }
+        for (String name : batch.getFieldNames()) {
+            double[] doubles = batch.getDoubles(name);
+            for (int i = 0; i < expected.size(); i++) {
+                FieldHolder holder = expected.get(i).get(name);
+                String row = message + ": " + name + " #" + i;
+                if (holder == null || holder.getRawValue() == null) {
+                    assertFalse(row, batch.isPresent(name, i));
+                    continue;
+                }
+                assertTrue(row, batch.isPresent(name, i));
+                Object value = holder.getRawValue();
+                if (batch.isIntegral(name)) {
+                    long expectedValue = value instanceof Boolean ? ((Boolean) value ? 1 : 0)
+                            : ((Number) value).longValue();
+                    assertEquals(row, expectedValue, batch.getLongs(name)[i]);
+                }
+                double expectedDouble = holder.getDouble();
+                assertTrue(row + " expected " + expectedDouble + ", but got " + doubles[i],
+                        expectedDouble == doubles[i] || Double.isNaN(expectedDouble) && Double.isNaN(doubles[i]));
+            }
+        }
+    }
+
+    private static boolean isNaN(Object value) {
+        return value instanceof Float && ((Float) value).isNaN() || value instanceof Double && ((Double) value).isNaN();
+    }
+
+    private List<Characteristic> getBundledCharacteristics() throws Exception {
+        BluetoothGattSpecificationReader reader = config.getGattSpecificationReader();
+        List<Characteristic> characteristics = new ArrayList<>();
+        try (Reader registry = new InputStreamReader(getClass().getClassLoader()
+                .getResourceAsStream("gatt/characteristic/gatt_spec_registry.json"), StandardCharsets.UTF_8)) {
+            Map<String, String> uuids = new Gson().fromJson(registry, new TypeToken<Map<String, String>>() { }.getType());
+            for (String uuid : uuids.keySet()) {
+                try {
+                    Characteristic characteristic = reader.getCharacteristicByUUID(uuid);
+                    if (characteristic != null) {
+                        characteristics.add(characteristic);
+                    }
+                } catch (NullPointerException ex) {
+                    // some bundled specifications (e.g. control points) do not define any value
+                }
+            }
+        }
+        return characteristics;
+    }
+
+}
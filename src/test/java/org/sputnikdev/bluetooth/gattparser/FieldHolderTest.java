@@ -34,6 +34,7 @@ import org.sputnikdev.bluetooth.gattparser.spec.Field;
 import org.sputnikdev.bluetooth.gattparser.spec.FieldType;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -441,6 +442,99 @@ public class FieldHolderTest {
         assertGetDouble(2120.0D, 1, 2, 3, 2000.0, 1);
     }
 
+    @Test
+    public void testGetAsPrimitives() {
+        mockField(null, null, null, null);
+        FieldHolder holder = new FieldHolder(field, -5, FieldHolder.Slot.INTEGER);
+        assertEquals(-5, holder.getAsInt());
+        assertEquals(-5L, holder.getAsLong());
+        assertEquals(-5D, holder.getAsDouble(), 0);
+        assertEquals(-5, holder.getRawValue());
+        assertTrue(holder.isValueSet());
+
+        holder = new FieldHolder(field, 0xFFFFFFFFL, FieldHolder.Slot.LONG);
+        assertEquals(0xFFFFFFFFL, holder.getAsLong());
+        assertEquals(0xFFFFFFFFL, holder.getRawValue());
+
+        holder = new FieldHolder(field, 1.5F, FieldHolder.Slot.FLOAT);
+        assertEquals(1, holder.getAsInt());
+        assertEquals(1.5D, holder.getAsDouble(), 0);
+        assertEquals(1.5F, holder.getRawValue());
+
+        holder = new FieldHolder(field, 2.5D, FieldHolder.Slot.DOUBLE);
+        assertEquals(2L, holder.getAsLong());
+        assertEquals(2.5D, holder.getRawValue());
+
+        holder = new FieldHolder(field, 7L);
+        assertEquals(7, holder.getAsInt());
+        assertEquals(7D, holder.getAsDouble(), 0);
+
+        FieldHolder notNumber = new FieldHolder(field, "test");
+        assertThrows(IllegalStateException.class, notNumber::getAsLong);
+    }
+
+    @Test
+    public void testGetAsPrimitivesScaled() {
+        mockField(-1, null, null, null);
+        FieldHolder holder = new FieldHolder(field, 25, FieldHolder.Slot.INTEGER);
+        assertEquals(3, holder.getAsInt());
+        assertEquals(3L, holder.getAsLong());
+        assertEquals(2.5D, holder.getAsDouble(), 0.0000001);
+        assertEquals(holder.getDouble(), holder.getAsDouble(), 0);
+
+        mockField(1, 2, 3, 2000.0);
+        holder = new FieldHolder(field, 1, FieldHolder.Slot.INTEGER);
+        assertEquals(2120, holder.getAsInt());
+        assertEquals(2120.0D, holder.getAsDouble(), 0);
+    }
+
+    @Test
+    public void testGetConvertedPrimitives() {
+        mockField(null, null, null, null);
+        FieldHolder holder = new FieldHolder(field, 0xFFFFFFFFL, FieldHolder.Slot.LONG);
+        assertNull(holder.getInteger());
+        assertEquals(Long.valueOf(0xFFFFFFFFL), holder.getLong());
+        assertEquals(4294967295.0D, holder.getDouble(), 0);
+
+        holder = new FieldHolder(field, 1.1F, FieldHolder.Slot.FLOAT);
+        assertEquals(Integer.valueOf(1), holder.getInteger());
+        assertEquals(Float.valueOf(1.1F), holder.getFloat());
+        assertEquals(Double.valueOf(1.1F), holder.getDouble());
+
+        holder = new FieldHolder(field, 1e300, FieldHolder.Slot.DOUBLE);
+        assertNull(holder.getFloat(null));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), holder.getLong());
+
+        holder = new FieldHolder(field, Long.MIN_VALUE);
+        assertNull(holder.getInteger());
+        assertEquals(Float.valueOf(Long.MIN_VALUE), holder.getFloat());
+
+        holder = new FieldHolder(field, "12");
+        assertEquals(Integer.valueOf(12), holder.getInteger());
+        assertEquals(Long.valueOf(12), holder.getLong());
+        assertEquals(12.0D, holder.getDouble(), 0);
+        assertEquals("12", holder.getString());
+
+        holder = new FieldHolder(field, null);
+        assertEquals(Integer.valueOf(3), holder.getInteger(3));
+        assertTrue(holder.getBoolean(true));
+    }
+
+    @Test
+    public void testSetResetsPrimitiveValue() {
+        when(field.getFormat().getType()).thenReturn(FieldType.UINT);
+        when(field.getFormat().getSize()).thenReturn(8);
+        when(field.getMinimum()).thenReturn(0.0);
+        when(field.getMaximum()).thenReturn(255.0);
+        mockField(null, null, null, null);
+        FieldHolder holder = new FieldHolder(field, 5, FieldHolder.Slot.INTEGER);
+        holder.setInteger(10);
+        assertEquals(10, holder.getAsInt());
+        assertEquals(10, holder.getRawValue());
+        holder.setInteger(null);
+        assertFalse(holder.isValueSet());
+    }
+
     @Test
     public void testSetInteger() throws Exception {
         mockField(1, 2, 3, 0.0);
@@ -713,6 +807,37 @@ public class FieldHolderTest {
         }
     }
 
+    @Test
+    public void testLazyDecoding() throws Exception {
+        int[] decoded = new int[1];
+        FieldDecoder decoder = new FieldDecoder() {
+            @Override
+            public void decode(byte[] raw, int offset, FieldHolder holder) {
+                decoded[0]++;
+                holder.setRawValue(raw[offset >> 3], FieldHolder.Slot.INTEGER);
+            }
+
+            @Override
+            public void decode(ByteBuffer raw, int offset, FieldHolder holder) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        FieldHolder fieldHolder = new FieldHolder(field);
+        fieldHolder.setEncodedValue(decoder, new byte[] {1, 2, 3}, 8);
+        assertEquals(0, decoded[0]);
+        assertEquals(2L, fieldHolder.getAsLong());
+        assertEquals(2, fieldHolder.getRawValue());
+        assertTrue(fieldHolder.isValueSet());
+        assertEquals(1, decoded[0]);
+
+        // setting a value cancels decoding
+        fieldHolder.setEncodedValue(decoder, new byte[] {1, 2, 3}, 16);
+        fieldHolder.setRawValue(5);
+        assertEquals(5, fieldHolder.getRawValue());
+        assertEquals(1, decoded[0]);
+    }
+
     private void assertGetBigInteger(BigInteger expected, Integer decimalExponent, Integer binaryExponent,
             Integer multiplier, Double offset, Object value) {
         FieldHolder fieldHolder = new FieldHolder(field, value);
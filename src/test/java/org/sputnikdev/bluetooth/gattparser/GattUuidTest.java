@@ -0,0 +1,77 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GattUuidTest {
+
+    @Test
+    public void testOf() {
+        GattUuid uuid = GattUuid.of(0x2A19);
+        assertEquals("2A19", uuid.getShortUUID());
+        assertEquals(0x2A19, uuid.getShortValue());
+        assertEquals("00002a19-0000-1000-8000-00805f9b34fb", uuid.toString());
+        assertEquals(UUID.fromString("00002a19-0000-1000-8000-00805f9b34fb"), uuid.toUUID());
+
+        GattUuid custom = GattUuid.of(UUID.fromString("f000aa01-0451-4000-b000-000000000000"));
+        assertEquals("F000AA01", custom.getShortUUID());
+        assertEquals(0xF000AA01, custom.getShortValue());
+        assertEquals("F000AA01", GattUuid.of(0xF000AA01).getShortUUID());
+    }
+
+    @Test
+    public void testFromString() {
+        assertEquals(GattUuid.of(0x2A19), GattUuid.fromString("2a19"));
+        assertEquals(GattUuid.of(0x2A19), GattUuid.fromString("2A19"));
+        assertEquals(GattUuid.of(0x2A19), GattUuid.fromString("00002a19-0000-1000-8000-00805f9b34fb"));
+        assertEquals(GattUuid.of(0x2A19).hashCode(), GattUuid.fromString("00002A19-0000-1000-8000-00805F9B34FB").hashCode());
+        assertNotEquals(GattUuid.of(0x2A19), GattUuid.fromString("00002a19-0000-1000-8000-00805f9b34fc"));
+        assertThrows(IllegalArgumentException.class, () -> GattUuid.fromString("not a uuid"));
+    }
+
+    @Test
+    public void testToShortUUID() {
+        assertEquals("2A19", GattUuid.toShortUUID("2a19"));
+        assertEquals("2A19", GattUuid.toShortUUID("00002a19-0000-1000-8000-00805f9b34fb"));
+        assertEquals("F000AA01", GattUuid.toShortUUID("f000aa01-0451-4000-b000-000000000000"));
+        // normalized UUIDs are cached
+        assertSame(GattUuid.toShortUUID("00002a37-0000-1000-8000-00805f9b34fb"),
+                GattUuid.toShortUUID("00002a37-0000-1000-8000-00805f9b34fb"));
+        // UUIDs are still cached once many other UUIDs have been converted
+        for (int i = 0; i < 2000; i++) {
+            GattUuid.toShortUUID(String.format("%08x-0000-1000-8000-00805f9b34fb", 0x10000 + i));
+        }
+        assertSame(GattUuid.toShortUUID("00002a38-0000-1000-8000-00805f9b34fb"),
+                GattUuid.toShortUUID("00002a38-0000-1000-8000-00805f9b34fb"));
+        for (String uuid : new String[] {"2a19", "00002a19-0000-1000-8000-00805f9b34fb", "F000AA01"}) {
+            assertEquals(GattUuid.fromString(uuid).getShortUUID(), GattUuid.toShortUUID(uuid));
+        }
+    }
+
+}
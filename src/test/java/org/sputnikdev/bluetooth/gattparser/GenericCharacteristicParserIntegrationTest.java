@@ -20,17 +20,39 @@ package org.sputnikdev.bluetooth.gattparser;
  * #L%
  */
 
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.Test;
+import org.sputnikdev.bluetooth.gattparser.spec.Characteristic;
 import org.sputnikdev.bluetooth.gattparser.spec.Enumeration;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
 
 public class GenericCharacteristicParserIntegrationTest {
 
@@ -419,6 +441,428 @@ public class GenericCharacteristicParserIntegrationTest {
         assertArrayEquals(expected, parser.serialize(request, false));
     }
 
+    @Test
+    public void testSerializeIntoByteBuffer() {
+        GattRequest request = parser.prepare("eee5");
+        request.setField("Alert Delay", 65);
+        byte[] expected = {0x03, (byte) 0xe8, (byte) 0xfd};
+
+        // only the serialized bytes are written, the rest of the buffer is not touched
+        byte[] array = new byte[8];
+        Arrays.fill(array, (byte) 0x55);
+        ByteBuffer heap = ByteBuffer.wrap(array);
+        heap.position(2);
+        assertEquals(3, parser.serialize(request, heap));
+        assertEquals(5, heap.position());
+        assertArrayEquals(new byte[] {0x55, 0x55, 0x03, (byte) 0xe8, (byte) 0xfd, 0x55, 0x55, 0x55}, array);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(4);
+        assertEquals(3, parser.serialize(request, direct));
+        assertEquals(3, direct.position());
+        byte[] written = new byte[3];
+        direct.flip();
+        direct.get(written);
+        assertArrayEquals(expected, written);
+
+        // a value of zero fields is still one byte long
+        GattRequest zero = parser.prepare("2A39");
+        zero.setField("Heart Rate Control Point", 0);
+        heap = ByteBuffer.wrap(array);
+        assertEquals(1, parser.serialize(zero, heap));
+        assertEquals(0, array[0]);
+        assertEquals(0x55, array[1]);
+
+        try {
+            parser.serialize(request, ByteBuffer.allocate(2));
+            fail("Buffer overflow is expected");
+        } catch (BufferOverflowException ignored) {
+            // expected
+        }
+        try {
+            parser.serialize(request, ByteBuffer.allocateDirect(2));
+            fail("Buffer overflow is expected");
+        } catch (BufferOverflowException ignored) {
+            // expected
+        }
+
+        // the buffer is not changed if a field cannot be serialized (IEEE 11073 numbers cannot be)
+        GattRequest temperature = parser.prepare("2A1C");
+        temperature.setField("Flags", 0);
+        temperature.setField("Temperature Measurement Value (Celsius)", 36.6);
+        Arrays.fill(array, (byte) 0x55);
+        heap = ByteBuffer.wrap(array);
+        try {
+            parser.serialize(temperature, heap, false, array.length);
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+        assertEquals(0, heap.position());
+        assertArrayEquals(new byte[] {0x55, 0x55, 0x55, 0x55, 0x55, 0x55, 0x55, 0x55}, array);
+    }
+
+    @Test
+    public void testSerializeIntoByteBufferOverflow() {
+        GattRequest request = parser.prepare("eee5");
+        request.setField("Alert Delay", 65);
+
+        // the value is 3 bytes long, only the first of them would fit
+        byte[] array = new byte[8];
+        Arrays.fill(array, (byte) 0x55);
+        ByteBuffer heap = ByteBuffer.wrap(array, 2, 1);
+        try {
+            parser.serialize(request, heap);
+            fail("Buffer overflow is expected");
+        } catch (BufferOverflowException ignored) {
+            // expected
+        }
+        assertEquals(2, heap.position());
+        byte[] untouched = new byte[8];
+        Arrays.fill(untouched, (byte) 0x55);
+        assertArrayEquals(untouched, array);
+
+        ByteBuffer slice = ByteBuffer.wrap(array, 4, 2).slice();
+        try {
+            parser.serialize(request, slice);
+            fail("Buffer overflow is expected");
+        } catch (BufferOverflowException ignored) {
+            // expected
+        }
+        assertEquals(0, slice.position());
+        assertArrayEquals(untouched, array);
+    }
+
+    @Test
+    public void testSerializeMaxPayloadSize() {
+        String name = "A device name which does not fit into twenty bytes";
+        GattRequest request = parser.prepare("2A00");
+        request.setField("Name", name);
+
+        // the default ATT_MTU of 23 bytes
+        assertArrayEquals(Arrays.copyOf(name.getBytes(), 20), parser.serialize(request));
+        assertArrayEquals(name.getBytes(), parser.serialize(request, 244));
+        assertArrayEquals(Arrays.copyOf(name.getBytes(), 30), parser.serialize(request, false, 30));
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertEquals(name.length(), parser.serialize(request, buffer, true, 64));
+
+        BluetoothGattParser mtuParser = GattParserConfigurationBuilder.builder().setDefaults()
+                .withMtu(247).toConfiguration().getGattParser();
+        GattRequest mtuRequest = mtuParser.prepare("2A00");
+        mtuRequest.setField("Name", name);
+        assertArrayEquals(name.getBytes(), mtuParser.serialize(mtuRequest));
+
+        try {
+            parser.serialize(request, 0);
+            fail("Illegal payload size");
+        } catch (IllegalArgumentException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSerializeSegments() {
+        GattRequest request = parser.prepare("2A00");
+        request.setField("Name", "short name");
+        List<WriteSegment> segments = parser.serializeSegments(request, 23);
+        assertEquals(1, segments.size());
+        assertFalse(segments.get(0).isPrepared());
+        assertEquals(0, segments.get(0).getOffset());
+        assertArrayEquals("short name".getBytes(), segments.get(0).getValue());
+
+        StringBuilder name = new StringBuilder();
+        while (name.length() < 100) {
+            name.append("long name ");
+        }
+        request.setField("Name", name.toString());
+        byte[] value = name.toString().getBytes();
+
+        // 100 bytes are split into segments of 18 bytes (ATT_MTU - 5)
+        segments = parser.serializeSegments(request, 23);
+        assertEquals(6, segments.size());
+        ByteBuffer joined = ByteBuffer.allocate(value.length);
+        for (int i = 0; i < segments.size(); i++) {
+            WriteSegment segment = segments.get(i);
+            assertTrue(segment.isPrepared());
+            assertEquals(i * 18, segment.getOffset());
+            assertEquals(joined.position(), segment.getOffset());
+            joined.put(segment.getValue());
+        }
+        assertEquals(10, segments.get(5).getValue().length);
+        assertArrayEquals(value, joined.array());
+
+        // a value which fits into a single write request of a bigger ATT_MTU is not split
+        segments = parser.serializeSegments(request, 103);
+        assertEquals(1, segments.size());
+        assertFalse(segments.get(0).isPrepared());
+        assertArrayEquals(value, segments.get(0).getValue());
+        segments = parser.serializeSegments(request, 102);
+        assertEquals(2, segments.size());
+        assertEquals(97, segments.get(1).getOffset());
+    }
+
+    @Test
+    public void testParseInto() {
+        GattResponse response = parser.parse("2A23", new byte[] {85, -86, 85, -86, 85, -86, 85, -86});
+        FieldHolder identifier = response.get("Manufacturer Identifier");
+
+        assertSame(response, parser.parseInto("2A23", new byte[] {1, 0, 0, 0, 0, 2, 0, 0}, response));
+        assertEquals(2, response.getSize());
+        assertSame(identifier, response.get("Manufacturer Identifier"));
+        assertEquals(1L, identifier.getAsLong());
+        assertEquals(2, response.get("Organizationally Unique Identifier").getAsInt());
+
+        // reusing the response for another characteristic replaces its content
+        parser.parseInto("2A19", new byte[] {51}, response);
+        assertEquals(1, response.getSize());
+        assertEquals(51, response.get("Level").getAsInt());
+        parser.parseInto("00002a19-0000-1000-8000-00805f9b34fb", new byte[] {52}, response);
+        assertEquals(52, response.get("Level").getAsInt());
+
+        // fields of characteristics with flags might come and go
+        response = parser.parse("2A37", new byte[] {4, 74});
+        parser.parseInto("2A37", new byte[] {0x10, 74, 0x10, 0x20}, response);
+        assertEquals(parser.parse("2A37", new byte[] {0x10, 74, 0x10, 0x20}).getFieldNames(),
+                response.getFieldNames());
+        parser.parseInto("2A37", new byte[] {4, 75}, response);
+        assertEquals(parser.parse("2A37", new byte[] {4, 75}).getFieldNames(), response.getFieldNames());
+        assertEquals(75, response.get("Heart Rate Measurement Value (uint8)").getAsInt());
+    }
+
+    @Test
+    public void testParseByteBuffer() {
+        byte[] heartRate = {0x10, 74, 0x10, 0x20};
+        byte[] packet = {(byte) 0xAA, (byte) 0xBB, 0x10, 74, 0x10, 0x20, (byte) 0xCC};
+        GattResponse expected = parser.parse("2A37", heartRate);
+
+        GattResponse region = parser.parse("2A37", packet, 2, 4);
+        assertEquals(expected.getFieldNames(), region.getFieldNames());
+        assertEquals(74, region.get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertEquals(0x2010, region.get("RR-Interval").getAsInt());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(packet.length);
+        direct.put(packet).position(2).limit(6);
+        GattResponse buffered = parser.parse("00002a37-0000-1000-8000-00805f9b34fb", direct);
+        assertEquals(expected.getFieldNames(), buffered.getFieldNames());
+        assertEquals(74, buffered.get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertEquals(0x2010, buffered.get("RR-Interval").getAsInt());
+        assertEquals(2, direct.position());
+        assertEquals(6, direct.limit());
+
+        ByteBuffer heap = ByteBuffer.wrap(packet, 2, 4);
+        assertEquals(74, parser.parse("2A37", heap).get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertEquals(2, heap.position());
+
+        try {
+            parser.parse("2A37", packet, 5, 4);
+            fail("Exception is expected");
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseGattUuid() {
+        GattUuid heartRate = GattUuid.of(0x2A37);
+        assertTrue(parser.isKnownCharacteristic(heartRate));
+        assertTrue(parser.isValidForRead(heartRate));
+
+        GattResponse response = parser.parse(heartRate, new byte[] {0x10, 74, 0x10, 0x20});
+        assertEquals(74, response.get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertEquals(74, parser.parse(heartRate, ByteBuffer.wrap(new byte[] {0x10, 74, 0x10, 0x20}))
+                .get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertEquals(75, parser.parse(heartRate, new byte[] {0, 0, 75, 0}, 1, 3)
+                .get("Heart Rate Measurement Value (uint8)").getAsInt());
+
+        FieldHolder value = response.get("Heart Rate Measurement Value (uint8)");
+        assertSame(response, parser.parseInto(heartRate, new byte[] {0x10, 76, 0x10, 0x20}, response));
+        assertSame(value, response.get("Heart Rate Measurement Value (uint8)"));
+        assertEquals(76, value.getAsInt());
+    }
+
+    @Test
+    public void testConcurrentParseAndRegisterParser() throws Exception {
+        byte[] heartRate = {0x10, 74, 0x10, 0x20};
+        CharacteristicParser custom = mock(CharacteristicParser.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        assertEquals(74, parser.parse("2A37", heartRate)
+                                .get("Heart Rate Measurement Value (uint8)").getAsInt());
+                    }
+                }));
+            }
+            for (int i = 0; i < 100; i++) {
+                parser.registerParser(String.format("FF%02X", i), custom);
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testProjection() {
+        byte[] full = {0x03, 0x00, 0x02, 90, 0x20, 0x00, 0x0A, 0x00, 0x00, 0x00};
+        Projection projection = parser.projection("2A53", "Instantaneous Cadence", "Total Distance");
+        GattResponse response = projection.parse(full);
+        assertEquals(Arrays.asList("Instantaneous Cadence", "Total Distance"),
+                new ArrayList<>(response.getFieldNames()));
+        assertEquals(90, response.get("Instantaneous Cadence").getAsInt());
+        assertEquals(parser.parse("2A53", full).get("Total Distance").getDouble(),
+                response.get("Total Distance").getDouble());
+
+        // total distance is not present
+        response = projection.parse(new byte[] {0x00, 0x00, 0x02, 85});
+        assertEquals(Collections.singleton("Instantaneous Cadence"), response.getFieldNames());
+        assertEquals(85, response.get("Instantaneous Cadence").getAsInt());
+
+        // fields after the requested ones are not parsed, hence they can be missing
+        response = parser.projection("2A53", "Instantaneous Speed").parse(new byte[] {0x03, 0x00, 0x02});
+        assertEquals(512, response.get("Instantaneous Speed").getAsInt());
+        try {
+            projection.parse(new byte[] {0x03, 0x00, 0x02, 90, 0x20, 0x00});
+            fail("CharacteristicFormatException is expected");
+        } catch (CharacteristicFormatException ex) {
+            // expected
+        }
+
+        try {
+            parser.projection("2A53", "Instantaneous Power");
+            fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            parser.projection("2A53");
+            fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        // field names are checked for custom parsers as well
+        BluetoothGattParser custom = BluetoothGattParserFactory.getDefault();
+        custom.registerParser("2A53", mock(CharacteristicParser.class));
+        assertEquals(Collections.singleton("Total Distance"),
+                custom.projection("2A53", "Total Distance").getFieldNames());
+        try {
+            custom.projection("2A53", "Instantaneous Power");
+            fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParseAll() {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            notifications.add(new Notification("device" + i % 40, "2A37", new byte[] {0x00, (byte) i}, i));
+        }
+        notifications.set(1000, new Notification("device0", "FFFF", new byte[] {0x00}, 1000));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<ParsedNotification> results = parser.parseAll(notifications, pool);
+            assertEquals(notifications.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                ParsedNotification result = results.get(i);
+                assertSame(notifications.get(i), result.getNotification());
+                if (i == 1000) {
+                    assertFalse(result.isSuccess());
+                    assertTrue(result.getError() instanceof CharacteristicFormatException);
+                } else {
+                    assertTrue(result.isSuccess());
+                    assertEquals(i & 0xFF, result.getResponse().get("Heart Rate Measurement Value (uint8)")
+                            .getAsInt());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // small batches are parsed in the calling thread
+        List<ParsedNotification> results = parser.parseAll(notifications.subList(0, 10));
+        assertEquals(10, results.size());
+        assertEquals(9, results.get(9).getResponse().get("Heart Rate Measurement Value (uint8)").getAsInt());
+        assertTrue(parser.parseAll(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testParseAllKeepsDeviceOrder() {
+        Map<Byte, List<Integer>> parsed = new ConcurrentHashMap<>();
+        BluetoothGattParser ordered = BluetoothGattParserFactory.getDefault();
+        ordered.registerParser("2A19", new CharacteristicParser() {
+            @Override
+            public LinkedHashMap<String, FieldHolder> parse(Characteristic characteristic, byte[] raw) {
+                // notifications of a device are never parsed concurrently, hence no synchronization is needed
+                parsed.computeIfAbsent(raw[0], device -> new ArrayList<>()).add((int) raw[1]);
+                return new LinkedHashMap<>();
+            }
+
+            @Override
+            public byte[] serialize(Collection<FieldHolder> fieldHolders) {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            byte device = (byte) (i % 7 == 0 ? 0 : i % 31);
+            notifications.add(new Notification("device" + device, "2A19", new byte[] {device, (byte) (i / 31)}, i));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertTrue(ordered.parseAll(notifications, pool).stream().allMatch(ParsedNotification::isSuccess));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Notification notification : notifications) {
+            List<Integer> values = parsed.get(notification.getValue()[0]);
+            assertEquals(Integer.valueOf(notification.getValue()[1]), values.remove(0));
+        }
+    }
+
+    @Test
+    public void testParseIntoDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        byte[] dateTime = {(byte) 0xE1, 0x07, 0x0A, 0x18, 0x0C, 0x1E, 0x00};
+        byte[] systemId = {85, -86, 85, -86, 85, -86, 85, -86};
+        GattResponse dateTimeResponse = parser.parse("2A08", dateTime);
+        GattResponse systemIdResponse = parser.parse("2A23", systemId);
+
+        long threadId = Thread.currentThread().getId();
+        long checksum = 0;
+        long allocated = 0;
+        for (int round = 0; round < 5; round++) {
+            // the first rounds are warming up
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            // allocations made by the measurement itself (if any)
+            long overhead = threadBean.getThreadAllocatedBytes(threadId) - before;
+            for (int i = 0; i < 20000; i++) {
+                dateTime[6] = (byte) (i % 60);
+                systemId[0] = (byte) i;
+                checksum += parser.parseInto("2A08", dateTime, dateTimeResponse).get("Seconds").getAsInt();
+                checksum += parser.parseInto("2A23", systemId, systemIdResponse)
+                        .get("Manufacturer Identifier").getAsLong();
+            }
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+            if (allocated == 0) {
+                break;
+            }
+        }
+        assertTrue(checksum != 0);
+        assertEquals(0, allocated);
+        assertEquals(2017, dateTimeResponse.get("Year").getAsInt());
+    }
+
     private void assertField(Integer expectedValue, String expectedEnum,
                              String characteristicUUID, byte[] data, String fieldName) {
         FieldHolder fieldHolder = parser.parse(characteristicUUID, data).get(fieldName);
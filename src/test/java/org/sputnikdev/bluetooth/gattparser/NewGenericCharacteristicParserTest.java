@@ -91,6 +91,12 @@ public class NewGenericCharacteristicParserTest {
     reader = mock(BluetoothGattSpecificationReader.class, RETURNS_DEEP_STUBS);
 
     lenient().when(configuration.getTwosComplementNumberFormatter()).thenReturn(twosComplementNumberFormatter);
+    lenient().when(configuration.getMaxPayloadSize())
+        .thenReturn(GattParserConfigurationBuilder.DEFAULT_MAX_PAYLOAD_SIZE);
+    // the default implementation delegates to the BitSet based methods verified in the tests below
+    lenient().when(twosComplementNumberFormatter.readBits(any(byte[].class), anyInt(), anyInt(), anyBoolean()))
+        .thenCallRealMethod();
+    lenient().when(twosComplementNumberFormatter.toBits(anyLong(), anyInt(), anyBoolean())).thenCallRealMethod();
     lenient().when(configuration.getIEEE754FloatingPointNumberFormatter()).thenReturn(ieee754NumberFormatter);
     lenient().when(configuration.getIEEE11073FloatingPointNumberFormatter()).thenReturn(ieee11073NumberFormatter);
     lenient().when(configuration.getGattSpecificationReader()).thenReturn(reader);
@@ -522,7 +528,7 @@ public class NewGenericCharacteristicParserTest {
     byte[] field2Data = {12, 24, 56};
     BitSet data = new BitSet();
     data.set(0);
-    charParser.concat(data, BitSet.valueOf(field2Data), 1, field2Data.length * 8);
+    concat(data, BitSet.valueOf(field2Data), 1, field2Data.length * 8);
 
     // performing the test to check if we can parse data
     LinkedHashMap<String, FieldHolder> response = charParser.parse(characteristic, data.toByteArray());
@@ -616,7 +622,7 @@ public class NewGenericCharacteristicParserTest {
     byte[] field2Data = field2Text.getBytes(encoding);
     BitSet data = new BitSet();
     data.set(0, 5);
-    charParser.concat(data, BitSet.valueOf(field2Data), 5, field2Data.length * 8);
+    concat(data, BitSet.valueOf(field2Data), 5, field2Data.length * 8);
 
     // performing the test to check if we can parse data
     LinkedHashMap<String, FieldHolder> response = charParser.parse(characteristic, data.toByteArray());
@@ -644,4 +650,12 @@ public class NewGenericCharacteristicParserTest {
     assertThat(data.toByteArray(), is(serialized));
   }
 
-}
\ No newline at end of file
+  private static void concat(BitSet target, BitSet source, int offset, int size) {
+    for (int i = 0; i < size; i++) {
+      if (source.get(i)) {
+        target.set(offset + i);
+      }
+    }
+  }
+
+}
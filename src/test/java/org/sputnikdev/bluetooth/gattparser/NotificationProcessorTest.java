@@ -0,0 +1,189 @@
+package org.sputnikdev.bluetooth.gattparser;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationProcessorTest {
+
+    private static final String HEART_RATE_VALUE = "Heart Rate Measurement Value (uint8)";
+
+    private BluetoothGattParser parser = BluetoothGattParserFactory.getDefault();
+    private ExecutorService upstreamExecutor;
+    private ForkJoinPool executor;
+
+    @BeforeEach
+    public void setUp() {
+        // not a fork/join pool, so that threads offering notifications never run the (blocking) processor
+        upstreamExecutor = Executors.newFixedThreadPool(2);
+        executor = new ForkJoinPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        upstreamExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParseStream() throws Exception {
+        SubmissionPublisher<Notification> upstream = new SubmissionPublisher<>(upstreamExecutor, 8);
+        NotificationProcessor processor = new NotificationProcessor(parser, executor, 4);
+        upstream.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        processor.subscribe(subscriber);
+
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Notification notification = new Notification("device" + i % 5, i == 250 ? "FFFF" : "2A37",
+                    new byte[] {0x00, (byte) i}, i);
+            notifications.add(notification);
+            upstream.submit(notification);
+        }
+        upstream.close();
+
+        assertTrue(subscriber.completed.await(1, TimeUnit.MINUTES));
+        assertNull(subscriber.error);
+        assertEquals(notifications.size(), subscriber.received.size());
+        for (int i = 0; i < notifications.size(); i++) {
+            ParsedNotification result = subscriber.received.get(i);
+            assertSame(notifications.get(i), result.getNotification());
+            if (i == 250) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof CharacteristicFormatException);
+            } else {
+                assertEquals(i & 0xFF, result.getResponse().get(HEART_RATE_VALUE).getAsInt());
+            }
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        SubmissionPublisher<Notification> upstream = new SubmissionPublisher<>(upstreamExecutor, 8);
+        NotificationProcessor processor = new NotificationProcessor(parser, executor, 4);
+        upstream.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        processor.subscribe(subscriber);
+
+        // the subscriber does not request anything, hence buffers fill up and the upstream starts dropping
+        int accepted = 0;
+        while (accepted < 1000 && upstream.offer(new Notification("device", "2A37", new byte[] {0x00, 74}, accepted),
+                100, TimeUnit.MILLISECONDS, null) >= 0) {
+            accepted++;
+        }
+        assertTrue(accepted < 32);
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        upstream.close();
+        assertTrue(subscriber.completed.await(1, TimeUnit.MINUTES));
+        assertEquals(accepted, subscriber.received.size());
+    }
+
+    @Test
+    public void testRequestsAfterFirstSubscriber() {
+        NotificationProcessor processor = new NotificationProcessor(parser, executor, 4);
+        List<Long> requests = new ArrayList<>();
+        boolean[] cancelled = new boolean[1];
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requests.add(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled[0] = true;
+            }
+        });
+        assertTrue(requests.isEmpty());
+
+        processor.subscribe(new CollectingSubscriber(1));
+        assertEquals(Collections.singletonList(4L), requests);
+        processor.subscribe(new CollectingSubscriber(1));
+        assertEquals(1, requests.size());
+
+        processor.close();
+        assertTrue(cancelled[0]);
+    }
+
+    private static class CollectingSubscriber implements Flow.Subscriber<ParsedNotification> {
+
+        private final long batch;
+        private final List<ParsedNotification> received = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        private CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(ParsedNotification item) {
+            received.add(item);
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+    }
+
+}
@@ -21,9 +21,13 @@ package org.sputnikdev.bluetooth.gattparser.num;
  */
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Random;
 
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -162,6 +166,89 @@ public class TwosComplementNumberFormatterTest {
         assertEquals(bitSetInt, bitSetBigInteger);
     }
 
+    @Test
+    public void testReadBits() throws Exception {
+        byte[] raw = {(byte) 0xFE, (byte) 0xFF, 0x34, 0x12, 0x00, (byte) 0x80};
+        assertEquals(254, formatter.readBits(raw, 0, 8, false));
+        assertEquals(-2, formatter.readBits(raw, 0, 8, true));
+        assertEquals(0xFFFE, formatter.readBits(raw, 0, 16, false));
+        assertEquals(-2, formatter.readBits(raw, 0, 16, true));
+        assertEquals(0x1234, formatter.readBits(raw, 16, 16, true));
+        assertEquals(0x1234FF, formatter.readBits(raw, 8, 24, false));
+        assertEquals(0x80001234L, formatter.readBits(raw, 16, 32, false));
+        assertEquals((int) 0x80001234L, formatter.readBits(raw, 16, 32, true));
+        assertEquals(0x80001234FFFEL, formatter.readBits(raw, 0, 48, false));
+        assertEquals(0x80001234FFFEL - (1L << 48), formatter.readBits(raw, 0, 48, true));
+        assertEquals(0, formatter.readBits(raw, 0, 1, true));
+        assertEquals(1, formatter.readBits(raw, 1, 1, true));
+        assertEquals(7, formatter.readBits(raw, 1, 3, false));
+        assertEquals(-1, formatter.readBits(raw, 1, 3, true));
+        // bits beyond the end of data are read as zeros
+        assertEquals(0x80, formatter.readBits(raw, 40, 16, false));
+        assertEquals(0, formatter.readBits(raw, 48, 8, false));
+    }
+
+    @Test
+    public void testReadBitsMatchesDeserialize() throws Exception {
+        Random random = new Random(42);
+        byte[] raw = new byte[10];
+        for (int i = 0; i < 10000; i++) {
+            random.nextBytes(raw);
+            int size = 1 + random.nextInt(64);
+            int offset = random.nextInt(raw.length * 8 - size + 1);
+            if (i % 2 == 0) {
+                offset &= ~7;
+            }
+            boolean signed = random.nextBoolean();
+            BitSet bits = BitSet.valueOf(raw).get(offset, offset + size);
+            assertEquals(formatter.deserializeLong(bits, size, signed).longValue(),
+                    formatter.readBits(raw, offset, size, signed));
+        }
+    }
+
+    @Test
+    public void testReadBitsFromByteBuffer() throws Exception {
+        Random random = new Random(43);
+        byte[] raw = new byte[12];
+        ByteBuffer direct = ByteBuffer.allocateDirect(raw.length);
+        for (int i = 0; i < 10000; i++) {
+            random.nextBytes(raw);
+            direct.clear();
+            direct.put(raw).position(2).limit(raw.length - 1);
+            ByteBuffer heap = ByteBuffer.wrap(raw, 2, raw.length - 3).order(ByteOrder.BIG_ENDIAN);
+            byte[] value = Arrays.copyOfRange(raw, 2, raw.length - 1);
+            int size = 1 + random.nextInt(64);
+            int offset = random.nextInt(value.length * 8 - size + 1) + (i % 3 == 0 ? 8 : 0);
+            if (i % 2 == 0) {
+                offset &= ~7;
+            }
+            boolean signed = random.nextBoolean();
+            long expected = formatter.readBits(value, offset, size, signed);
+            assertEquals(expected, formatter.readBits(direct, offset, size, signed));
+            assertEquals(expected, formatter.readBits(heap, offset, size, signed));
+            assertEquals(2, heap.position());
+            assertEquals(ByteOrder.BIG_ENDIAN, heap.order());
+            assertEquals(2, direct.position());
+        }
+    }
+
+    @Test
+    public void testToBitsMatchesSerialize() throws Exception {
+        Random random = new Random(44);
+        for (int i = 0; i < 10000; i++) {
+            int size = 1 + random.nextInt(64);
+            boolean signed = random.nextBoolean();
+            long number = random.nextLong() >> random.nextInt(64);
+            BitSet expected = (signed && size <= 32) || (!signed && size < 32)
+                    ? formatter.serialize((int) number, size, signed)
+                    : formatter.serialize(number, size, signed);
+            long[] words = expected.get(0, size).toLongArray();
+            long bits = (signed && size <= 32) || (!signed && size < 32)
+                    ? formatter.toBits((int) number, size, signed) : formatter.toBits(number, size, signed);
+            assertEquals(words.length > 0 ? words[0] : 0, bits);
+        }
+    }
+
     private void assertDeserializeSerialize(int byte1, int size, boolean signed, int expected) {
         BitSet bitSet = getBytes(byte1);
         assertDeserializeSerialize(bitSet, size, signed, expected);
@@ -56,6 +56,19 @@ public class BitTest {
         assertEquals(null, bit.getFlag((byte) 4));
     }
 
+    @Test
+    public void testGetRequiresResolved() throws Exception {
+        List<Enumeration> enums = new ArrayList<>();
+        enums.add(mockEnumeration(1, "C1"));
+        enums.add(mockEnumeration(-1, "C2"));
+        when(enumerations.getEnumerations()).thenReturn(enums);
+        bit.resolve();
+
+        assertEquals("C1", bit.getFlag((byte) 1));
+        assertEquals("C2", bit.getFlag((byte) 0xFF));
+        assertEquals(null, bit.getFlag((byte) 0));
+    }
+
     private Enumeration mockEnumeration(Integer key, String requires) {
         Enumeration enumeration = mock(Enumeration.class);
         when(enumeration.getKey()).thenReturn(BigInteger.valueOf(key));
@@ -21,9 +21,15 @@ package org.sputnikdev.bluetooth.gattparser.spec;
  */
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Spy;
@@ -31,7 +37,9 @@ import org.mockito.Spy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class BluetoothGattSpecificationReaderTest {
@@ -230,6 +238,117 @@ public class BluetoothGattSpecificationReaderTest {
         assertEquals("Adjust Reason", fields.get(8).getName());
     }
 
+    @Test
+    public void testFieldFormatResolvedOnce() {
+        Characteristic characteristic = reader.getCharacteristicByUUID("2A1C");
+        Field flags = characteristic.getValue().getFields().get(0);
+        assertSame(flags.getFormat(), flags.getFormat());
+        assertSame(FieldFormat.valueOf("8bit"), flags.getFormat());
+        Field level = reader.getCharacteristicByUUID("2A19").getValue().getFields().get(0);
+        assertSame(FieldFormat.valueOf("uint8"), level.getFormat());
+    }
+
+    @Test
+    public void testFieldScaleResolved() {
+        Field temperature = reader.getCharacteristicByUUID("2A6E").getValue().getFields().get(0);
+        assertTrue(temperature.isScaled());
+        assertEquals(0.01, temperature.getScaleFactor(), 0);
+        assertEquals(0.0, temperature.getScaleOffset(), 0);
+        Field level = reader.getCharacteristicByUUID("2A19").getValue().getFields().get(0);
+        assertFalse(level.isScaled());
+        assertEquals(1.0, level.getScaleFactor(), 0);
+    }
+
+    @Test
+    public void testEnumerationsResolved() {
+        Field location = reader.getCharacteristicByUUID("2A38").getValue().getFields().get(0);
+        assertEquals("Chest", location.findEnumeration(1).getValue());
+        assertSame(location.findEnumeration(2), location.getEnumeration(BigInteger.valueOf(2)).get());
+        assertSame(location.findEnumeration(2), location.getEnumerations("Wrist").get(0));
+        assertNull(location.findEnumeration(-1));
+        Bit bit = reader.getCharacteristicByUUID("2A1C").getValue().getFields().get(0).getBitField().getBits().get(0);
+        assertEquals("C1", bit.getFlag((byte) 0));
+        assertEquals("C2", bit.getFlag((byte) 1));
+    }
+
+    @Test
+    public void testConcurrentLoading() throws Exception {
+        String[] uuids = {"2A19", "2A1C", "2A37", "2A08", "2A0A", "2A2B", "2A23", "2A9C", "2A12", "2A46"};
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Characteristic>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int shift = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Characteristic> loaded = new ArrayList<>();
+                    for (int j = 0; j < uuids.length; j++) {
+                        loaded.add(reader.getCharacteristicByUUID(uuids[(j + shift) % uuids.length]));
+                        reader.getService("180D");
+                        reader.getCharacteristicByType("org.bluetooth.characteristic.date_time");
+                    }
+                    return loaded;
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < threads; i++) {
+                List<Characteristic> loaded = futures.get(i).get(1, TimeUnit.MINUTES);
+                for (int j = 0; j < uuids.length; j++) {
+                    String uuid = uuids[(j + i) % uuids.length];
+                    // all threads get the very same specification object
+                    assertSame(reader.getCharacteristicByUUID(uuid), loaded.get(j));
+                    assertEquals(uuid, loaded.get(j).getUuid());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Characteristic dateTime = reader.getCharacteristicByUUID("2A08");
+        assertSame(dateTime, reader.getCharacteristicByType("org.bluetooth.characteristic.date_time"));
+        assertEquals(uuids.length, reader.getCharacteristics().size());
+    }
+
+    @Test
+    public void testConcurrentLoadingByManyReaders() throws Exception {
+        String[] uuids = {"2A19", "2A1C", "2A37", "2A08", "2A0A", "2A2B", "2A23", "2A9C", "2A12", "2A46"};
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BluetoothGattSpecificationReader>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int shift = i;
+                futures.add(executor.submit(() -> {
+                    // every reader reads specification files with the same shared XStream instance
+                    BluetoothGattSpecificationReader threadReader = new BluetoothGattSpecificationReader();
+                    start.await();
+                    for (int j = 0; j < uuids.length; j++) {
+                        threadReader.getCharacteristicByUUID(uuids[(j + shift) % uuids.length]);
+                        threadReader.getService("180D");
+                    }
+                    return threadReader;
+                }));
+            }
+            start.countDown();
+            for (Future<BluetoothGattSpecificationReader> future : futures) {
+                BluetoothGattSpecificationReader threadReader = future.get(1, TimeUnit.MINUTES);
+                for (String uuid : uuids) {
+                    Characteristic expected = reader.getCharacteristicByUUID(uuid);
+                    Characteristic loaded = threadReader.getCharacteristicByUUID(uuid);
+                    assertNotSame(expected, loaded);
+                    assertEquals(expected.getName(), loaded.getName());
+                    assertEquals(expected.isValidForRead(), loaded.isValidForRead());
+                    assertEquals(reader.getFields(expected).size(), threadReader.getFields(loaded).size());
+                }
+                assertEquals(reader.getService("180D").getName(), threadReader.getService("180D").getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void assertCharacteristicAccess(String read, String write, String writeWithoutResponse, String signedWrite,
             String reliableWrite, String notify, String indicate, String writableAuxiliaries, String broadcast,
             CharacteristicAccess characteristicAccess) {
@@ -0,0 +1,127 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class EnumerationIndexTest {
+
+    @Test
+    public void testDenseKeys() {
+        Enumeration first = MockUtils.mockEnumeration(1, "C1", "First");
+        Enumeration second = MockUtils.mockEnumeration(2, "C2", "Second");
+        Enumeration duplicate = MockUtils.mockEnumeration(2, "C3", "Duplicate");
+        Enumeration negative = MockUtils.mockEnumeration(-3, null, "Negative");
+        EnumerationIndex index = EnumerationIndex.of(mockEnumerations(first, second, duplicate, negative));
+
+        assertSame(first, index.get(1));
+        assertSame(second, index.get(2));
+        assertSame(negative, index.get(-3));
+        assertSame(second, index.get(BigInteger.valueOf(2)));
+        assertNull(index.get(0));
+        assertNull(index.get(3));
+        assertNull(index.get(-4));
+        assertNull(index.get(Long.MAX_VALUE));
+        assertNull(index.get((BigInteger) null));
+    }
+
+    @Test
+    public void testSparseKeys() {
+        List<Enumeration> enumerations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            enumerations.add(MockUtils.mockEnumeration(i * 1000003, null, "Value" + i));
+        }
+        Enumeration max = mockEnumeration(BigInteger.valueOf(Long.MAX_VALUE));
+        Enumeration min = mockEnumeration(BigInteger.valueOf(Long.MIN_VALUE));
+        enumerations.add(max);
+        enumerations.add(min);
+        EnumerationIndex index = EnumerationIndex.of(mockEnumerations(enumerations.toArray(new Enumeration[0])));
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(enumerations.get(i), index.get(i * 1000003));
+            assertSame(enumerations.get(i), index.get(BigInteger.valueOf(i * 1000003)));
+            assertNull(index.get(i * 1000003 + 1));
+        }
+        assertSame(max, index.get(Long.MAX_VALUE));
+        assertSame(min, index.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testBigKeys() {
+        BigInteger big = new BigInteger("123456789012345678901234567890");
+        Enumeration bigEnumeration = mockEnumeration(big);
+        Enumeration small = MockUtils.mockEnumeration(7, null);
+        EnumerationIndex index = EnumerationIndex.of(mockEnumerations(bigEnumeration, small));
+
+        assertSame(bigEnumeration, index.get(big));
+        assertSame(small, index.get(7));
+        assertNull(index.get(big.add(BigInteger.ONE)));
+        assertNull(index.get(big.longValue()));
+    }
+
+    @Test
+    public void testValues() {
+        Enumeration first = MockUtils.mockEnumeration(1, "C1", "Value");
+        Enumeration second = MockUtils.mockEnumeration(2, "C2", "Other");
+        Enumeration third = MockUtils.mockEnumeration(3, "C3", "Value");
+        EnumerationIndex index = EnumerationIndex.of(mockEnumerations(first, second, third));
+
+        assertEquals(Arrays.asList(first, third), index.get("Value"));
+        assertEquals(Arrays.asList(second), index.get("Other"));
+        assertTrue(index.get("Unknown").isEmpty());
+        assertTrue(index.get((String) null).isEmpty());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(EnumerationIndex.EMPTY, EnumerationIndex.of(null));
+        assertSame(EnumerationIndex.EMPTY, EnumerationIndex.of(mockEnumerations()));
+        assertNull(EnumerationIndex.EMPTY.get(0));
+        assertNull(EnumerationIndex.EMPTY.get(BigInteger.TEN));
+        assertTrue(EnumerationIndex.EMPTY.get("Value").isEmpty());
+    }
+
+    private static Enumerations mockEnumerations(Enumeration... enumerations) {
+        Enumerations result = mock(Enumerations.class);
+        when(result.getEnumerations()).thenReturn(Arrays.asList(enumerations));
+        return result;
+    }
+
+    private static Enumeration mockEnumeration(BigInteger key) {
+        Enumeration enumeration = mock(Enumeration.class, withSettings().lenient());
+        when(enumeration.getKey()).thenReturn(key);
+        return enumeration;
+    }
+
+}
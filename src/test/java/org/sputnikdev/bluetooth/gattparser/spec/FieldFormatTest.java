@@ -20,9 +20,12 @@ package org.sputnikdev.bluetooth.gattparser.spec;
  * #L%
  */
 
-import org.junit.Test;
+import org.junit.jupiter.api.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 public class FieldFormatTest {
 
@@ -47,9 +50,28 @@ public class FieldFormatTest {
         assertFieldType("sint65", FieldType.SINT, 65, FieldFormat.valueOf("siNT65"));
     }
 
-    @Test(expected = IllegalStateException.class)
+    @Test
+    public void testValueOfInterned() {
+        for (int size = 1; size <= 64; size++) {
+            assertSame(FieldFormat.valueOf("uint" + size), FieldFormat.valueOf("UINT" + size));
+            assertSame(FieldFormat.valueOf("sint" + size), FieldFormat.valueOf("sint" + size));
+            assertSame(FieldFormat.valueOf(size + "bit"), FieldFormat.valueOf(size + "bit"));
+            assertFieldType("uint" + size, FieldType.UINT, size, FieldFormat.valueOf("uint" + size));
+            assertFieldType("sint" + size, FieldType.SINT, size, FieldFormat.valueOf("sint" + size));
+            assertFieldType(size + "bit", FieldType.UINT, size, FieldFormat.valueOf(size + "bit"));
+        }
+        assertNotSame(FieldFormat.valueOf("uint65"), FieldFormat.valueOf("uint65"));
+        assertFieldType("uint08", FieldType.UINT, 8, FieldFormat.valueOf("uint08"));
+    }
+
+    @Test
     public void testValueOfInvalidFormat() {
-        FieldFormat.valueOf("siNTunknown");
+        try {
+            FieldFormat.valueOf("siNTunknown");
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
     }
 
     @Test
@@ -31,6 +31,7 @@ import org.sputnikdev.bluetooth.gattparser.GattParserConfigurationBuilder;
 import org.sputnikdev.bluetooth.gattparser.num.RealNumberFormatter;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -194,4 +195,33 @@ public class FlagUtilsTest {
         assertTrue(flags.contains("G10"));
     }
 
+    @Test
+    public void testGetReadFlagsMask() {
+        RealNumberFormatter formatter = GattParserConfigurationBuilder.DEFAULT_TWOS_COMPLEMENT_NUMBER_FORMATTER.get();
+        BluetoothGattSpecificationReader reader = new BluetoothGattSpecificationReader();
+        // encodes flags returned by the string based method, the mask covers requirements of present fields only
+        IFlagUtils stringFlagUtils = (fields, data, numberFormatter) ->
+                flagUtils.getReadFlags(fields, data, numberFormatter);
+        for (String uuid : Arrays.asList("2A1C", "2A37", "2A35", "2A18", "2A5B", "2A53", "2A63", "2A9D", "2A9C")) {
+            Characteristic characteristic = reader.getCharacteristicByUUID(uuid);
+            assertTrue(characteristic.hasRequirementMasks());
+            List<Field> fields = characteristic.getValue().getFields();
+            for (int value = 0; value < 0x10000; value += 7) {
+                byte[] data = {(byte) value, (byte) (value >> 8), 0, 0};
+                long mask = flagUtils.getReadFlagsMask(fields, data, formatter);
+                long stringMask = stringFlagUtils.getReadFlagsMask(fields, data, formatter);
+                assertEquals(mask, flagUtils.getReadFlagsMask(fields, ByteBuffer.wrap(data), formatter));
+
+                Set<String> flags = flagUtils.getReadFlags(fields, data, formatter);
+                flags.add("Mandatory");
+                for (Field field : fields) {
+                    long requirementMask = field.getRequirementMask();
+                    boolean present = field.getRequirements() == null || flags.containsAll(field.getRequirements());
+                    assertEquals(present, (mask & requirementMask) == requirementMask);
+                    assertEquals(present, (stringMask & requirementMask) == requirementMask);
+                }
+            }
+        }
+    }
+
 }
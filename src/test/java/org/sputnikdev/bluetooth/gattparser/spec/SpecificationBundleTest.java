@@ -0,0 +1,201 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.assertModelEquals;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.getBundledTypes;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.load;
+
+public class SpecificationBundleTest {
+
+    private final XStreamSpecificationLoader xstreamLoader = new XStreamSpecificationLoader();
+
+    @Test
+    public void testMemoryMappedBundle() throws Exception {
+        Path folder = Files.createTempDirectory("bundle");
+        try {
+            URL bundleFile = generate(folder);
+            assertEquals("file", bundleFile.getProtocol());
+            assertBundleEquivalence(SpecificationBundle.load(bundleFile), bundleFile);
+        } finally {
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void testBundleInJar() throws Exception {
+        Path folder = Files.createTempDirectory("bundle");
+        try {
+            generate(folder);
+            Path jar = folder.resolve("specifications.jar");
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new ZipEntry(SpecificationBundle.RESOURCE));
+                Files.copy(folder.resolve(SpecificationBundle.RESOURCE), out);
+                out.closeEntry();
+            }
+            URL bundleFile = new URL("jar:" + jar.toUri().toURL() + "!/" + SpecificationBundle.RESOURCE);
+            assertBundleEquivalence(SpecificationBundle.load(bundleFile), bundleFile);
+        } finally {
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void testBundledLoader() {
+        BundledSpecificationLoader loader = new BundledSpecificationLoader();
+        assertTrue(loader.isBundled());
+        BluetoothGattSpecificationReader reader = new BluetoothGattSpecificationReader(loader);
+        Characteristic characteristic = reader.getCharacteristicByUUID("2A1C");
+        assertEquals("Temperature Measurement", characteristic.getName());
+        assertTrue(characteristic.isValidForRead());
+        assertEquals("C1", characteristic.getValue().getFields().get(0).getBitField().getBits().get(0)
+                .getFlag((byte) 0));
+        assertEquals("Heart Rate", reader.getService("180D").getName());
+        // a new object is decoded for every load
+        assertEquals(characteristic.getName(), new BluetoothGattSpecificationReader(loader)
+                .getCharacteristicByUUID("2A1C").getName());
+    }
+
+    @Test
+    public void testFallbackForFilesWhichAreNotBundled() throws Exception {
+        File extension = File.createTempFile("extension", ".xml");
+        try {
+            Files.write(extension.toPath(), ("<?xml version=\"1.0\"?>\n"
+                    + "<Characteristic name=\"Extension\" uuid=\"FFFF\" type=\"extension\"><Value>"
+                    + "<Field name=\"Level\"><Format>uint8</Format></Field></Value></Characteristic>")
+                    .getBytes(StandardCharsets.UTF_8));
+            URL file = extension.toURI().toURL();
+            List<URL> fallbackLoads = new ArrayList<>();
+            SpecificationLoader fallback = new SpecificationLoader() {
+                @Override
+                public Characteristic loadCharacteristic(URL file) throws IOException {
+                    fallbackLoads.add(file);
+                    return xstreamLoader.loadCharacteristic(file);
+                }
+
+                @Override
+                public Service loadService(URL file) throws IOException {
+                    fallbackLoads.add(file);
+                    return xstreamLoader.loadService(file);
+                }
+            };
+            URL bundled = getClass().getClassLoader()
+                    .getResource("gatt/characteristic/org.bluetooth.characteristic.battery_level.xml");
+
+            BundledSpecificationLoader loader = new BundledSpecificationLoader(fallback);
+            assertEquals("Battery Level", loader.loadCharacteristic(bundled).getName());
+            assertTrue(fallbackLoads.isEmpty());
+            assertEquals("Extension", loader.loadCharacteristic(file).getName());
+            assertEquals(1, fallbackLoads.size());
+            assertSame(file, fallbackLoads.get(0));
+
+            // no bundle on the classpath
+            loader = new BundledSpecificationLoader(null, fallback);
+            assertFalse(loader.isBundled());
+            assertEquals("Battery Level", loader.loadCharacteristic(bundled).getName());
+            assertEquals(2, fallbackLoads.size());
+        } finally {
+            assertTrue(extension.delete());
+        }
+    }
+
+    @Test
+    public void testNotABundle() throws Exception {
+        File file = File.createTempFile("bundle", ".bin");
+        try {
+            Files.write(file.toPath(), "<Characteristic/>".getBytes(StandardCharsets.UTF_8));
+            try {
+                SpecificationBundle.load(file.toURI().toURL());
+                fail();
+            } catch (IOException ex) {
+                // expected
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private void assertBundleEquivalence(SpecificationBundle bundle, URL bundleFile) throws Exception {
+        int loaded = 0;
+        for (String type : getBundledTypes("gatt/characteristic/")) {
+            URL file = getClass().getClassLoader().getResource("gatt/characteristic/" + type + ".xml");
+            Characteristic expected = load(() -> xstreamLoader.loadCharacteristic(file));
+            Characteristic actual = bundle.getCharacteristic(new URL(bundleFile, "characteristic/" + type + ".xml"));
+            assertModelEquals(type, expected, actual);
+            if (expected != null) {
+                loaded++;
+            }
+        }
+        assertTrue(loaded > 150);
+        for (String type : getBundledTypes("gatt/service/")) {
+            URL file = getClass().getClassLoader().getResource("gatt/service/" + type + ".xml");
+            Service expected = load(() -> xstreamLoader.loadService(file));
+            Service actual = bundle.getService(new URL(bundleFile, "service/" + type + ".xml"));
+            assertModelEquals(type, expected, actual);
+            if (expected != null) {
+                loaded++;
+            }
+        }
+        assertEquals(loaded, bundle.size());
+        // specifications of one kind are not looked up among the other kind
+        assertNull(bundle.getService(new URL(bundleFile,
+                "characteristic/org.bluetooth.characteristic.battery_level.xml")));
+    }
+
+    private URL generate(Path folder) throws Exception {
+        URL registry = getClass().getClassLoader().getResource("gatt/characteristic/gatt_spec_registry.json");
+        Path resources = Paths.get(registry.toURI()).getParent().getParent().getParent();
+        Path bundleFile = folder.resolve(SpecificationBundle.RESOURCE);
+        SpecificationBundle.main(new String[] {resources.toString(), bundleFile.toString()});
+        return bundleFile.toUri().toURL();
+    }
+
+    private static void delete(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+}
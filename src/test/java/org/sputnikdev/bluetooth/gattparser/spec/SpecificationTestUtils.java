@@ -0,0 +1,130 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Utilities for tests which compare specifications read by different specification loaders.
+ */
+final class SpecificationTestUtils {
+
+    private SpecificationTestUtils() { }
+
+    /**
+     * Compares specification models field by field (including nested models and lists).
+     * @param path path of the compared models, it is reported if the models differ
+     * @param expected expected model
+     * @param actual actual model
+     * @throws Exception if fields of the models cannot be read
+     */
+    static void assertModelEquals(String path, Object expected, Object actual) throws Exception {
+        if (expected == null || actual == null) {
+            assertEquals(path, expected, actual);
+            return;
+        }
+        assertEquals(path, expected.getClass(), actual.getClass());
+        if (expected instanceof String || expected instanceof Number || expected instanceof Boolean) {
+            assertEquals(path, expected, actual);
+        } else if (expected instanceof List) {
+            List<?> expectedList = (List<?>) expected;
+            List<?> actualList = (List<?>) actual;
+            assertEquals(path, expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertModelEquals(path + "[" + i + "]", expectedList.get(i), actualList.get(i));
+            }
+        } else {
+            assertFalse(path, expected.getClass().getName().startsWith("java."));
+            for (java.lang.reflect.Field field : expected.getClass().getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                assertModelEquals(path + "/" + field.getName(), field.get(expected), field.get(actual));
+            }
+        }
+    }
+
+    /**
+     * Loads a specification, a specification which cannot be loaded is returned as null.
+     * @param loader specification loader
+     * @param <T> specification type
+     * @return loaded specification or null if it cannot be loaded
+     */
+    static <T> T load(Loader<T> loader) {
+        try {
+            return loader.load();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns types of the specifications bundled into a folder, as listed in its registry.
+     * @param folder classpath folder, e.g. "gatt/characteristic/"
+     * @return specification types
+     * @throws IOException if the registry cannot be read
+     */
+    static Collection<String> getBundledTypes(String folder) throws IOException {
+        try (Reader registry = new InputStreamReader(SpecificationTestUtils.class.getClassLoader()
+                .getResourceAsStream(folder + "gatt_spec_registry.json"), StandardCharsets.UTF_8)) {
+            Map<String, String> types = new Gson().fromJson(registry, new TypeToken<Map<String, String>>() { }.getType());
+            return types.values();
+        }
+    }
+
+    /**
+     * Returns URLs of the specification files bundled into a folder, as listed in its registry.
+     * @param folder classpath folder, e.g. "gatt/characteristic/"
+     * @return URLs of specification files
+     * @throws IOException if the registry cannot be read
+     */
+    static List<URL> getBundledFiles(String folder) throws IOException {
+        List<URL> files = new ArrayList<>();
+        for (String type : getBundledTypes(folder)) {
+            URL file = SpecificationTestUtils.class.getClassLoader().getResource(folder + type + ".xml");
+            assertNotNull(type, file);
+            files.add(file);
+        }
+        return files;
+    }
+
+    interface Loader<T> {
+        T load() throws Exception;
+    }
+
+}
@@ -0,0 +1,138 @@
+package org.sputnikdev.bluetooth.gattparser.spec;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-gatt-parser
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import org.junit.jupiter.api.Test;
+import org.sputnikdev.bluetooth.gattparser.BluetoothGattParser;
+import org.sputnikdev.bluetooth.gattparser.GattParserConfigurationBuilder;
+import org.sputnikdev.bluetooth.gattparser.GattResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.assertModelEquals;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.getBundledFiles;
+import static org.sputnikdev.bluetooth.gattparser.spec.SpecificationTestUtils.load;
+
+public class StaxSpecificationLoaderTest {
+
+    private final XStreamSpecificationLoader xstreamLoader = new XStreamSpecificationLoader();
+    private final StaxSpecificationLoader staxLoader = new StaxSpecificationLoader();
+
+    @Test
+    public void testEquivalenceForAllBundledCharacteristics() throws Exception {
+        int loaded = 0;
+        for (URL file : getBundledFiles("gatt/characteristic/")) {
+            Characteristic expected = load(() -> xstreamLoader.loadCharacteristic(file));
+            Characteristic actual = load(() -> staxLoader.loadCharacteristic(file));
+            assertModelEquals(file.toString(), expected, actual);
+            if (expected != null) {
+                loaded++;
+            }
+        }
+        assertTrue(loaded > 150);
+    }
+
+    @Test
+    public void testEquivalenceForAllBundledServices() throws Exception {
+        int loaded = 0;
+        for (URL file : getBundledFiles("gatt/service/")) {
+            Service expected = load(() -> xstreamLoader.loadService(file));
+            Service actual = load(() -> staxLoader.loadService(file));
+            assertModelEquals(file.toString(), expected, actual);
+            if (expected != null) {
+                loaded++;
+            }
+        }
+        assertTrue(loaded > 30);
+    }
+
+    @Test
+    public void testReader() {
+        BluetoothGattSpecificationReader reader = new BluetoothGattSpecificationReader(staxLoader);
+        Characteristic characteristic = reader.getCharacteristicByUUID("2A1C");
+        assertEquals("Temperature Measurement", characteristic.getName());
+        assertTrue(characteristic.isValidForRead());
+        assertEquals(5, characteristic.getValue().getFields().size());
+        assertEquals("C1", characteristic.getValue().getFields().get(0).getBitField().getBits().get(0)
+                .getFlag((byte) 0));
+        assertEquals("Heart Rate", reader.getService("180D").getName());
+    }
+
+    @Test
+    public void testConfiguration() {
+        BluetoothGattParser parser = GattParserConfigurationBuilder.builder()
+                .withSpecificationLoader(staxLoader).toConfiguration().getGattParser();
+        assertEquals(51, (int) parser.parse("2A19", new byte[] {51}).get("Level").getInteger());
+        GattResponse response = parser.parse("2A37", new byte[] {0x19, 74, 0x01, 0x10, 0x00, 0x10, 0x20, 0x30, 0x40});
+        assertEquals(330, (int) response.get("Heart Rate Measurement Value (uint16)").getInteger());
+        assertEquals(16, (int) response.get("Energy Expended").getInteger());
+    }
+
+    @Test
+    public void testUnexpectedRootElement() throws Exception {
+        URL service = getClass().getClassLoader().getResource("gatt/service/org.bluetooth.service.heart_rate.xml");
+        assertNotNull(staxLoader.loadService(service));
+        try {
+            staxLoader.loadCharacteristic(service);
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExternalEntitiesAreNotLoaded() throws Exception {
+        File secret = File.createTempFile("secret", ".txt");
+        File spec = File.createTempFile("spec", ".xml");
+        try {
+            Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+            Files.write(spec.toPath(), ("<?xml version=\"1.0\"?>\n"
+                    + "<!DOCTYPE Characteristic [<!ENTITY xxe SYSTEM \"" + secret.toURI() + "\">]>\n"
+                    + "<Characteristic name=\"&xxe;\" uuid=\"2A19\" type=\"test\"><Value><Field name=\"Level\">"
+                    + "<Format>uint8</Format><Unit>&xxe;</Unit></Field></Value></Characteristic>")
+                    .getBytes(StandardCharsets.UTF_8));
+            URL file = spec.toURI().toURL();
+            try {
+                staxLoader.loadCharacteristic(file);
+                fail();
+            } catch (IOException ex) {
+                // expected
+            }
+            // the same as XStream
+            assertNull(load(() -> xstreamLoader.loadCharacteristic(file)));
+            assertNull(new BluetoothGattSpecificationReader(staxLoader).getCharacteristicByUUID("FFFF"));
+        } finally {
+            assertTrue(secret.delete());
+            assertTrue(spec.delete());
+        }
+    }
+
+}